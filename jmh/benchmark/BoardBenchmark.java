@@ -0,0 +1,89 @@
+package benchmark;
+
+import exceptions.InvalidFenException;
+import exceptions.InvalidTurnException;
+import model.Board;
+import model.MoveList;
+import model.Position;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the Board operations a turn is made of, in an opening, a crowded middlegame and a sparse endgame
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private Board board;
+    private int turnMove; // a legal move that doesn't end the game
+    private MoveList moves;
+    private String fen;
+
+    @Setup
+    public void setUp(){
+        moves = new MoveList();
+        fen = GamePositions.create(phase).toFen();
+        MoveList legal = GamePositions.create(phase).getLegalMoves();
+        for(int i = 0; i < legal.size(); i++){
+            board = GamePositions.create(phase);
+            try {
+                board.move(legal.get(i));
+                board.undo();
+                turnMove = legal.get(i);
+                return;
+            } catch (Exception | InvalidTurnException e) {
+                // the move ended the game, try the next one on a fresh board
+            }
+        }
+        throw new IllegalStateException("No move in " + phase + " leaves the game going");
+    }
+
+    // a whole turn: the move is played through the pieces, Board.nextTurn() updates both teams, then it is undone
+    @Benchmark
+    public void turn() throws Exception, InvalidTurnException {
+        board.move(turnMove);
+        board.undo();
+    }
+
+    @Benchmark
+    public boolean check(){
+        return board.check();
+    }
+
+    // what Board.putInCheck()/canMoveEscapeFromCheck() did per square is now one legal move generation per turn
+    @Benchmark
+    public int legalMoves(){
+        Position position = board.getPosition();
+        moves.clear();
+        position.generateLegalMoves(moves);
+        return moves.size();
+    }
+
+    @Benchmark
+    public void getSquare(Blackhole bh) throws Exception {
+        bh.consume(board.getSquare("a1"));
+        bh.consume(board.getSquare("e4"));
+        bh.consume(board.getSquare("h8"));
+    }
+
+    // setting up the phase's board from FEN rather than replaying the moves that led to it
+    @Benchmark
+    public Board fromFen() throws InvalidFenException {
+        return Board.fromFen(fen);
+    }
+
+    @Benchmark
+    public String boardToString(){
+        return board.toString();
+    }
+}
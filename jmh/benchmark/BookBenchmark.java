@@ -0,0 +1,107 @@
+package benchmark;
+
+import book.OpeningBook;
+import book.PolyglotKey;
+import exceptions.InvalidFenException;
+import model.MoveList;
+import model.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures OpeningBook probes on a 4 million entry (64 MB) book of random keys with a few moves for the
+ * starting position, which is about as deep a binary search as a real book of that size
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookBenchmark {
+
+    private static final int ENTRIES = 1 << 22;
+
+    private Path file;
+    private OpeningBook book;
+    private Position start;
+    private Position outOfBook;
+    private MoveList legal;
+    private MoveList outOfBookLegal;
+    private Random random;
+
+    @Setup
+    public void setUp() throws IOException, InvalidFenException {
+        start = Position.fromFen(Position.START_FEN);
+        outOfBook = new Position(GamePositions.create("middlegame").getPosition());
+        legal = new MoveList();
+        start.generateLegalMoves(legal);
+        outOfBookLegal = new MoveList();
+        outOfBook.generateLegalMoves(outOfBookLegal);
+        random = new Random(1);
+
+        // random keys in ascending unsigned order, with the starting position's moves where its key falls
+        long[] keys = new long[ENTRIES - 3];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = random.nextLong() ^ Long.MIN_VALUE; // sorted signed after the flip is sorted unsigned before it
+        }
+        Arrays.sort(keys);
+        String[] moves = {"e2e4", "d2d4", "g1f3"};
+        file = Files.createTempFile("book", ".bin");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.ENTRY_SIZE * 4096);
+            boolean written = false;
+            for(long k : keys){
+                long key = k ^ Long.MIN_VALUE;
+                if(!written && (Long.compareUnsigned(key, PolyglotKey.of(start)) > 0)){
+                    for(String m : moves){
+                        buffer = put(out, buffer, PolyglotKey.of(start), OpeningBook.encodeMove(start.parseMove(m)));
+                    }
+                    written = true;
+                }
+                buffer = put(out, buffer, key, random.nextInt(1 << 12));
+            }
+            buffer.flip();
+            out.write(buffer);
+        }
+        book = new OpeningBook(file);
+    }
+
+    private static ByteBuffer put(FileChannel out, ByteBuffer buffer, long key, int move) throws IOException {
+        if(!buffer.hasRemaining()){
+            buffer.flip();
+            out.write(buffer);
+            buffer.clear();
+        }
+        return buffer.putLong(key).putShort((short) move).putShort((short) 10).putInt(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int probeBest(){
+        return book.probe(start, legal, null);
+    }
+
+    @Benchmark
+    public int probeRandom(){
+        return book.probe(start, legal, random);
+    }
+
+    @Benchmark
+    public int probeMiss(){
+        return book.probe(outOfBook, outOfBookLegal, null);
+    }
+}
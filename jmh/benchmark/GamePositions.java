@@ -0,0 +1,75 @@
+package benchmark;
+
+import exceptions.InvalidTurnException;
+import model.Board;
+import model.MoveList;
+import model.Piece;
+
+import java.util.Random;
+
+/**
+ * builds the boards the benchmarks run on by playing seeded random legal moves through Board.move, so every run
+ * of a benchmark sees the same position
+ * opening: 8 plies in, all 32 pieces on the board
+ * middlegame: at least 30 plies in with 20 to 26 pieces left
+ * endgame: 8 to 10 pieces left
+ */
+final class GamePositions {
+
+    private static final int MAX_PLIES = 400;
+
+    private GamePositions(){}
+
+    /**
+     * @param phase one of "opening", "middlegame" or "endgame"
+     * @return a board in that phase with the game still going
+     */
+    static Board create(String phase){
+        if(phase.equals("opening")){
+            return play(1L, 8, 32, 32);
+        } else if(phase.equals("middlegame")){
+            return play(1L, 30, 20, 26);
+        } else if(phase.equals("endgame")){
+            return play(1L, 0, 8, 10);
+        }
+        throw new IllegalArgumentException("Unknown phase: " + phase);
+    }
+
+    // plays random games from seed on until one passes minPlies with between minPieces and maxPieces left
+    private static Board play(long seed, int minPlies, int minPieces, int maxPieces){
+        for(long s = seed; ; s++){
+            Board b = new Board();
+            Random random = new Random(s);
+            try {
+                for(int ply = 0; ply < MAX_PLIES; ply++){
+                    int pieces = pieceCount(b);
+                    if((ply >= minPlies) && (pieces >= minPieces) && (pieces <= maxPieces)){
+                        return b;
+                    }
+                    if(pieces < minPieces){
+                        break;
+                    }
+                    MoveList moves = b.getLegalMoves();
+                    b.move(moves.get(random.nextInt(moves.size())));
+                }
+            } catch (Exception | InvalidTurnException e) {
+                // the game ended (or the move was refused), so try the next seed
+            }
+        }
+    }
+
+    private static int pieceCount(Board b){
+        int count = 0;
+        for(Piece p : b.getWhitePieces()){
+            if(!p.isEliminated()){
+                count++;
+            }
+        }
+        for(Piece p : b.getBlackPieces()){
+            if(!p.isEliminated()){
+                count++;
+            }
+        }
+        return count;
+    }
+}
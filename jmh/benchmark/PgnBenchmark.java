@@ -0,0 +1,48 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pgn.PgnListener;
+import pgn.PgnReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures how fast PgnReader parses and replays games: 1000 copies of the Opera Game, with its comments
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PgnBenchmark {
+
+    private static final int GAMES = 1000;
+    private static final String GAME = "[Event \"Paris\"]\n[Site \"Paris FRA\"]\n[Date \"1858.??.??\"]\n"
+            + "[White \"Paul Morphy\"]\n[Black \"Duke Karl / Count Isouard\"]\n[Result \"1-0\"]\n\n"
+            + "1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move already.} 4. dxe5 Bxf3 5. Qxf3 dxe5\n"
+            + "6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 {Black is in what's like a zugzwang position here.} b5\n"
+            + "10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7\n"
+            + "16. Qb8+ Nxb8 17. Rd8# 1-0\n\n";
+
+    private byte[] pgn;
+
+    @Setup
+    public void setUp(){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < GAMES; i++){
+            sb.append(GAME);
+        }
+        pgn = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // reads all the games; the score is in games per second
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public long read() throws IOException {
+        return new PgnReader(new ByteArrayInputStream(pgn)).read(new PgnListener() {});
+    }
+}
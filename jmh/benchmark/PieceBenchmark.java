@@ -0,0 +1,55 @@
+package benchmark;
+
+import model.Board;
+import model.Piece;
+import model.UnitCost;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures Piece.allMoves() for every piece of one type on the side to move, which is what getAllMoves() costs
+ * the first time it is called each turn
+ * a type the side to move no longer has (eg. the Queen in some endgames) measures an empty loop
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    public UnitCost type;
+
+    private Piece[] pieces;
+
+    @Setup
+    public void setUp(){
+        Board board = GamePositions.create(phase);
+        List<Piece> team = board.getCurrentPlayer() ? board.getWhitePieces() : board.getBlackPieces();
+        List<Piece> ofType = new ArrayList<Piece>();
+        for(Piece p : team){
+            if(!p.isEliminated() && (p.getUnitCost() == type)){
+                ofType.add(p);
+            }
+        }
+        pieces = ofType.toArray(new Piece[0]);
+    }
+
+    @Benchmark
+    public int allMoves(){
+        int count = 0;
+        for(Piece p : pieces){
+            p.allMoves();
+            count += p.getAllMoves().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.SearchResult;
+import model.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the time ParallelSearch takes to reach a fixed depth with 1, 2, 4 and 8 threads
+ * every search starts from an empty transposition table, so the numbers show how much the helpers speed up the
+ * main search; they can only go down as far as the machine running the benchmark has cores
+ * the nodes and effective branching factor of each search are reported next to its time as secondary results,
+ * which show how well MoveOrder prunes the tree
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    private static final int DEPTH = 6;
+
+    @Param({"opening", "middlegame"})
+    public String phase;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Position position;
+    private ParallelSearch search;
+
+    /**
+     * the nodes and branching factor of the search of an iteration; each iteration is a single search and JMH adds
+     * the counters up over the measured ones, so one search's are the reported value over Cnt
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Tree {
+        public long nodes;
+        public double branchingFactor;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            nodes = 0;
+            branchingFactor = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        position = GamePositions.create(phase).getPosition();
+    }
+
+    @Setup(Level.Invocation)
+    public void newSearch(){
+        search = new ParallelSearch(threads, 16);
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdown(){
+        search.shutdown();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth(Tree tree){
+        SearchResult r = search.search(position, SearchLimits.depth(DEPTH));
+        tree.nodes += r.getNodes();
+        tree.branchingFactor += r.getBranchingFactor();
+        return r;
+    }
+}
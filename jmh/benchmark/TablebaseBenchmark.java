@@ -0,0 +1,66 @@
+package benchmark;
+
+import exceptions.InvalidFenException;
+import model.Position;
+import org.openjdk.jmh.annotations.*;
+import tablebase.Tablebase;
+import tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures Tablebase probes of a KRvK table generated into a temporary directory, with the colours either way
+ * round, and a probe of a position no table has, which is what a search pays at every node of the late endgame
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TablebaseBenchmark {
+
+    private Path directory;
+    private Tablebase tablebase;
+    private Position white;
+    private Position black;
+    private Position miss;
+    private int[] squares;
+
+    @Setup
+    public void setUp() throws IOException, InvalidFenException {
+        directory = Files.createTempDirectory("tables");
+        new TablebaseGenerator(directory, 1).generate("KRvK");
+        tablebase = new Tablebase(directory);
+        white = Position.fromFen("8/8/8/8/4k3/8/8/R3K3 w - - 0 1");
+        black = Position.fromFen("r3k3/8/8/4K3/8/8/8/8 b - - 0 1");
+        miss = Position.fromFen("8/8/8/8/4k3/8/8/R3K2Q w - - 0 1");
+        squares = new int[tablebase.getMaxPieces()];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for(Path file : Files.newDirectoryStream(directory)){
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int probe(){
+        return tablebase.probe(white, squares);
+    }
+
+    @Benchmark
+    public int probeSwapped(){
+        return tablebase.probe(black, squares);
+    }
+
+    @Benchmark
+    public int probeMiss(){
+        return tablebase.probe(miss, squares);
+    }
+}
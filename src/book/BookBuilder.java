@@ -0,0 +1,561 @@
+package book;
+
+import model.Move;
+import model.Position;
+import pgn.PgnListener;
+import pgn.PgnReader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * builds an OpeningBook file from PGN games in bounded memory, however big the corpus
+ *
+ * every game is replayed up to maxPlies, and each (key, move, result) it passes through goes into a fixed-size
+ * buffer per reading thread; a full buffer is sorted, equal (key, move) tuples are added up, and it is spilled to a
+ * run file, so memory never holds more than one buffer per thread
+ * the runs are then merged into the book on all threads at once: the key space is cut into one range per thread at
+ * sampled keys, each thread merges its range of every run into a part file, and the parts are joined in key order
+ *
+ * a move scores 2 for each game its side went on to win and 1 for each draw; its weight is its score, scaled down
+ * with the rest of its position's moves if the best of them doesn't fit in 16 bits, and moves that never scored are
+ * left out of the book
+ */
+public class BookBuilder {
+
+    // a run record: key, book move, score, games
+    private static final int RECORD_SIZE = 20;
+    private static final int CURSOR_RECORDS = 1024;
+    private static final int SAMPLES_PER_RUN = 1024;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final Path tempDirectory;
+    private final int runEntries;
+    private final int maxPlies;
+    private final int minGames;
+    private final int threads;
+
+    private Path work; // holds the runs and parts of the book being built
+    private final List<Path> runs;
+    private final AtomicLong games;
+
+    /**
+     * @param tempDirectory where a working directory for runs and parts is made; it is deleted once the book is
+     * written
+     * @param runEntries the tuples each thread holds before spilling a run, 12 bytes each
+     * @param maxPlies how many plies of each game go into the book
+     * @param minGames how many games a move must have been played in to go into the book
+     * @param threads the threads to read and merge on
+     */
+    public BookBuilder(Path tempDirectory, int runEntries, int maxPlies, int minGames, int threads){
+        this.tempDirectory = tempDirectory;
+        this.runEntries = Math.max(1, runEntries);
+        this.maxPlies = maxPlies;
+        this.minGames = Math.max(1, minGames);
+        this.threads = Math.max(1, threads);
+        runs = Collections.synchronizedList(new ArrayList<Path>());
+        games = new AtomicLong();
+    }
+
+    /**
+     * usage: BookBuilder [-threads n] [-plies n] [-mingames n] [-run tuples] book.bin games.pgn ...
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int plies = 40;
+        int minGames = 1;
+        int runEntries = 1 << 22;
+        int i = 0;
+        for(; (i < args.length) && args[i].startsWith("-"); i += 2){
+            int n = Integer.parseInt(args[i + 1]);
+            switch(args[i]){
+                case "-threads": threads = n; break;
+                case "-plies": plies = n; break;
+                case "-mingames": minGames = n; break;
+                case "-run": runEntries = n; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if(args.length - i < 2){
+            System.out.println("usage: BookBuilder [-threads n] [-plies n] [-mingames n] [-run tuples] "
+                    + "book.bin games.pgn ...");
+            return;
+        }
+        Path out = Paths.get(args[i]);
+        List<Path> pgns = new ArrayList<Path>();
+        for(i++; i < args.length; i++){
+            pgns.add(Paths.get(args[i]));
+        }
+        Path temp = (out.toAbsolutePath().getParent() != null) ? out.toAbsolutePath().getParent() : Paths.get(".");
+        BookBuilder builder = new BookBuilder(temp, runEntries, plies, minGames, threads);
+        long start = System.nanoTime();
+        long entries = builder.build(pgns, out);
+        System.out.println(builder.getGames() + " games, " + entries + " entries written to " + out + " in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * @return the number of finished games read by build()
+     */
+    public long getGames(){
+        return games.get();
+    }
+
+    /**
+     * reads every game of pgns and writes the book they make to out
+     * @param pgns PGN files
+     * @param out the book file, replaced if it exists
+     * @return the number of entries in the book
+     */
+    public long build(List<Path> pgns, Path out) throws IOException {
+        work = Files.createTempDirectory(tempDirectory, "book");
+        try {
+            for(Path pgn : pgns){
+                readRuns(pgn);
+            }
+            return merge(out);
+        } finally {
+            runs.clear();
+            try (DirectoryStream<Path> left = Files.newDirectoryStream(work)) {
+                for(Path p : left){
+                    Files.deleteIfExists(p);
+                }
+            }
+            Files.deleteIfExists(work);
+        }
+    }
+
+    // reads pgn on every thread, spilling runs as buffers fill
+    private void readRuns(Path pgn) throws IOException {
+        final List<RunWriter> writers = Collections.synchronizedList(new ArrayList<RunWriter>());
+        try {
+            PgnReader.read(pgn, threads, () -> {
+                RunWriter w = new RunWriter();
+                writers.add(w);
+                return w;
+            });
+            for(RunWriter w : writers){
+                w.spill();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // merges every run into out on all threads, one range of keys each
+    private long merge(Path out) throws IOException {
+        final List<FileChannel> channels = new ArrayList<FileChannel>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for(Path run : runs){
+                channels.add(FileChannel.open(run, StandardOpenOption.READ));
+            }
+            final long[] splits = splitKeys(channels);
+            List<Future<Long>> parts = new ArrayList<Future<Long>>();
+            final List<Path> partFiles = new ArrayList<Path>();
+            for(int i = 0; i <= splits.length; i++){
+                final Path part = Files.createTempFile(work, "part", ".bin");
+                partFiles.add(part);
+                final boolean first = i == 0;
+                final boolean last = i == splits.length;
+                final long low = first ? 0 : splits[i - 1];
+                final long high = last ? 0 : splits[i];
+                parts.add(pool.submit(() -> mergeRange(channels, first, low, last, high, part)));
+            }
+            long entries = 0;
+            for(Future<Long> part : parts){
+                entries += part.get();
+            }
+            try (FileChannel book = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for(Path part : partFiles){
+                    try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long size = in.size();
+                        for(long done = 0; done < size; ){
+                            done += in.transferTo(done, size - done, book);
+                        }
+                    }
+                    Files.delete(part);
+                }
+            }
+            return entries;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while merging runs");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            } else if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            for(FileChannel c : channels){
+                c.close();
+            }
+        }
+    }
+
+    // threads - 1 keys, in ascending unsigned order, that cut the sampled keys of every run into equal parts
+    private long[] splitKeys(List<FileChannel> channels) throws IOException {
+        long[] samples = new long[0];
+        int n = 0;
+        ByteBuffer key = ByteBuffer.allocate(8);
+        for(FileChannel c : channels){
+            long records = c.size() / RECORD_SIZE;
+            long step = Math.max(1, records / SAMPLES_PER_RUN);
+            for(long r = 0; r < records; r += step){
+                if(n == samples.length){
+                    samples = Arrays.copyOf(samples, Math.max(16, n * 2));
+                }
+                samples[n++] = readKey(c, r, key) ^ Long.MIN_VALUE; // signed order is now unsigned order
+            }
+        }
+        Arrays.sort(samples, 0, n);
+        if(n == 0){
+            return new long[0];
+        }
+        long[] splits = new long[threads - 1];
+        for(int i = 1; i < threads; i++){
+            splits[i - 1] = samples[(int) ((long) n * i / threads)] ^ Long.MIN_VALUE;
+        }
+        return splits;
+    }
+
+    private static long readKey(FileChannel c, long record, ByteBuffer key) throws IOException {
+        key.clear();
+        while(key.hasRemaining()){
+            if(c.read(key, record * RECORD_SIZE + key.position()) < 0){
+                throw new IOException("Run ended early");
+            }
+        }
+        return key.getLong(0);
+    }
+
+    // the first record of a run with a key not below key (unsigned)
+    private static long lowerBound(FileChannel c, long key, ByteBuffer buffer) throws IOException {
+        long low = 0;
+        long high = c.size() / RECORD_SIZE;
+        while(low < high){
+            long mid = (low + high) >>> 1;
+            if(Long.compareUnsigned(readKey(c, mid, buffer), key) < 0){
+                low = mid + 1;
+            } else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // merges the records with keys in [low, high) of every run into part; first and last leave a side open
+    private long mergeRange(List<FileChannel> channels, boolean first, long low, boolean last, long high, Path part)
+            throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(1, channels.size()));
+        ByteBuffer key = ByteBuffer.allocate(8);
+        for(FileChannel c : channels){
+            long start = first ? 0 : lowerBound(c, low, key);
+            long end = last ? c.size() / RECORD_SIZE : lowerBound(c, high, key);
+            Cursor cursor = new Cursor(c, start, end);
+            if(cursor.next()){
+                queue.add(cursor);
+            }
+        }
+
+        Group group = new Group();
+        long entries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part),
+                1 << 16))) {
+            while(!queue.isEmpty()){
+                Cursor c = queue.poll();
+                if(c.key != group.key || group.size == 0){
+                    entries += group.write(out, minGames);
+                    group.start(c.key);
+                }
+                group.add(c.move, c.score, c.games);
+                if(c.next()){
+                    queue.add(c);
+                }
+            }
+            entries += group.write(out, minGames);
+        }
+        return entries;
+    }
+
+    /**
+     * buffers the tuples of the games one thread reads, spilling a sorted run whenever the buffer fills
+     */
+    private class RunWriter implements PgnListener {
+        private final long[] keys = new long[runEntries];
+        private final int[] moves = new int[runEntries]; // book move << 2 | score
+        private int size;
+
+        // the current game's tuples, waiting for its result
+        private final long[] gameKeys = new long[Math.max(1, maxPlies)];
+        private final int[] gameMoves = new int[Math.max(1, maxPlies)];
+        private int gamePlies;
+        private long lastKey;
+        private boolean firstSide; // the side to move at the start of the game
+
+        @Override
+        public void gameStarted(Map<String, String> tags){
+            gamePlies = 0;
+        }
+
+        @Override
+        public void positionReached(Position position, int move, int ply){
+            if(ply == 0){
+                firstSide = position.getSideToMove();
+            } else if(ply <= maxPlies){
+                gameKeys[gamePlies] = lastKey;
+                gameMoves[gamePlies] = move;
+                gamePlies++;
+            }
+            lastKey = PolyglotKey.of(position);
+        }
+
+        @Override
+        public void gameFinished(Map<String, String> tags, String result, int plies){
+            int whiteScore;
+            if(result.equals("1-0")){
+                whiteScore = 2;
+            } else if(result.equals("0-1")){
+                whiteScore = 0;
+            } else if(result.equals("1/2-1/2")){
+                whiteScore = 1;
+            } else{
+                return; // unfinished games say nothing about their moves
+            }
+            games.incrementAndGet();
+            for(int i = 0; i < gamePlies; i++){
+                boolean white = firstSide == ((i & 1) == 0);
+                int score = white ? whiteScore : 2 - whiteScore;
+                if(size == keys.length){
+                    spillUnchecked();
+                }
+                keys[size] = gameKeys[i];
+                moves[size] = (OpeningBook.encodeMove(gameMoves[i]) << 2) | score;
+                size++;
+            }
+        }
+
+        private void spillUnchecked(){
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // sorts the buffer by key and move and writes it as a run, adding up equal tuples
+        void spill() throws IOException {
+            if(size == 0){
+                return;
+            }
+            sort(keys, moves, 0, size - 1);
+            Path run = Files.createTempFile(work, "run", ".bin");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run),
+                    1 << 16))) {
+                int i = 0;
+                while(i < size){
+                    long key = keys[i];
+                    int move = moves[i] >>> 2;
+                    int score = 0;
+                    int count = 0;
+                    for(; (i < size) && (keys[i] == key) && ((moves[i] >>> 2) == move); i++){
+                        score += moves[i] & 3;
+                        count++;
+                    }
+                    out.writeLong(key);
+                    out.writeInt(move);
+                    out.writeInt(score);
+                    out.writeInt(count);
+                }
+            }
+            size = 0;
+        }
+    }
+
+    // sorts keys[low..high] and moves with them by unsigned key, then by book move
+    static void sort(long[] keys, int[] moves, int low, int high){
+        while(high - low > 16){
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            int pivotMove = moves[mid] >>> 2;
+            int i = low;
+            int j = high;
+            while(i <= j){
+                while(compare(keys[i], moves[i] >>> 2, pivotKey, pivotMove) < 0){
+                    i++;
+                }
+                while(compare(keys[j], moves[j] >>> 2, pivotKey, pivotMove) > 0){
+                    j--;
+                }
+                if(i <= j){
+                    swap(keys, moves, i++, j--);
+                }
+            }
+            // recurse into the smaller side so the stack stays logarithmic
+            if(j - low < high - i){
+                sort(keys, moves, low, j);
+                low = i;
+            } else{
+                sort(keys, moves, i, high);
+                high = j;
+            }
+        }
+        for(int i = low + 1; i <= high; i++){
+            for(int j = i; (j > low) && (compare(keys[j - 1], moves[j - 1] >>> 2, keys[j], moves[j] >>> 2) > 0);
+                    j--){
+                swap(keys, moves, j - 1, j);
+            }
+        }
+    }
+
+    private static int compare(long keyA, int moveA, long keyB, int moveB){
+        int c = Long.compareUnsigned(keyA, keyB);
+        return (c != 0) ? c : Integer.compare(moveA, moveB);
+    }
+
+    private static void swap(long[] keys, int[] moves, int i, int j){
+        long k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        int m = moves[i];
+        moves[i] = moves[j];
+        moves[j] = m;
+    }
+
+    /**
+     * reads the records [start, end) of a run through a buffer of its own; runs are shared between threads and
+     * read with positional reads, so cursors never get in each other's way
+     */
+    private static class Cursor implements Comparable<Cursor> {
+        private final FileChannel channel;
+        private long next;
+        private final long end;
+        private final ByteBuffer buffer;
+
+        long key;
+        int move;
+        int score;
+        int games;
+
+        Cursor(FileChannel channel, long start, long end){
+            this.channel = channel;
+            next = start;
+            this.end = end;
+            buffer = ByteBuffer.allocate(RECORD_SIZE * CURSOR_RECORDS);
+            buffer.limit(0);
+        }
+
+        // moves on to the next record, returning false past the end
+        boolean next() throws IOException {
+            if(!buffer.hasRemaining()){
+                if(next >= end){
+                    return false;
+                }
+                int records = (int) Math.min(CURSOR_RECORDS, end - next);
+                buffer.clear();
+                buffer.limit(records * RECORD_SIZE);
+                long position = next * RECORD_SIZE;
+                while(buffer.hasRemaining()){
+                    if(channel.read(buffer, position + buffer.position()) < 0){
+                        throw new IOException("Run ended early");
+                    }
+                }
+                buffer.flip();
+                next += records;
+            }
+            key = buffer.getLong();
+            move = buffer.getInt();
+            score = buffer.getInt();
+            games = buffer.getInt();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other){
+            return compare(key, move, other.key, other.move);
+        }
+    }
+
+    /**
+     * the moves merged so far for one key, in ascending move order
+     */
+    private static class Group {
+        long key;
+        int size;
+        int[] moves = new int[64];
+        long[] scores = new long[64];
+        long[] games = new long[64];
+
+        void start(long key){
+            this.key = key;
+            size = 0;
+        }
+
+        void add(int move, int score, int count){
+            if((size > 0) && (moves[size - 1] == move)){
+                scores[size - 1] += score;
+                games[size - 1] += count;
+                return;
+            }
+            if(size == moves.length){
+                moves = Arrays.copyOf(moves, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+                games = Arrays.copyOf(games, size * 2);
+            }
+            moves[size] = move;
+            scores[size] = score;
+            games[size] = count;
+            size++;
+        }
+
+        // writes the group's moves as book entries, returning how many were written
+        int write(DataOutputStream out, int minGames) throws IOException {
+            long best = 0;
+            for(int i = 0; i < size; i++){
+                if(games[i] >= minGames){
+                    best = Math.max(best, scores[i]);
+                }
+            }
+            int written = 0;
+            for(int i = 0; i < size; i++){
+                if((games[i] < minGames) || (scores[i] == 0)){
+                    continue;
+                }
+                long weight = (best <= MAX_WEIGHT) ? scores[i] : Math.max(1, scores[i] * MAX_WEIGHT / best);
+                out.writeLong(key);
+                out.writeShort(moves[i]);
+                out.writeShort((int) weight);
+                out.writeInt(0);
+                written++;
+            }
+            size = 0;
+            return written;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package book;
+
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.UnitCost;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * an opening book in the Polyglot .bin layout, memory-mapped read-only so a book of any size costs no heap and
+ * starts instantly; the operating system pages in only the parts that are probed
+ *
+ * the file is a sequence of 16-byte big-endian entries (key, move, weight, learn) sorted by unsigned key, so the
+ * entries of a position are found by binary search straight on the mapped buffers, without copying or allocating
+ * keys are Polyglot's own, see PolyglotKey, so books written by Polyglot and other programs can be probed
+ * the mapping is never written to, so one book can be probed by any number of threads at once
+ */
+public class OpeningBook {
+
+    public static final int ENTRY_SIZE = 16;
+
+    // the file is mapped in segments of 2^SEGMENT_BITS entries, since one mapping can't be more than 2 GB
+    private static final int SEGMENT_BITS = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    // Polyglot promotion codes 1-4 (knight, bishop, rook, queen) and the UnitCost ordinals they stand for
+    private static final int[] PROMOTIONS = {0, UnitCost.KNIGHT.ordinal(), UnitCost.BISHOP.ordinal(),
+            UnitCost.ROOK.ordinal(), UnitCost.QUEEN.ordinal()};
+
+    private final MappedByteBuffer[] segments;
+    private final long entries;
+    private final ThreadLocal<MoveList> legal = ThreadLocal.withInitial(MoveList::new); // for probe(Position, Random)
+
+    /**
+     * maps file, which stays mapped until the book is garbage collected
+     * @param file a book in the Polyglot .bin layout
+     * @throws IOException if file can't be read or isn't a whole number of entries
+     */
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size % ENTRY_SIZE != 0){
+                throw new IOException(file + " is not an opening book: its size isn't a multiple of " + ENTRY_SIZE);
+            }
+            entries = size / ENTRY_SIZE;
+            segments = new MappedByteBuffer[(int) ((entries + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for(int i = 0; i < segments.length; i++){
+                long start = ((long) i << SEGMENT_BITS) * ENTRY_SIZE;
+                long length = Math.min(size - start, (SEGMENT_MASK + 1) * ENTRY_SIZE);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public long size(){
+        return entries;
+    }
+
+    /**
+     * picks a book move for position, generating its legal moves into a list kept for the calling thread only
+     * if the book has an entry for it
+     * @param random chooses among the book moves in proportion to their weights, or null to take the heaviest
+     * @return a legal move of position, or Move.NONE if the book has none for it
+     */
+    public int probe(Position position, Random random){
+        long key = PolyglotKey.of(position);
+        long first = find(key);
+        if((first == entries) || (key(first) != key)){
+            return Move.NONE; // out of book, so there's no need for the legal moves
+        }
+        MoveList legal = this.legal.get();
+        legal.clear();
+        position.generateLegalMoves(legal);
+        return probe(position, legal, random);
+    }
+
+    /**
+     * picks one of legal, which must hold the legal moves of position; book moves that aren't legal (a key
+     * collision or a corrupt entry) and moves with weight 0 are never picked
+     * @param random chooses among the book moves in proportion to their weights, or null to take the heaviest
+     * @return the book move, or Move.NONE if the book has none for position
+     */
+    public int probe(Position position, MoveList legal, Random random){
+        long key = PolyglotKey.of(position);
+        long first = find(key);
+        long total = 0;
+        int best = Move.NONE;
+        int bestWeight = 0;
+        for(long i = first; (i < entries) && (key(i) == key); i++){
+            int weight = weight(i);
+            int move = decodeMove(position, move(i));
+            if((weight > 0) && legal.contains(move)){
+                total += weight;
+                if(weight > bestWeight){
+                    bestWeight = weight;
+                    best = move;
+                }
+            }
+        }
+        if((random == null) || (total == 0)){
+            return best;
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for(long i = first; (i < entries) && (key(i) == key); i++){
+            int weight = weight(i);
+            int move = decodeMove(position, move(i));
+            if((weight > 0) && legal.contains(move)){
+                pick -= weight;
+                if(pick < 0){
+                    return move;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the index of the first entry whose key is key, or of the first entry after where it would be
+     */
+    long find(long key){
+        long low = 0;
+        long high = entries;
+        while(low < high){
+            long mid = (low + high) >>> 1;
+            if(Long.compareUnsigned(key(mid), key) < 0){
+                low = mid + 1;
+            } else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long key(long i){
+        return segments[(int) (i >>> SEGMENT_BITS)].getLong((int) ((i & SEGMENT_MASK) * ENTRY_SIZE));
+    }
+
+    private int move(long i){
+        return segments[(int) (i >>> SEGMENT_BITS)].getShort((int) ((i & SEGMENT_MASK) * ENTRY_SIZE + 8)) & 0xFFFF;
+    }
+
+    private int weight(long i){
+        return segments[(int) (i >>> SEGMENT_BITS)].getShort((int) ((i & SEGMENT_MASK) * ENTRY_SIZE + 10)) & 0xFFFF;
+    }
+
+    /**
+     * encodes move the way Polyglot does: to file and rank in bits 0-5, from file and rank in bits 6-11, the
+     * promotion piece (1 knight to 4 queen) in bits 12-14, and castling as the King taking its own Rook
+     * @param move a move encoded by Move
+     * @return the 16-bit book move
+     */
+    public static int encodeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if(Move.isCastle(move)){
+            to = (to > from) ? to + 1 : to - 2;
+        }
+        int promotion = 0;
+        for(int i = 1; i < PROMOTIONS.length; i++){
+            if(PROMOTIONS[i] == Move.promotion(move)){
+                promotion = i;
+            }
+        }
+        return to | (from << 6) | (promotion << 12);
+    }
+
+    /**
+     * @param position the position the book move is for
+     * @param bookMove a move encoded by encodeMove()
+     * @return the move encoded by Move, with flags from position
+     */
+    public static int decodeMove(Position position, int bookMove){
+        int to = bookMove & 63;
+        int from = (bookMove >>> 6) & 63;
+        int promotion = (bookMove >>> 12) & 7;
+        if(promotion >= PROMOTIONS.length){
+            return Move.NONE;
+        }
+        int piece = position.pieceAt(from);
+        if((piece != Position.EMPTY) && (piece % 6 == UnitCost.KING.ordinal())
+                && (position.pieceAt(to) == piece - UnitCost.KING.ordinal() + UnitCost.ROOK.ordinal())){
+            to = (to > from) ? from + 2 : from - 2; // castling, written as the King taking its Rook
+        }
+        return position.toMove(from, to, PROMOTIONS[promotion]);
+    }
+}
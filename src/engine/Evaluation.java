@@ -0,0 +1,19 @@
+package engine;
+
+import model.Position;
+
+/**
+ * static evaluation of a position in centipawns from the side to move's point of view
+ */
+public final class Evaluation {
+
+    private Evaluation(){}
+
+    /**
+     * @return the tapered material and piece-square score Position keeps up to date, for the side to move
+     */
+    public static int evaluate(Position position){
+        int score = position.getScore();
+        return position.getSideToMove() ? score : -score;
+    }
+}
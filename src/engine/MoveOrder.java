@@ -0,0 +1,169 @@
+package engine;
+
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.UnitCost;
+
+/**
+ * orders the moves of a search so the ones most likely to cause a cutoff are searched first:
+ * the transposition table's move, then captures and promotions by MVV-LVA, then the two killer moves of the ply,
+ * then the quiet moves by how often they have caused cutoffs before (the butterfly history table)
+ *
+ * score() gives every move of a list a score and pick() selects the best one left, so a node that cuts off early
+ * never sorts the rest; each Search has its own MoveOrder
+ */
+public class MoveOrder {
+
+    // the stages, each above anything the next one can score
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 28;
+    private static final int KILLER = 1 << 27;
+    private static final int HISTORY_MAX = 1 << 20; // the history is halved once any entry passes this or -this
+
+    private static final UnitCost[] UNIT_COSTS = UnitCost.values();
+    private static final int PAWN_VALUE = 100;     // the victim of en passant
+    private static final int KING_VALUE = 10000;   // never captured, but the least welcome attacker
+    private static final int PROMOTION_BONUS = 800 * 16;
+
+    private final int[][] scores;  // scores[ply][i] is the score of the ith move of the list at ply
+    private final int[][] killers; // killers[ply] holds the last two quiet moves that cut off at ply
+    private final int[][][] history; // history[colour][from][to]
+
+    public MoveOrder(){
+        scores = new int[Search.MAX_PLY + 1][MoveList.CAPACITY];
+        killers = new int[Search.MAX_PLY + 1][2];
+        history = new int[2][64][64];
+    }
+
+    /**
+     * forgets the killers and history of the last search
+     */
+    public void clear(){
+        for(int[] k : killers){
+            k[0] = Move.NONE;
+            k[1] = Move.NONE;
+        }
+        for(int[][] side : history){
+            for(int[] from : side){
+                java.util.Arrays.fill(from, 0);
+            }
+        }
+    }
+
+    /**
+     * scores every move in list, which was generated for position at ply, for pick()
+     * @param ttMove the transposition table's move for position, Move.NONE if there is none
+     */
+    public void score(Position position, MoveList list, int ttMove, int ply){
+        int[] s = scores[ply];
+        int[][] h = history[Position.colour(position.getSideToMove())];
+        for(int i = 0; i < list.size(); i++){
+            int move = list.get(i);
+            if(move == ttMove){
+                s[i] = HASH_MOVE;
+            } else if(!isQuiet(move)){
+                s[i] = CAPTURE + captureScore(position, move);
+            } else if(move == killers[ply][0]){
+                s[i] = KILLER;
+            } else if(move == killers[ply][1]){
+                s[i] = KILLER - 1;
+            } else{
+                s[i] = h[Move.from(move)][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * swaps the best scored move among list[i] to the end of list into list[i]
+     * @return the move now at i
+     */
+    public int pick(MoveList list, int i, int ply){
+        int[] s = scores[ply];
+        int best = i;
+        for(int j = i + 1; j < list.size(); j++){
+            if(s[j] > s[best]){
+                best = j;
+            }
+        }
+        if(best != i){
+            list.swap(i, best);
+            int temp = s[i];
+            s[i] = s[best];
+            s[best] = temp;
+        }
+        return list.get(i);
+    }
+
+    /**
+     * records that list[index], a move of position at ply searched to depth, caused a beta cutoff
+     * a quiet move becomes a killer of the ply and gains history, and the quiet moves tried before it lose some
+     */
+    public void cutoff(Position position, MoveList list, int index, int depth, int ply){
+        int move = list.get(index);
+        if(!isQuiet(move)){
+            return;
+        }
+        if(killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[][] h = history[Position.colour(position.getSideToMove())];
+        int bonus = depth * depth;
+        boolean full = false;
+        for(int i = 0; i < index; i++){
+            int tried = list.get(i);
+            if(isQuiet(tried)){
+                full |= (h[Move.from(tried)][Move.to(tried)] -= bonus) < -HISTORY_MAX;
+            }
+        }
+        full |= (h[Move.from(move)][Move.to(move)] += bonus) > HISTORY_MAX;
+        if(full){
+            age();
+        }
+    }
+
+    // halves every history score, so old cutoffs count for less and no score grows without bound either way
+    private void age(){
+        for(int[][] side : history){
+            for(int[] from : side){
+                for(int to = 0; to < 64; to++){
+                    from[to] /= 2;
+                }
+            }
+        }
+    }
+
+    public boolean isKiller(int move, int ply){
+        return (move != Move.NONE) && ((killers[ply][0] == move) || (killers[ply][1] == move));
+    }
+
+    /**
+     * @param side true if white, false if black
+     * @return how much move has cut off for side so far
+     */
+    public int getHistory(boolean side, int move){
+        return history[Position.colour(side)][Move.from(move)][Move.to(move)];
+    }
+
+    // neither a capture nor a promotion
+    public static boolean isQuiet(int move){
+        return !Move.isCapture(move) && !Move.isPromotion(move);
+    }
+
+    /**
+     * the MVV-LVA score of a capture or promotion: the most valuable victim first, then the least valuable attacker
+     */
+    public static int captureScore(Position position, int move){
+        int victim = position.pieceAt(Move.to(move));
+        int victimValue = (victim == Position.EMPTY) ? (Move.isCapture(move) ? PAWN_VALUE : 0) : pieceValue(victim);
+        return victimValue * 16 - pieceValue(position.pieceAt(Move.from(move))) / 100
+                + (Move.isPromotion(move) ? PROMOTION_BONUS : 0);
+    }
+
+    // the UnitCost cost of a piece code in centipawns, with the King worth the most
+    private static int pieceValue(int code){
+        UnitCost u = UNIT_COSTS[code % UNIT_COSTS.length];
+        return (u == UnitCost.KING) ? KING_VALUE : u.getCost() * 100;
+    }
+}
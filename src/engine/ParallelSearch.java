@@ -0,0 +1,172 @@
+package engine;
+
+import model.Board;
+import model.Position;
+import tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * a Lazy SMP search: helper threads run the same iterative deepening search on their own copies of the position
+ * while the main search runs on the calling thread, and the only thing they share is the transposition table
+ * the helpers fill the table with results the main search then cuts off on, so it reaches a depth sooner
+ *
+ * every other helper starts one ply deeper so the threads spread over more of the tree; the main search decides
+ * the result and when to stop, and the result's node count is the total over all threads
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable tt;
+    private final Search main;
+    private final Search[] helpers;
+    private final ExecutorService pool;
+    private volatile SearchListener listener;
+
+    // one thread per available processor
+    public ParallelSearch(int tableMegabytes){
+        this(Runtime.getRuntime().availableProcessors(), tableMegabytes);
+    }
+
+    /**
+     * @param threads the number of threads to search with, including the calling thread, at least 1
+     * @param tableMegabytes the size of the shared transposition table
+     */
+    public ParallelSearch(int threads, int tableMegabytes){
+        tt = new TranspositionTable(tableMegabytes);
+        main = new Search(tt);
+        main.setListener(this::iterationFinished);
+        helpers = new Search[Math.max(threads, 1) - 1];
+        for(int i = 0; i < helpers.length; i++){
+            helpers[i] = new Search(tt);
+        }
+        pool = Executors.newFixedThreadPool(Math.max(helpers.length, 1), r -> {
+            Thread t = new Thread(r, "search-helper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getThreads(){
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTranspositionTable(){
+        return tt;
+    }
+
+    /**
+     * @param tablebase the endgame tables every thread probes from now on, null for none; set between searches
+     */
+    public void setTablebase(Tablebase tablebase){
+        main.setTablebase(tablebase);
+        for(Search helper : helpers){
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * @param listener told about every iteration the main search completes from now on, null for none
+     */
+    public void setListener(SearchListener listener){
+        this.listener = listener;
+    }
+
+    // passes the main search's iteration on with the nodes the helpers have searched so far added in
+    private void iterationFinished(SearchResult r){
+        SearchListener l = listener;
+        if(l == null){
+            return;
+        }
+        long nodes = r.getNodes();
+        for(Search helper : helpers){
+            nodes += helper.getNodes();
+        }
+        l.iterationFinished(new SearchResult(r.getBestMove(), r.getScore(), r.getDepth(), nodes, r.getTimeMillis(),
+                r.getPrincipalVariation()));
+    }
+
+    /**
+     * searches the position of board with every thread; board is not changed
+     */
+    public SearchResult search(Board board, SearchLimits limits){
+        return search(board.getPosition(), limits);
+    }
+
+    /**
+     * searches a copy of root with every thread until the main search reaches limits or stop() is called
+     * @param root the position to search
+     * @param limits when to stop
+     * @return the main search's result, with the nodes of all threads
+     */
+    public SearchResult search(Position root, SearchLimits limits){
+        prepare();
+        return run(root, limits);
+    }
+
+    /**
+     * clears a stop() left from the last search and starts a new table generation; a caller that runs the search
+     * on another thread calls this on its own thread first and then run() on the other, so a stop() that comes
+     * before the other thread starts isn't lost
+     */
+    public void prepare(){
+        tt.newSearch();
+        main.reset();
+        for(Search helper : helpers){
+            helper.reset();
+        }
+    }
+
+    /**
+     * searches like search() after prepare(), without clearing a stop() made since; a search stopped before it
+     * starts returns straight away with any legal move
+     */
+    public SearchResult run(final Position root, SearchLimits limits){
+        List<Future<SearchResult>> running = new ArrayList<Future<SearchResult>>();
+        for(int i = 0; i < helpers.length; i++){
+            final Search helper = helpers[i];
+            final int firstDepth = 1 + (i & 1);
+            running.add(pool.submit(() -> helper.run(root, SearchLimits.infinite(), firstDepth)));
+        }
+
+        SearchResult result;
+        try {
+            result = main.run(root, limits, 1);
+        } finally {
+            for(Search helper : helpers){
+                helper.stop();
+            }
+        }
+
+        long nodes = result.getNodes();
+        for(Future<SearchResult> f : running){
+            try {
+                nodes += f.get().getNodes();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getTimeMillis(), result.getPrincipalVariation());
+    }
+
+    /**
+     * makes a running search return as soon as possible
+     */
+    public void stop(){
+        main.stop();
+    }
+
+    /**
+     * stops the helper threads for good; the ParallelSearch can't be used after this
+     */
+    public void shutdown(){
+        pool.shutdownNow();
+    }
+}
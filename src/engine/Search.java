@@ -0,0 +1,392 @@
+package engine;
+
+import model.Board;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import tablebase.Tablebase;
+
+/**
+ * iterative deepening negamax alpha-beta search with a quiescence search of captures at the leaves
+ * moves are tried in the order MoveOrder gives them
+ *
+ * every search runs on its own copy of the position with makeMove/unmakeMove and one preallocated MoveList per
+ * ply, so the board being searched is never touched and the search allocates nothing per node
+ * one Search must only run one search at a time; stop() may be called from any thread
+ * with a Tablebase set, positions in the endgame tables are scored from them instead of being searched
+ */
+public class Search {
+
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000; // the score of mating now; mate in n plies scores MATE - n
+    public static final int MAX_PLY = 64;
+    // a table win too far away to score as a mate; a win in n plies scores TABLEBASE_WIN - n
+    public static final int TABLEBASE_WIN = MATE - MAX_PLY - 1;
+
+    private static final int DEFAULT_TABLE_MB = 16;
+    private static final int CHECK_EVERY = 1024; // nodes between looking at the clock
+
+    private final TranspositionTable tt;
+    private final MoveList[] lists;
+    private final MoveOrder order;
+    private final int[][] pv;      // pv[ply] is the best line found from ply
+    private final int[] pvLength;
+    private final int[] squares;   // scratch space for tablebase probes
+
+    private Position position;
+    private long nodes;
+    private volatile long progress; // nodes as of the last look at the clock, for other threads
+    private long maxNodes;
+    private long deadline; // System.nanoTime() to stop at, 0 for none
+    private volatile boolean stopped;
+    private SearchListener listener;
+    private Tablebase tablebase; // null if there is none
+
+    public Search(){
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * @param tt the transposition table to use, which may be shared with other searches
+     */
+    public Search(TranspositionTable tt){
+        this.tt = tt;
+        lists = new MoveList[MAX_PLY + 1];
+        for(int i = 0; i < lists.length; i++){
+            lists[i] = new MoveList();
+        }
+        pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+        pvLength = new int[MAX_PLY + 1];
+        squares = new int[32];
+        order = new MoveOrder();
+    }
+
+    public TranspositionTable getTranspositionTable(){
+        return tt;
+    }
+
+    /**
+     * @param listener told about every iteration the search completes from now on, null for none
+     */
+    public void setListener(SearchListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * @param tablebase the endgame tables to probe from now on, null for none; set between searches
+     */
+    public void setTablebase(Tablebase tablebase){
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * @return true if score means one side is getting mated
+     */
+    public static boolean isMate(int score){
+        return Math.abs(score) >= MATE - MAX_PLY;
+    }
+
+    /**
+     * searches the position of board for its side to move; board is not changed
+     * @param board the board to search
+     * @param limits when to stop
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(Board board, SearchLimits limits){
+        return search(board.getPosition(), limits);
+    }
+
+    /**
+     * searches a copy of root for its side to move
+     * @param root the position to search
+     * @param limits when to stop
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(Position root, SearchLimits limits){
+        reset();
+        tt.newSearch();
+        return run(root, limits, 1);
+    }
+
+    /**
+     * clears a stop left from the last search; ParallelSearch calls this before handing the search to a thread,
+     * so a stop() that comes before the thread starts isn't lost
+     */
+    void reset(){
+        stopped = false;
+    }
+
+    /**
+     * searches a copy of root from firstDepth on, without clearing stop() or starting a new table generation
+     * @param root the position to search
+     * @param limits when to stop
+     * @param firstDepth the first depth of the iterative deepening
+     * @return the result of the deepest completed iteration
+     */
+    SearchResult run(Position root, SearchLimits limits, int firstDepth){
+        long start = System.nanoTime();
+        position = new Position(root);
+        nodes = 0;
+        progress = 0;
+        maxNodes = limits.getNodes();
+        deadline = (limits.getTimeMillis() > 0) ? start + limits.getTimeMillis() * 1000000L : 0;
+        order.clear();
+
+        int maxDepth = (limits.getDepth() > 0) ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+        int[] line = new int[0];
+        for(int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++){
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            // a stopped iteration only counts if it's the first and found a move
+            if(stopped && ((completed > 0) || (pvLength[0] == 0))){
+                break;
+            }
+            completed = depth;
+            bestScore = score;
+            line = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, line, 0, line.length);
+            bestMove = (line.length > 0) ? line[0] : Move.NONE;
+            if(listener != null){
+                listener.iterationFinished(new SearchResult(bestMove, bestScore, completed, nodes,
+                        (System.nanoTime() - start) / 1000000, line));
+            }
+            // no legal move, or a forced mate already seen to the end
+            if((bestMove == Move.NONE) || (isMate(score) && (MATE - Math.abs(score) <= depth)) || stopped){
+                break;
+            }
+        }
+        if((bestMove == Move.NONE) && (completed == 0)){
+            // stopped inside depth 1, so fall back on any legal move
+            MoveList list = lists[0];
+            list.clear();
+            position.generateLegalMoves(list);
+            if(!list.isEmpty()){
+                bestMove = list.get(0);
+                line = new int[]{bestMove};
+            }
+        }
+        stopped = true;
+        progress = nodes;
+        return new SearchResult(bestMove, bestScore, completed, nodes, (System.nanoTime() - start) / 1000000, line);
+    }
+
+    /**
+     * makes a running search return as soon as possible with its last completed iteration
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    /**
+     * @return the nodes searched by the last search, or roughly those searched so far if it's still running on
+     * another thread
+     */
+    public long getNodes(){
+        return progress;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply){
+        pvLength[ply] = 0;
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if(inCheck){
+            depth++;
+        }
+        if(depth <= 0){
+            return quiesce(alpha, beta, ply);
+        }
+        if(countNode()){
+            return 0;
+        }
+        if(ply > 0){
+            if(position.isRepetition() || (position.getHalfmoveClock() >= 100)){
+                return 0;
+            }
+            if(ply >= MAX_PLY){
+                return Evaluation.evaluate(position);
+            }
+            int value = probeTables();
+            if(value != Tablebase.MISS){
+                return tablebaseScore(value, ply);
+            }
+        }
+
+        long key = position.getKey();
+        long entry = tt.probe(key);
+        int ttMove = Move.NONE;
+        if(entry != TranspositionTable.MISS){
+            ttMove = TranspositionTable.move(entry);
+            if((ply > 0) && (TranspositionTable.depth(entry) >= depth)){
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if((bound == TranspositionTable.EXACT)
+                        || ((bound == TranspositionTable.LOWER) && (score >= beta))
+                        || ((bound == TranspositionTable.UPPER) && (score <= alpha))){
+                    return score;
+                }
+            }
+        }
+
+        MoveList list = lists[ply];
+        list.clear();
+        position.generateLegalMoves(list);
+        if(list.isEmpty()){
+            return inCheck ? -MATE + ply : 0;
+        }
+        order.score(position, list, ttMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for(int i = 0; i < list.size(); i++){
+            int move = order.pick(list, i, ply);
+            position.makeMove(move);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if(stopped){
+                return 0;
+            }
+            if(score > best){
+                best = score;
+                bestMove = move;
+                if(score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                    if(alpha >= beta){
+                        order.cutoff(position, list, i, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if(best >= beta){
+            bound = TranspositionTable.LOWER;
+        } else if(best > originalAlpha){
+            bound = TranspositionTable.EXACT;
+        } else{
+            bound = TranspositionTable.UPPER;
+            bestMove = Move.NONE;
+        }
+        tt.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    // searches captures and promotions until the position is quiet, so the evaluation isn't taken mid-exchange
+    private int quiesce(int alpha, int beta, int ply){
+        pvLength[ply] = 0;
+        if(countNode()){
+            return 0;
+        }
+        int value = probeTables();
+        if(value != Tablebase.MISS){
+            return tablebaseScore(value, ply);
+        }
+        int standPat = Evaluation.evaluate(position);
+        if((standPat >= beta) || (ply >= MAX_PLY)){
+            return standPat;
+        }
+        if(standPat > alpha){
+            alpha = standPat;
+        }
+
+        MoveList list = lists[ply];
+        list.clear();
+        position.generateLegalMoves(list);
+        list.truncate(keepCaptures(list));
+        order.score(position, list, Move.NONE, ply);
+        for(int i = 0; i < list.size(); i++){
+            int move = order.pick(list, i, ply);
+            position.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if(stopped){
+                return 0;
+            }
+            if(score > alpha){
+                alpha = score;
+                updatePv(ply, move);
+                if(alpha >= beta){
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    // the value of the position in the endgame tables, or Tablebase.MISS
+    private int probeTables(){
+        if((tablebase == null) || (Long.bitCount(position.getOccupied()) > tablebase.getMaxPieces())){
+            return Tablebase.MISS;
+        }
+        return tablebase.probe(position, squares);
+    }
+
+    /**
+     * @param value a position's value in the endgame tables
+     * @param ply how far the position is from the root
+     * @return the score of the position for its side to move: a mate score if the mate is within MAX_PLY of the
+     * root, otherwise TABLEBASE_WIN less the distance, so that sooner wins still score higher
+     */
+    private static int tablebaseScore(int value, int ply){
+        if(value == Tablebase.DRAW){
+            return 0;
+        }
+        int distance = Tablebase.distance(value);
+        int score = (ply + distance < MAX_PLY) ? MATE - ply - distance : TABLEBASE_WIN - distance;
+        return Tablebase.isWin(value) ? score : -score;
+    }
+
+    // moves the captures and promotions in list to its front, in order, and returns how many there are
+    private static int keepCaptures(MoveList list){
+        int n = 0;
+        for(int i = 0; i < list.size(); i++){
+            int move = list.get(i);
+            if(Move.isCapture(move) || Move.isPromotion(move)){
+                list.set(n++, move);
+            }
+        }
+        return n;
+    }
+
+    // counts a node and returns true if the search has to stop
+    private boolean countNode(){
+        nodes++;
+        if((nodes % CHECK_EVERY) == 0){
+            progress = nodes;
+            if(((maxNodes > 0) && (nodes >= maxNodes)) || ((deadline != 0) && (System.nanoTime() >= deadline))){
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    // makes move followed by the best line from ply + 1 the best line from ply
+    private void updatePv(int ply, int move){
+        pv[ply][0] = move;
+        int length = (ply < MAX_PLY) ? pvLength[ply + 1] : 0;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, Math.min(length, MAX_PLY - 1));
+        pvLength[ply] = Math.min(length, MAX_PLY - 1) + 1;
+    }
+
+    // mate scores are stored relative to the position rather than the root
+    private static int toTable(int score, int ply){
+        if(score >= MATE - MAX_PLY){
+            return score + ply;
+        } else if(score <= -(MATE - MAX_PLY)){
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply){
+        if(score >= MATE - MAX_PLY){
+            return score - ply;
+        } else if(score <= -(MATE - MAX_PLY)){
+            return score + ply;
+        }
+        return score;
+    }
+}
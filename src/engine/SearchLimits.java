@@ -0,0 +1,64 @@
+package engine;
+
+/**
+ * when a search should stop: after a depth, a time or a number of nodes, whichever comes first
+ * a limit of 0 means no limit of that kind; a search always finishes depth 1 so it has a move to return
+ */
+public class SearchLimits {
+
+    private final int depth;
+    private final long timeMillis;
+    private final long nodes;
+
+    private static final int MOVES_TO_GO = 30;    // the moves left to plan for when the clock doesn't say
+    private static final long CLOCK_MARGIN = 50;  // milliseconds kept back for the time it takes to reply
+
+    public SearchLimits(int depth, long timeMillis, long nodes){
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+        this.nodes = nodes;
+    }
+
+    // searches to depth plies
+    public static SearchLimits depth(int depth){
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    // searches for timeMillis milliseconds
+    public static SearchLimits time(long timeMillis){
+        return new SearchLimits(0, timeMillis, 0);
+    }
+
+    // searches about nodes nodes
+    public static SearchLimits nodes(long nodes){
+        return new SearchLimits(0, 0, nodes);
+    }
+
+    /**
+     * searches for a share of the time left on a clock
+     * @param remainingMillis the time left on the side to move's clock
+     * @param incrementMillis the time added to it after each move
+     * @param movesToGo the moves until the next time control, 0 if the time left is for the rest of the game
+     */
+    public static SearchLimits clock(long remainingMillis, long incrementMillis, int movesToGo){
+        long share = remainingMillis / ((movesToGo > 0) ? movesToGo : MOVES_TO_GO) + incrementMillis * 3 / 4;
+        return time(Math.max(1, Math.min(share, remainingMillis - CLOCK_MARGIN)));
+    }
+
+    // searches until stopped
+    public static SearchLimits infinite(){
+        return new SearchLimits(0, 0, 0);
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getTimeMillis(){
+        return timeMillis;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+}
@@ -0,0 +1,13 @@
+package engine;
+
+/**
+ * told about each iteration a search completes, eg. to print its progress
+ * called on the searching thread, so it should return quickly
+ */
+public interface SearchListener {
+
+    /**
+     * @param result the best move, score and line of the iteration just completed, with the nodes and time so far
+     */
+    void iterationFinished(SearchResult result);
+}
@@ -0,0 +1,92 @@
+package engine;
+
+import model.Move;
+
+/**
+ * the outcome of the deepest iteration a search completed
+ */
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+    private final int[] pv;
+
+    /**
+     * @param bestMove the move to play encoded by Move, Move.NONE if the side to move has no legal move
+     * @param score the score in centipawns from the side to move's point of view, see Search.isMate()
+     * @param depth the depth of the last completed iteration
+     * @param nodes the nodes searched in total
+     * @param timeMillis the time the search took
+     * @param pv the principal variation, starting with bestMove
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] pv){
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.pv = pv.clone();
+    }
+
+    public int getBestMove(){
+        return bestMove;
+    }
+
+    public int getScore(){
+        return score;
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public long getTimeMillis(){
+        return timeMillis;
+    }
+
+    public int[] getPrincipalVariation(){
+        return pv.clone();
+    }
+
+    // the nodes searched per second
+    public long getNodesPerSecond(){
+        return (timeMillis > 0) ? (nodes * 1000 / timeMillis) : nodes * 1000;
+    }
+
+    /**
+     * the effective branching factor, the b with b^depth = nodes; the better the move ordering the closer it gets
+     * to the square root of the number of legal moves
+     */
+    public double getBranchingFactor(){
+        return (depth > 0) ? Math.pow(nodes, 1.0 / depth) : 0;
+    }
+
+    /**
+     * @return the score as "cp" and centipawns, or "mate" and the moves to mate (negative if getting mated)
+     */
+    public String getScoreString(){
+        if(Search.isMate(score)){
+            int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+            return "mate " + ((score > 0) ? moves : -moves);
+        }
+        return "cp " + score;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(depth).append(" score ").append(getScoreString());
+        sb.append(" nodes ").append(nodes).append(" time ").append(timeMillis).append(" pv");
+        for(int move : pv){
+            sb.append(' ').append(Move.toString(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package engine;
+
+import model.Move;
+
+import java.util.Arrays;
+
+/**
+ * a fixed size hash table of search results, shared by any number of search threads without locks
+ *
+ * each entry is two longs in one long[]: the data (move, score, depth, bound and search generation) and the
+ * position's Zobrist key XORed with the data; two threads writing the same slot at once can tear an entry, but a
+ * torn entry no longer XORs back to its key, so probe() treats it as a miss instead of returning another
+ * position's result
+ */
+public class TranspositionTable {
+
+    // bound of a stored score
+    public static final int EXACT = 1; // the score is exact
+    public static final int LOWER = 2; // the search failed high, the score is at least this
+    public static final int UPPER = 3; // the search failed low, the score is at most this
+
+    // probe() returns MISS when the position isn't stored; stored data is never 0 as bound is never 0
+    public static final long MISS = 0L;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int MOVE_BITS = 20;
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int GENERATION_SHIFT = 46;
+
+    private final long[] table;
+    private final int mask; // entry count - 1
+    private volatile int generation;
+
+    /**
+     * @param megabytes the size of the table, at least 1; the entry count is rounded down to a power of 2
+     */
+    public TranspositionTable(int megabytes){
+        long entries = Long.highestOneBit(Math.max(megabytes, 1) * 1024L * 1024L / ENTRY_BYTES);
+        entries = Math.min(entries, 1L << 29);
+        table = new long[(int) entries * 2];
+        mask = (int) entries - 1;
+        generation = 0;
+    }
+
+    // the number of entries the table holds
+    public int capacity(){
+        return mask + 1;
+    }
+
+    /**
+     * empties the table; must not be called while a search is using it
+     */
+    public void clear(){
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /**
+     * starts a new search generation, so entries left from earlier searches are replaced first
+     */
+    public void newSearch(){
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * @param key the Zobrist key of the position
+     * @return the data stored for key, to read with move(), score(), depth() and bound(), or MISS
+     */
+    public long probe(long key){
+        int i = ((int) key & mask) << 1;
+        long data = table[i + 1];
+        if((data != MISS) && ((table[i] ^ data) == key)){
+            return data;
+        }
+        return MISS;
+    }
+
+    /**
+     * stores a search result for key
+     * the slot is kept for its current position if that was searched deeper in this generation
+     * @param key the Zobrist key of the position
+     * @param move the best move found, Move.NONE if there is none
+     * @param score the score, which must fit in 16 bits
+     * @param depth the depth searched, from 0 to 255
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound){
+        int i = ((int) key & mask) << 1;
+        long old = table[i + 1];
+        boolean samePosition = (table[i] ^ old) == key;
+        if((old != MISS) && (generation(old) == generation) && (depth(old) > depth) && !samePosition){
+            return;
+        }
+        // keep the old best move if this search didn't find one
+        if((move == Move.NONE) && samePosition){
+            move = move(old);
+        }
+        long data = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    /**
+     * @return the number of entries out of a thousand sampled that hold a result from the current search
+     */
+    public int hashfull(){
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for(int i = 0; i < sample; i++){
+            long data = table[(i << 1) + 1];
+            if((data != MISS) && (generation(data) == generation)){
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data){
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long data){
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data){
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int) ((data >>> BOUND_SHIFT) & 3);
+    }
+
+    private static int generation(long data){
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+}
@@ -0,0 +1,14 @@
+package exceptions;
+
+/**
+ * thrown when a FEN string cannot be read as a position
+ */
+public class InvalidFenException extends Exception {
+    public InvalidFenException(){
+        super();
+    }
+
+    public InvalidFenException(String msg){
+        super(msg);
+    }
+}
@@ -0,0 +1,14 @@
+package exceptions;
+
+/**
+ * thrown when there is no move left to undo
+ */
+public class InvalidUndoException extends Exception {
+    public InvalidUndoException(){
+        super();
+    }
+
+    public InvalidUndoException(String msg){
+        super(msg);
+    }
+}
@@ -20,12 +20,12 @@ public class Bishop extends Piece {
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
 
         allMoves.addAll(scanDiagonals());
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
         this.allMoves = allMoves;
     }
@@ -0,0 +1,166 @@
+package model;
+
+/**
+ * static helpers for 64-bit bitboards
+ * square indices run from a1 = 0 to h8 = 63 (rank-major), so square(row, column) maps the Square[][] grid
+ * (row 0 is rank 8) onto a bit index
+ */
+public final class Bitboard {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    // precomputed attack sets for the non-sliding pieces
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64]; // [colour][square]
+
+    // squares strictly between two squares on a shared rank, file or diagonal, and the whole line through them
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        for(int sq = 0; sq < 64; sq++){
+            long b = 1L << sq;
+            KNIGHT_ATTACKS[sq] = knightSpan(b);
+            KING_ATTACKS[sq] = kingSpan(b);
+            PAWN_ATTACKS[Position.WHITE][sq] = ((b << 7) & ~FILE_H) | ((b << 9) & ~FILE_A);
+            PAWN_ATTACKS[Position.BLACK][sq] = ((b >>> 9) & ~FILE_H) | ((b >>> 7) & ~FILE_A);
+        }
+        for(int sq = 0; sq < 64; sq++){
+            for(int[] d : DIRECTIONS){
+                long line = (1L << sq) | ray(sq, d[0], d[1]) | ray(sq, -d[0], -d[1]);
+                long between = 0L;
+                int rank = (sq >>> 3) + d[0];
+                int file = (sq & 7) + d[1];
+                while((rank >= 0) && (rank < 8) && (file >= 0) && (file < 8)){
+                    int to = (rank << 3) | file;
+                    BETWEEN[sq][to] = between;
+                    LINE[sq][to] = line;
+                    between |= 1L << to;
+                    rank += d[0];
+                    file += d[1];
+                }
+            }
+        }
+    }
+
+    private Bitboard(){}
+
+    /**
+     * @param row the 0-indiced row of the square in Board.getSquares() (row 0 is rank 8)
+     * @param column the 0-indiced column of the square
+     * @return the bit index of the square
+     */
+    public static int square(int row, int column){
+        return ((7 - row) << 3) | column;
+    }
+
+    public static int square(Square s){
+        return square(s.getRow(), s.getColumn());
+    }
+
+    // the Square[][] row of bit index sq
+    public static int row(int sq){
+        return 7 - (sq >>> 3);
+    }
+
+    // the Square[][] column of bit index sq
+    public static int column(int sq){
+        return sq & 7;
+    }
+
+    public static long bit(int sq){
+        return 1L << sq;
+    }
+
+    /**
+     * @param sq a bit index
+     * @return the coordinate of sq, eg. "e4"
+     */
+    public static String name(int sq){
+        return "" + (char) ('a' + (sq & 7)) + (char) ('1' + (sq >>> 3));
+    }
+
+    public static long knightAttacks(int sq){
+        return KNIGHT_ATTACKS[sq];
+    }
+
+    public static long kingAttacks(int sq){
+        return KING_ATTACKS[sq];
+    }
+
+    /**
+     * @param side true if white, false if black
+     * @param sq the square of the pawn
+     * @return the (up to 2) squares a pawn of side on sq attacks
+     */
+    public static long pawnAttacks(boolean side, int sq){
+        return PAWN_ATTACKS[Position.colour(side)][sq];
+    }
+
+    /**
+     * returns all squares a rook on sq attacks given the occupied squares occ
+     * the first occupied square in each direction is included
+     */
+    public static long rookAttacks(int sq, long occ){
+        return Magic.rookAttacks(sq, occ);
+    }
+
+    /**
+     * returns all squares a bishop on sq attacks given the occupied squares occ
+     * the first occupied square in each direction is included
+     */
+    public static long bishopAttacks(int sq, long occ){
+        return Magic.bishopAttacks(sq, occ);
+    }
+
+    public static long queenAttacks(int sq, long occ){
+        return Magic.rookAttacks(sq, occ) | Magic.bishopAttacks(sq, occ);
+    }
+
+    /**
+     * @return the squares strictly between a and b if they share a rank, file or diagonal, otherwise 0
+     */
+    public static long between(int a, int b){
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * @return every square on the rank, file or diagonal through a and b (edge to edge), or 0 if they share none
+     */
+    public static long line(int a, int b){
+        return LINE[a][b];
+    }
+
+    // the squares from sq (exclusive) to the board edge stepping rankStep and fileStep at a time
+    private static long ray(int sq, int rankStep, int fileStep){
+        long ray = 0L;
+        int rank = (sq >>> 3) + rankStep;
+        int file = (sq & 7) + fileStep;
+        while((rank >= 0) && (rank < 8) && (file >= 0) && (file < 8)){
+            ray |= 1L << ((rank << 3) | file);
+            rank += rankStep;
+            file += fileStep;
+        }
+        return ray;
+    }
+
+    private static long knightSpan(long b){
+        long l1 = (b >>> 1) & ~FILE_H;
+        long l2 = (b >>> 2) & ~(FILE_H | (FILE_H >>> 1));
+        long r1 = (b << 1) & ~FILE_A;
+        long r2 = (b << 2) & ~(FILE_A | (FILE_A << 1));
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    private static long kingSpan(long b){
+        long row = b | ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+        return (row | (row << 8) | (row >>> 8)) & ~b;
+    }
+}
@@ -2,7 +2,10 @@ package model;
 
 import exceptions.*;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -10,10 +13,13 @@ import java.util.List;
  */
 public class Board {
     // represents a square 8x8 chess board
-    // TODO: stalemate and UNDO
+    // TODO: stalemate
 
     public static final int BOARD_DIMENSION = 8;
 
+    // the promote() input for each promotion UnitCost ordinal
+    private static final String[] PROMOTION_INPUTS = {"", "q", "r", "b", "k"};
+
     private Square[][] board;
     private static Board theBoard;
     private boolean currentTurn; // true if white, false if black
@@ -21,14 +27,29 @@ public class Board {
     private int turnCount;
     private List<Piece> whitePieces;
     private List<Piece> blackPieces;
+    private int[] teamCost; // [Position colour], the cost of every piece in whitePieces or blackPieces
     private Pawn promotable;
     private int stalemateCounter;
+    private Position position; // bitboard view of board, kept in sync by squareChanged
+    private Deque<TurnRecord> history;
+    private String startFen; // the position the game started from, which getMoves() are played from
+    private MoveList legalMoves; // legal moves of the current player, regenerated when a square changes
+    private boolean legalMovesValid;
 
     /**
-     * constructs the board
+     * constructs a board set up for a new game
+     * boards are independent of each other, so any number of games can be played at once as long as each board
+     * is only used by one thread at a time
      */
-    private Board(){
+    public Board(){
+        this(null);
+    }
+
+    // sets up a new game if setup is null, otherwise the pieces and state of setup
+    private Board(Position setup){
         board = new Square[8][8];
+        position = new Position();
+        legalMoves = new MoveList();
         whitePieces = new ArrayList<Piece>();
         blackPieces = new ArrayList<Piece>();
         currentTurn = true;
@@ -36,23 +57,65 @@ public class Board {
         inCheck = false;
         promotable = null;
         stalemateCounter = 0;
-        initializeBoard();
+        history = new ArrayDeque<TurnRecord>();
+        if(setup == null){
+            initializeBoard();
+        } else{
+            initializeBoard(setup);
+        }
+        teamCost = new int[]{teamCost(whitePieces), teamCost(blackPieces)};
+        syncPositionState();
+        inCheck = position.isInCheck(currentTurn);
+        startFen = (setup == null) ? Position.START_FEN : position.toFen();
+    }
+
+    /**
+     * sets up a board from Forsyth-Edwards Notation without playing any moves
+     * Kings and Rooks are unmoved only where the castling rights allow it, pawns are unmoved on their starting
+     * rank, the pawn behind the en passant square double jumped last turn, the halfmove clock becomes the
+     * stalemate counter and the fullmove number and side to move give the turn number
+     * @param fen the FEN string, eg. Position.START_FEN
+     * @return the board it describes
+     * @throws InvalidFenException thrown if fen is not well formed, a side doesn't have exactly one King, or a
+     * pawn is on the first or last rank
+     */
+    public static Board fromFen(String fen) throws InvalidFenException {
+        Position setup = Position.fromFen(fen);
+        for(boolean side : new boolean[]{true, false}){
+            if(Long.bitCount(setup.getPieces(side, UnitCost.KING)) != 1){
+                throw new InvalidFenException("Each side must have one King: " + fen);
+            }
+            if((setup.getPieces(side, UnitCost.PAWN) & (Bitboard.RANK_1 | Bitboard.RANK_8)) != 0){
+                throw new InvalidFenException("Pawns can't be on the first or last rank: " + fen);
+            }
+        }
+        return new Board(setup);
     }
 
     /**
-     * if there is no instance of theBoard, create one
-     * else return the one and only instance of Board
-     * @return the one and only instance of Board
+     * @return the board in Forsyth-Edwards Notation, which fromFen() reads back into the same position
      */
-    public static Board getInstance(){
+    public String toFen(){
+        syncPositionState();
+        return position.toFen();
+    }
+
+    /**
+     * if there is no default board, create one
+     * else return the default board
+     * the default board is a convenience for callers that only ever play one game; pieces always use the board
+     * they were placed on
+     * @return the default instance of Board
+     */
+    public static synchronized Board getInstance(){
         if(theBoard == null){
             theBoard = new Board();
         }
         return theBoard;
     }
 
-    // deletes the board
-    public static void deleteBoard(){
+    // deletes the default board
+    public static synchronized void deleteBoard(){
         theBoard = null;
     }
 
@@ -81,10 +144,22 @@ public class Board {
         return blackPieces;
     }
 
-    // increments stalemate counter by 1
+    public Position getPosition(){
+        return position;
+    }
+
+    /**
+     * @return the Zobrist key of the board's position, which changes with every move, castle, en passant and
+     * promotion and is the same whenever the same position comes up again
+     */
+    public long getZobristKey(){
+        return position.getKey();
+    }
+
+    // increments stalemate counter by 1; a board set up from a FEN may start at or past 50 already
     void incStalemateCounter() throws StalemateException {
         stalemateCounter++;
-        if(stalemateCounter == 50){
+        if(stalemateCounter >= 50){
             throw new StalemateException("Stalemate!");
         }
     }
@@ -95,6 +170,32 @@ public class Board {
     }
 
 
+    /**
+     * @param side true if white, false if black
+     * @return the sum of the costs of side's pieces still on the board
+     */
+    public int getMaterial(boolean side){
+        return position.getMaterial(side);
+    }
+
+    /**
+     * the cost of side's graveyard without walking it: the pieces side has ever had, less the promoted pawns, cost
+     * teamCost, and the ones still on the board cost position's material
+     * @param side true if white, false if black
+     * @return the sum of the costs of the pieces in getSideGraveyard(side)
+     */
+    public int getGraveyardCost(boolean side){
+        return teamCost[Position.colour(side)] - position.getMaterial(side);
+    }
+
+    private static int teamCost(List<Piece> pieces){
+        int cost = 0;
+        for(Piece p : pieces){
+            cost += p.getCost();
+        }
+        return cost;
+    }
+
     /**
      * returns a list of all eliminated pieces for side side
      * @param side the side whose eliminated pieces we are interested in
@@ -141,6 +242,7 @@ public class Board {
         promotable = updatePromotable();
         currentTurn = !currentTurn;
         turnCount++;
+        syncPositionState();
         updateOpposingTeam();
         check();
         updateCurrentTeam();
@@ -149,6 +251,300 @@ public class Board {
         }
     }
 
+    /**
+     * copies the side to move, castling rights, en passant square and stalemate counter of the game into the
+     * position so moves tried on the bitboards follow the same rules as the pieces
+     */
+    private void syncPositionState(){
+        position.setState(currentTurn, castlingRights(), enPassantSquare(), stalemateCounter, (turnCount + 1) / 2);
+        legalMovesValid = false;
+    }
+
+    /**
+     * @return every legal move of the current player encoded by Move, generated once per position
+     */
+    public MoveList getLegalMoves(){
+        if(!legalMovesValid){
+            syncPositionState();
+            legalMoves.clear();
+            position.generateLegalMoves(legalMoves);
+            legalMovesValid = true;
+        }
+        return legalMoves;
+    }
+
+    /**
+     * @param p a piece of the current player
+     * @return a bitboard of every square p can legally move to
+     */
+    long legalTargets(Piece p){
+        MoveList moves = getLegalMoves();
+        int from = Bitboard.square(p.getSquare());
+        long targets = 0L;
+        for(int i = 0; i < moves.size(); i++){
+            int move = moves.get(i);
+            if(Move.from(move) == from){
+                targets |= Bitboard.bit(Move.to(move));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * @return the castling rights given by which Kings and Rooks are still unmoved on their starting squares
+     */
+    private int castlingRights(){
+        int rights = 0;
+        if(isUnmovedKing(board[7][4], true)){
+            if(isUnmovedRook(board[7][7], true)){
+                rights |= Position.WHITE_KINGSIDE;
+            }
+            if(isUnmovedRook(board[7][0], true)){
+                rights |= Position.WHITE_QUEENSIDE;
+            }
+        }
+        if(isUnmovedKing(board[0][4], false)){
+            if(isUnmovedRook(board[0][7], false)){
+                rights |= Position.BLACK_KINGSIDE;
+            }
+            if(isUnmovedRook(board[0][0], false)){
+                rights |= Position.BLACK_QUEENSIDE;
+            }
+        }
+        return rights;
+    }
+
+    private boolean isUnmovedKing(Square s, boolean side){
+        Piece p = s.getPiece();
+        return (p != null) && (p.getSide() == side) && p.getUnitCost().equals(UnitCost.KING)
+                && !((King) p).getHasMoved();
+    }
+
+    private boolean isUnmovedRook(Square s, boolean side){
+        Piece p = s.getPiece();
+        return (p != null) && (p.getSide() == side) && p.getUnitCost().equals(UnitCost.ROOK)
+                && !((Rook) p).getHasMoved();
+    }
+
+    /**
+     * @return the square behind a pawn of the previous player that double jumped last turn, -1 if there is none
+     */
+    private int enPassantSquare(){
+        List<Piece> pieces;
+        if(currentTurn){
+            pieces = blackPieces;
+        } else{
+            pieces = whitePieces;
+        }
+        for(Piece p : pieces){
+            if(!p.isEliminated() && p.getUnitCost().equals(UnitCost.PAWN)
+                    && (((Pawn) p).getTurnDoubleJumped() + 1 == turnCount)){
+                int sq = Bitboard.square(p.getSquare());
+                return p.getSide() ? sq - 8 : sq + 8;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * remembers everything the move of mover to toSquare is about to change so undo() can take it back, and the
+     * key of the position it leaves so searches of the board see the game's earlier positions
+     * called by the pieces once a move has been validated, before anything is moved
+     * @param mover the piece about to move
+     * @param toSquare the square it moves to
+     */
+    void recordTurn(Piece mover, Square toSquare){
+        TurnRecord r = new TurnRecord();
+        Square from = mover.getSquare();
+        r.move = position.toMove(Bitboard.square(from), Bitboard.square(toSquare), 0);
+        r.mover = mover;
+        r.from = from;
+        r.to = toSquare;
+        r.captured = toSquare.getPiece();
+        r.capturedSquare = toSquare;
+        UnitCost u = mover.getUnitCost();
+        if(u.equals(UnitCost.PAWN)){
+            Pawn pawn = (Pawn) mover;
+            r.moverHasMoved = pawn.getHasMoved();
+            r.moverTurnDoubleJumped = pawn.getTurnDoubleJumped();
+            if((r.captured == null) && (from.getColumn() != toSquare.getColumn())){
+                r.capturedSquare = board[from.getRow()][toSquare.getColumn()];
+                r.captured = r.capturedSquare.getPiece();
+            }
+        } else if(u.equals(UnitCost.KING)){
+            r.moverHasMoved = ((King) mover).getHasMoved();
+            int columnChange = toSquare.getColumn() - from.getColumn();
+            if((columnChange == 2) || (columnChange == -2)){
+                if(columnChange > 0){
+                    r.rookFrom = board[from.getRow()][7];
+                } else{
+                    r.rookFrom = board[from.getRow()][0];
+                }
+                r.castledRook = (Rook) r.rookFrom.getPiece();
+            }
+        } else if(u.equals(UnitCost.ROOK)){
+            r.moverHasMoved = ((Rook) mover).getHasMoved();
+        }
+        r.currentTurn = currentTurn;
+        r.turnCount = turnCount;
+        r.stalemateCounter = stalemateCounter;
+        r.inCheck = inCheck;
+        r.promotable = promotable;
+        history.push(r);
+        position.pushHistory();
+    }
+
+    /**
+     * @return the last move made with Piece.move() encoded by Move, including the piece it promoted to if a
+     * promotion has been chosen, or Move.NONE if no move has been made
+     */
+    public int getLastMove(){
+        if(history.isEmpty()){
+            return Move.NONE;
+        }
+        return history.peek().move;
+    }
+
+    /**
+     * @return the Forsyth-Edwards Notation of the position the game started from
+     */
+    public String getStartFen(){
+        return startFen;
+    }
+
+    /**
+     * a pawn move still waiting for its promotion piece is left out, since it isn't a whole move yet
+     * @return every move made since the game started, encoded by Move, in the order they were played
+     */
+    public int[] getMoves(){
+        int n = history.size() - ((promotable != null) ? 1 : 0);
+        int[] moves = new int[n];
+        Iterator<TurnRecord> it = history.descendingIterator();
+        for(int i = 0; i < n; i++){
+            moves[i] = it.next().move;
+        }
+        return moves;
+    }
+
+    /**
+     * @return the result of the game as PGN writes it: "1-0" or "0-1" if a side is checkmated, "1/2-1/2" if the
+     * current player is stalemated or the stalemate counter has run out, otherwise "*" for a game in progress
+     */
+    public String getResult(){
+        if((promotable == null) && getLegalMoves().isEmpty()){
+            if(position.isInCheck(currentTurn)){
+                return currentTurn ? "0-1" : "1-0";
+            }
+            return "1/2-1/2";
+        }
+        if(stalemateCounter >= 50){
+            return "1/2-1/2";
+        }
+        return "*";
+    }
+
+    /**
+     * makes move, encoded by Move, with the piece on its from square, then promotes to the move's promotion piece
+     * if the move made a pawn promotable
+     * @param move the move to make
+     * @throws InvalidMoveException thrown if move is Move.NONE, there is no piece on its from square or the piece
+     * cannot move to its to square
+     * @throws InvalidTurnException thrown if it's not the moving piece's side's turn
+     * @throws CheckmateException thrown if board is in checkmate
+     * @throws StalemateException thrown if board is in stalemate
+     */
+    public void move(int move) throws InvalidMoveException, InvalidTurnException, InvalidCoordinateException,
+            CheckmateException, StalemateException {
+        if(move == Move.NONE){
+            throw new InvalidMoveException("Not a move");
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece p = board[Bitboard.row(from)][Bitboard.column(from)].getPiece();
+        if(p == null){
+            throw new InvalidMoveException("There is no unit at this square");
+        }
+        p.move(board[Bitboard.row(to)][Bitboard.column(to)]);
+        if(Move.isPromotion(move) && (promotable != null)){
+            try {
+                promote(PROMOTION_INPUTS[Move.promotion(move)]);
+            } catch (InvalidPromotionException | InvalidPromotionInputException e) {
+                throw new ProgrammerErrorException();
+            }
+        }
+    }
+
+    /**
+     * takes back the last move made with Piece.move(), including a promotion chosen after it, and restores the
+     * turn, check and stalemate state from before the move
+     * @throws InvalidUndoException if no move has been made
+     */
+    public void undo() throws InvalidUndoException {
+        if(history.isEmpty()){
+            throw new InvalidUndoException("There is no move to undo.");
+        }
+        TurnRecord r = history.pop();
+        position.popHistory();
+
+        if(r.promotedTo != null){
+            List<Piece> pieces;
+            if(r.promotedPawn.getSide()){
+                pieces = whitePieces;
+            } else{
+                pieces = blackPieces;
+            }
+            Square promotionSquare = r.promotedTo.getSquare();
+            pieces.remove(indexOfPiece(pieces, r.promotedTo));
+            pieces.add(r.promotedIndex, r.promotedPawn);
+            teamCost[Position.colour(r.promotedPawn.getSide())] += r.promotedPawn.getCost() - r.promotedTo.getCost();
+            r.promotedPawn.setEliminated(false);
+            r.promotedPawn.setSquare(promotionSquare);
+        }
+
+        movePiece(r.mover, r.from);
+        if(r.castledRook != null){
+            movePiece(r.castledRook, r.rookFrom);
+            r.castledRook.setHasMoved(false);
+        }
+        if(r.captured != null){
+            r.captured.setEliminated(false);
+            r.captured.setSquare(r.capturedSquare);
+        }
+
+        UnitCost u = r.mover.getUnitCost();
+        if(u.equals(UnitCost.PAWN)){
+            ((Pawn) r.mover).setHasMoved(r.moverHasMoved);
+            ((Pawn) r.mover).setTurnDoubleJumped(r.moverTurnDoubleJumped);
+        } else if(u.equals(UnitCost.KING)){
+            ((King) r.mover).setHasMoved(r.moverHasMoved);
+        } else if(u.equals(UnitCost.ROOK)){
+            ((Rook) r.mover).setHasMoved(r.moverHasMoved);
+        }
+
+        currentTurn = r.currentTurn;
+        turnCount = r.turnCount;
+        stalemateCounter = r.stalemateCounter;
+        inCheck = r.inCheck;
+        promotable = r.promotable;
+        syncPositionState();
+        updateOpposingTeam();
+        updateCurrentTeam();
+    }
+
+    /**
+     * returns the index of p in pieces by identity, as Piece.equals() can't tell apart eliminated pieces of the
+     * same type
+     * @return the index of p, or -1 if p is not in pieces
+     */
+    private int indexOfPiece(List<Piece> pieces, Piece p){
+        for(int i = 0; i < pieces.size(); i++){
+            if(pieces.get(i) == p){
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * @return returns the one promotable pawn if it exists, otherwise returns null
      */
@@ -207,6 +603,73 @@ public class Board {
         currentTurn = true;
     }
 
+    /**
+     * places the pieces of setup and takes on its side to move, castling rights, en passant square and counters
+     */
+    private void initializeBoard(Position setup){
+        generateSquares();
+        currentTurn = setup.getSideToMove();
+        turnCount = setup.getFullmoveNumber() * 2 - (currentTurn ? 1 : 0);
+        stalemateCounter = setup.getHalfmoveClock();
+        int rights = setup.getCastlingRights();
+        UnitCost[] units = UnitCost.values();
+        for(int sq = 0; sq < 64; sq++){
+            int code = setup.pieceAt(sq);
+            if(code == Position.EMPTY){
+                continue;
+            }
+            boolean side = code < 6;
+            Square s = board[Bitboard.row(sq)][Bitboard.column(sq)];
+            Piece p;
+            switch(units[code % 6]){
+                case KING:
+                    King king = new King(side, s);
+                    int kingRights = castlingRight(side, side ? 0 : 56) | castlingRight(side, side ? 7 : 63);
+                    king.setHasMoved((sq != (side ? 4 : 60)) || ((rights & kingRights) == 0));
+                    p = king;
+                    break;
+                case QUEEN:
+                    p = new Queen(side, s);
+                    break;
+                case ROOK:
+                    Rook rook = new Rook(side, s);
+                    rook.setHasMoved((rights & castlingRight(side, sq)) == 0);
+                    p = rook;
+                    break;
+                case BISHOP:
+                    p = new Bishop(side, s);
+                    break;
+                case KNIGHT:
+                    p = new Knight(side, s);
+                    break;
+                default:
+                    Pawn pawn = new Pawn(side, s);
+                    pawn.setHasMoved(Bitboard.row(sq) != (side ? 6 : 1));
+                    int ep = setup.getEnPassantSquare();
+                    if((ep >= 0) && (side != currentTurn) && (sq == (side ? ep + 8 : ep - 8))){
+                        pawn.setTurnDoubleJumped(turnCount - 1);
+                    }
+                    p = pawn;
+                    break;
+            }
+            if(side){
+                whitePieces.add(p);
+            } else{
+                blackPieces.add(p);
+            }
+        }
+    }
+
+    // the castling right an unmoved Rook of side on sq keeps, 0 if sq isn't one of side's corners
+    private static int castlingRight(boolean side, int sq){
+        if(sq == (side ? 7 : 63)){
+            return side ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        } else if(sq == (side ? 0 : 56)){
+            return side ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        }
+        return 0;
+    }
+
     /**
      * creates and sets the white pieces
      */
@@ -251,14 +714,14 @@ public class Board {
         for(int i = 0; i < 8; i++){
             for(int j = 0; j < 8; j++){
                 if(white){
-                    board[i][j] = new Square(true, i, j);
+                    board[i][j] = new Square(this, true, i, j);
                     if(j == 7){
                         break;
                     }
                     white = false;
                     black = true;
                 } else if (black){
-                    board[i][j] = new Square(false, i, j);
+                    board[i][j] = new Square(this, false, i, j);
                     if(j == 7){
                         break;
                     }
@@ -272,6 +735,23 @@ public class Board {
         }
     }
 
+    /**
+     * called by a square of this board whenever its piece changes so the bitboards stay in sync with the grid
+     * @param s the square that changed
+     * @param oldPiece the piece previously on s, or null
+     * @param newPiece the piece now on s, or null
+     */
+    void squareChanged(Square s, Piece oldPiece, Piece newPiece){
+        int sq = Bitboard.square(s);
+        legalMovesValid = false;
+        if(oldPiece != null){
+            position.remove(sq, oldPiece.getSide(), oldPiece.getUnitCost());
+        }
+        if(newPiece != null){
+            position.put(sq, newPiece.getSide(), newPiece.getUnitCost());
+        }
+    }
+
     /**
      * moves piece p from its original square to square s, and eliminates any piece originally on s
      * silently returns if p is null (as no piece is being moved)
@@ -357,176 +837,16 @@ public class Board {
      * @return true if King is in check, else false
      */
     public boolean check(){
-        boolean offence = !getCurrentPlayer();
-
-        List<Square> allPossibleMoves;
-
-        if(offence){
-            allPossibleMoves = getAllPossibleMoves(whitePieces);
-        } else{
-            allPossibleMoves = getAllPossibleMoves(blackPieces);
-        }
-
-        for(Square s : allPossibleMoves){
-            Piece p = s.getPiece();
-            if((p != null) && (p.getUnitCost().equals(UnitCost.KING)) &&
-                    (p.getSide() == getCurrentPlayer())){
-                inCheck = true;
-                return true;
-            }
-        }
-        inCheck = false;
-        return false;
-    }
-
-    /**
-     * gets all possible moves for all pieces in pieces that are still on the board (ie. their square isn't null)
-     * @param pieces the pieces to find all possible moves for
-     * @return a list of all possible moves in pieces
-     */
-    private List<Square> getAllPossibleMoves(List<Piece> pieces) {
-        List<Square> allSquares = new ArrayList<Square>();
-
-        for(Piece p : pieces){
-            if(!p.isEliminated()){
-                allSquares.addAll(p.getAllMoves());
-            }
-        }
-        return allSquares;
+        inCheck = position.isInCheck(getCurrentPlayer());
+        return inCheck;
     }
 
     /**
-     * returns true if the current turn's player has no possible move to remove the King from check
-     * @return true if King is in check, else false
+     * returns true if the current turn's player is in check and has no legal move
+     * @return true if King is in checkmate, else false
      */
     private boolean checkmate(){
-        if(!getInCheck()){
-            return false;
-        } else{
-            boolean currentPlayer = getCurrentPlayer();
-            //boolean stillCheck = false;
-            List<Piece> allPieces;
-
-            if(currentPlayer){
-                allPieces = whitePieces;
-            } else{
-                allPieces = blackPieces;
-            }
-
-            if(canEscapeFromCheck(allPieces)){
-                return false;
-            } else{
-                return true;
-            }
-        }
-    }
-
-    /**
-     * returns true if there exists a move to free the current King from check else false
-     * @param allPieces all pieces for the current player
-     * @return true if the King can be freed from check; else false
-     */
-    private boolean canEscapeFromCheck(List<Piece> allPieces) {
-
-        // if there exists a piece with moves available, it's not a checkmate
-        for(Piece p : allPieces){
-            if(!p.isEliminated()){
-                if(!p.getAllMoves().isEmpty()){
-                    return true;
-                }
-            }
-        }
-        return false;
-
-
-        // for each move in allPossibleMoves make the move
-        // check if the board is in check still
-        // reset the board to its original setting (returning units to their correct place and from the graveyard
-
-        /**
-        boolean canEscape = false;
-        for(Piece p : allPieces){
-            if(!p.isEliminated()) {
-                for(Square s : p.allMoves()){ // TODO: this implementation will not work for en passant as movePiece doesn't affect the pieces correctly
-                    Square originalSquare = p.getSquare();
-                    Piece maybeEliminated = s.getPiece();
-                    movePiece(p, s);
-                    if(!check()){
-                        canEscape = true;
-                    }
-                    movePiece(p, originalSquare);
-                    if(maybeEliminated != null){
-                        maybeEliminated.setEliminated(false);
-                        movePiece(maybeEliminated, s); // TODO may pose problems if we use observer pattern on "eliminate()" to change score
-                    }
-                    if(canEscape){
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-         **/
-    }
-
-    /**
-     * returns true if moving the King to s will put it in check else false
-     * @param king the king to move
-     * @param s the square to move to
-     * @return true if king gets in check by moving to s, else false
-     */
-    public boolean putInCheck(King king, Square s) {
-        assert(!getInCheck());
-        boolean riskyMove = false;
-        Square originalSquare = king.getSquare();
-        Piece maybeEliminated = s.getPiece();
-        movePiece(king, s);
-        updateOpposingTeam();
-        if(check()){
-            riskyMove = true;
-        }
-        movePiece(king, originalSquare);
-        if(maybeEliminated != null){
-            maybeEliminated.setEliminated(false);
-            movePiece(maybeEliminated, s); // TODO may pose problems if we use observer pattern on "eliminate()" to change score
-        }
-        updateOpposingTeam();
-        if(check()){
-            assert(false);
-        }
-        return riskyMove;
-    }
-
-    /**
-     * If moving p to s removes check, return true, else false
-     * @param p the piece to move
-     * @param s the square to move to
-     * @return true if moving p to s removes check, else false
-     */
-    public boolean canMoveEscapeFromCheck(Piece p, Square s){
-        //make the move
-        // check if the board is in check still
-        // reset the board to its original setting (returning units to their correct place and from the graveyard)
-        // TODO: this implementation will not work for en passant as movePiece doesn't affect the pieces correctly
-        assert(getInCheck());
-        boolean canEscape = false;
-        Square originalSquare = p.getSquare();
-        Piece maybeEliminated = s.getPiece();
-        movePiece(p, s);
-        updateOpposingTeam();
-        if(!check()){
-            canEscape = true;
-        }
-        movePiece(p, originalSquare);
-        if(maybeEliminated != null){
-            maybeEliminated.setEliminated(false);
-            movePiece(maybeEliminated, s); // TODO may pose problems if we use observer pattern on "eliminate()" to change score
-        }
-        updateOpposingTeam();
-        if(!check()){
-            assert(false);
-        }
-        return canEscape;
+        return getInCheck() && getLegalMoves().isEmpty();
     }
 
     /**
@@ -621,27 +941,38 @@ public class Board {
         boolean side = promotable.getSide();
         Square mySquare = promotable.getSquare();
 
+        List<Piece> pieces;
+        if(side){
+            pieces = whitePieces;
+        } else{
+            pieces = blackPieces;
+        }
+        // found before the promoted piece replaces the pawn on its square and eliminates it
+        int index = indexOfPiece(pieces, promotable);
+
         Piece promoted;
 
         if(tempString.equals("k")){
             promoted = new Knight(side, mySquare);
-        } else if(s.equals("b")){
+        } else if(tempString.equals("b")){
             promoted = new Bishop(side, mySquare);
-        } else if(s.equals("r")){
+        } else if(tempString.equals("r")){
             promoted = new Rook(side, mySquare);
         } else{
             promoted = new Queen(side, mySquare);
         }
 
-        if(side){
-            whitePieces.add(promoted);
-            whitePieces.remove(promotable);
-        } else{
-            blackPieces.add(promoted);
-            blackPieces.remove(promotable);
+        TurnRecord r = history.peek();
+        if(r != null){
+            r.move = Move.withPromotion(r.move, promoted.getUnitCost());
+            r.promotedPawn = promotable;
+            r.promotedTo = promoted;
+            r.promotedIndex = index;
         }
+        pieces.add(promoted);
+        pieces.remove(index);
+        teamCost[Position.colour(side)] += promoted.getCost() - promotable.getCost();
         promotable = null;
-        //TODO: scoreboard might get wonky after this as a pawn technically got eliminated
         // TODO: ensure that this occurs BEFORE board calls nextTurn() so everything updates
     }
 }
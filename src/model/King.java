@@ -21,6 +21,10 @@ public class King extends Piece {
         return hasMoved;
     }
 
+    void setHasMoved(boolean hasMoved){
+        this.hasMoved = hasMoved;
+    }
+
     /**
      * checks if the piece can move to that square and it's that piece's colour's turn
      * if both these conditions are met, moves the piece to that square otherwise throws InvalidMoveException
@@ -38,7 +42,7 @@ public class King extends Piece {
     public void move(Square toSquare) throws InvalidMoveException, InvalidTurnException,
             InvalidCoordinateException, CheckmateException, StalemateException {
         boolean isCastleSquare = castleSquares().contains(toSquare);
-        Board board = Board.getInstance();
+        Board board = getBoard();
         if(!(board.getCurrentPlayer() == getSide())){
             if(board.getCurrentPlayer()) {
                 throw new InvalidTurnException("Currently white's turn");
@@ -47,6 +51,7 @@ public class King extends Piece {
             }
         }
         if(getAllMoves().contains(toSquare)){
+            board.recordTurn(this, toSquare);
             //TODO: find a way to refactor this without copypasting so much code
             if(getUnitCost().equals(UnitCost.PAWN)){
                 board.resetStalemateCounter();
@@ -96,7 +101,7 @@ public class King extends Piece {
         Rook r;
         boolean side = getSide();
         int columnNum = toSquare.getColumn();
-        Board b = Board.getInstance();
+        Board b = getBoard();
 
         String row;
         String column;
@@ -122,46 +127,16 @@ public class King extends Piece {
      * an allied unit
      */
     private Set<Square> allAdjacentSquares(){
-        Set<Square> adjacents = new HashSet<Square>();
-
-        int row = mySquare.getRow();
-        int column = mySquare.getColumn();
-        Board theBoard = Board.getInstance();
-        Square[][] board = theBoard.getSquares();
-
-        try{
-            addSquareToSet(adjacents, board[row + 1][column + 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row + 1][column - 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row - 1][column + 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row - 1][column - 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row + 1][column]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row - 1][column]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row][column + 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try{
-            addSquareToSet(adjacents, board[row][column - 1]);
-        } catch (IndexOutOfBoundsException e){}
-
-        return adjacents;
+        Position position = getBoard().getPosition();
+        long adjacents = Bitboard.kingAttacks(Bitboard.square(mySquare));
+        return toSquares(adjacents & ~position.getSide(getSide()));
     }
 
     /**
      * @return a set containing up to the two squares (g1/g8, c1/c8) the King can jump to if it can castle
      */
     private Set<Square> castleSquares(){
-        Board theBoard = Board.getInstance();
+        Board theBoard = getBoard();
         Square[][] board = theBoard.getSquares();
         int row = mySquare.getRow();
 
@@ -215,37 +190,18 @@ public class King extends Piece {
      * if the King has not moved nor is in check, a Rook has not moved, and the squares between the King and the Rook in question
      * are empty, the King can move two spaces towards the Rook and the Rook moves towards the King and jumps over it
      * to land adjacent to the King on the other side
-     * TODO: remember the king cannot be in check
+     * the King cannot castle out of, through or into check
      * @return all possible moves for the King
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
         allMoves.addAll(allAdjacentSquares());
-        if(!b.getInCheck()){
-            allMoves.addAll(castleSquares());
-        }
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
-        } else if (b.getCurrentPlayer() == getSide()){
-            riskFilter(allMoves);
+        allMoves.addAll(castleSquares());
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
         this.allMoves = allMoves;
     }
-
-    /**
-     * removes all squares that would put the King in check
-     * @param allMoves the list of squares to filter
-     */
-    private void riskFilter(Set<Square> allMoves) {
-        Board b = Board.getInstance();
-        Set<Square> toRemove = new HashSet<Square>();
-        for(Square s : allMoves){
-            if(b.putInCheck(this, s)){
-                toRemove.add(s);
-            }
-        }
-        allMoves.removeAll(toRemove);
-    }
 }
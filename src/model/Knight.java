@@ -21,12 +21,12 @@ public class Knight extends Piece {
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
 
         allMoves.addAll(allLJumps());
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
 
         this.allMoves = allMoves;
@@ -40,38 +40,8 @@ public class Knight extends Piece {
      * @return a set of up to 8 squares with the above conditions
      */
     private Set<Square> allLJumps(){
-        Set<Square> lJumps = new HashSet<Square>();
-        Board theBoard = Board.getInstance();
-
-        int row = mySquare.getRow();
-        int column = mySquare.getColumn();
-        Square[][] board = theBoard.getSquares();
-
-        try {
-            addSquareToSet(lJumps, board[row + 1][column + 2]);
-        } catch(IndexOutOfBoundsException e) {}
-        try {
-            addSquareToSet(lJumps, board[row + 2][column + 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row + 1][column - 2]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row + 2][column - 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row - 1][column + 2]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row - 2][column + 1]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row - 1][column - 2]);
-        } catch (IndexOutOfBoundsException e){}
-        try {
-            addSquareToSet(lJumps, board[row - 2][column - 1]);
-        } catch (IndexOutOfBoundsException e){}
-
-        return lJumps;
+        Position position = getBoard().getPosition();
+        long jumps = Bitboard.knightAttacks(Bitboard.square(mySquare));
+        return toSquares(jumps & ~position.getSide(getSide()));
     }
 }
@@ -0,0 +1,93 @@
+package model;
+
+/**
+ * static helpers for moves packed into an int
+ * bits 0-5 hold the from square, bits 6-11 the to square (both Bitboard indices), bits 12-15 the UnitCost
+ * ordinal of the promotion piece, which is 0 (KING) when the move is not a promotion, and bits 16-19 the flags
+ * below
+ *
+ * moves made by Position.generateMoves() and Position.toMove() carry their flags; makeMove relies on them
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int EN_PASSANT = 1 << 18;
+    public static final int DOUBLE_PUSH = 1 << 19;
+
+    private static final String PROMOTION_LETTERS = " qrbn";
+
+    private Move(){}
+
+    public static int of(int from, int to){
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, UnitCost promotion){
+        return from | (to << 6) | (promotion.ordinal() << 12);
+    }
+
+    /**
+     * @param from the from square
+     * @param to the to square
+     * @param promotion the UnitCost ordinal of the promotion piece, 0 if none
+     * @param flags any of CAPTURE, CASTLE, EN_PASSANT and DOUBLE_PUSH
+     * @return the packed move
+     */
+    public static int of(int from, int to, int promotion, int flags){
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    /**
+     * @return move with its promotion piece replaced by piece, keeping its squares and flags
+     */
+    public static int withPromotion(int move, UnitCost piece){
+        return (move & ~(0xF << 12)) | (piece.ordinal() << 12);
+    }
+
+    public static int from(int move){
+        return move & 0x3F;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 0x3F;
+    }
+
+    // the UnitCost ordinal of the promotion piece, 0 if the move is not a promotion
+    public static int promotion(int move){
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isPromotion(int move){
+        return promotion(move) != 0;
+    }
+
+    public static boolean isCapture(int move){
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isCastle(int move){
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isEnPassant(int move){
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isDoublePush(int move){
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * @return move in coordinate notation, eg. "e2e4" or "e7e8q" for a promotion
+     */
+    public static String toString(int move){
+        String s = Bitboard.name(from(move)) + Bitboard.name(to(move));
+        if(isPromotion(move)){
+            s += PROMOTION_LETTERS.charAt(promotion(move));
+        }
+        return s;
+    }
+}
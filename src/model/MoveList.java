@@ -0,0 +1,78 @@
+package model;
+
+/**
+ * a reusable list of moves encoded by Move
+ * backed by a fixed int[] so a list kept per ply can be cleared and refilled without allocating
+ */
+public class MoveList {
+
+    // no legal chess position has more than 218 moves
+    public static final int CAPACITY = 256;
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList(){
+        moves = new int[CAPACITY];
+        size = 0;
+    }
+
+    public void add(int move){
+        moves[size++] = move;
+    }
+
+    public int get(int i){
+        return moves[i];
+    }
+
+    public void set(int i, int move){
+        moves[i] = move;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    // drops every move from index size on
+    public void truncate(int size){
+        this.size = size;
+    }
+
+    public boolean contains(int move){
+        for(int i = 0; i < size; i++){
+            if(moves[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // swaps the moves at i and j
+    public void swap(int i, int j){
+        int temp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = temp;
+    }
+
+    /**
+     * @return the first move in the list that goes from from to to with the given promotion ordinal,
+     * or Move.NONE if there isn't one
+     */
+    public int find(int from, int to, int promotion){
+        for(int i = 0; i < size; i++){
+            int m = moves[i];
+            if((Move.from(m) == from) && (Move.to(m) == to) && (Move.promotion(m) == promotion)){
+                return m;
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -32,6 +32,14 @@ public class Pawn extends Piece {
         return turnDoubleJumped;
     }
 
+    void setHasMoved(boolean hasMoved){
+        this.hasMoved = hasMoved;
+    }
+
+    void setTurnDoubleJumped(int turnDoubleJumped){
+        this.turnDoubleJumped = turnDoubleJumped;
+    }
+
     /**
      * returns true if the pawn is white and on row 8 (Square index 0) or the pawn is black and on row 1 (Square index 7)
      * else false
@@ -65,7 +73,7 @@ public class Pawn extends Piece {
     @Override
     public void move(Square toSquare) throws InvalidMoveException, InvalidTurnException, InvalidCoordinateException, CheckmateException {
         Square origSquare = mySquare;
-        Board board = Board.getInstance();
+        Board board = getBoard();
         if(!(board.getCurrentPlayer() == getSide())){
             if(board.getCurrentPlayer()) {
                 throw new InvalidTurnException("Currently white's turn");
@@ -75,6 +83,7 @@ public class Pawn extends Piece {
         }
         // TODO: same as with king
         if(getAllMoves().contains(toSquare)){
+            board.recordTurn(this, toSquare);
             board.movePiece(this, toSquare);
             board.resetStalemateCounter();
             if (!hasMoved) {
@@ -108,12 +117,12 @@ public class Pawn extends Piece {
         int direction;
         int row = mySquare.getRow();
         int column = mySquare.getColumn();
-        Board theBoard = Board.getInstance();
+        Board theBoard = getBoard();
         Square[][] board = theBoard.getSquares();
 
         // in normal chess the only time a pawn is at the endpoint of the board is if it's on the opposite side
         // and thus can't move further
-        if((row == 0) || (row == Board.BOARD_DIMENSION)){
+        if((row == 0) || (row == Board.BOARD_DIMENSION - 1)){
             return forwardJumps;
         }
 
@@ -154,12 +163,12 @@ public class Pawn extends Piece {
         int direction;
         int row = mySquare.getRow();
         int column = mySquare.getColumn();
-        Board theBoard = Board.getInstance();
+        Board theBoard = getBoard();
         Square[][] board = theBoard.getSquares();
 
         // in normal chess the only time a pawn is at the endpoint of the board is if it's on the opposite side
         // and thus can't move further
-        if((row == 0) || (row == Board.BOARD_DIMENSION)){
+        if((row == 0) || (row == Board.BOARD_DIMENSION - 1)){
             return eliminations;
         }
 
@@ -206,7 +215,7 @@ public class Pawn extends Piece {
      * @return true if can do en passant; else false
      */
     private boolean possibleEnPassant(Square square) {
-        Board theBoard = Board.getInstance();
+        Board theBoard = getBoard();
         boolean enemySide = !getSide();
 
         if(enemySide){
@@ -261,14 +270,14 @@ public class Pawn extends Piece {
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
 
         allMoves.addAll(forwardJumpSquares());
         allMoves.addAll(possibleEliminations());
 
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
 
         this.allMoves = allMoves;
@@ -278,7 +287,7 @@ public class Pawn extends Piece {
         boolean side = getSide();
         int row = mySquare.getRow();
         int column = mySquare.getColumn();
-        Board b = Board.getInstance();
+        Board b = getBoard();
 
         if(side){
             return b.getSquare(row+1,column).getPiece();
@@ -0,0 +1,91 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * counts the leaf nodes of the legal move tree to a fixed depth (perft), which checks the move generator against
+ * published counts and measures how fast it runs
+ * every count is made on a copy of the position, so the board or position passed in is never changed
+ */
+public final class Perft {
+
+    private final Position position;
+    private final MoveList[] lists; // one list per ply so counting never allocates
+
+    private Perft(Position position, int depth){
+        this.position = new Position(position);
+        lists = new MoveList[Math.max(depth, 1)];
+        for(int i = 0; i < lists.length; i++){
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * @param position the position to count from
+     * @param depth the number of plies to look ahead, at least 0
+     * @return the number of legal move sequences of length depth from position
+     * @throws IllegalArgumentException if depth is negative
+     */
+    public static long perft(Position position, int depth){
+        if(depth < 0){
+            throw new IllegalArgumentException("Depth can't be negative: " + depth);
+        }
+        return new Perft(position, depth).count(depth, 0);
+    }
+
+    /**
+     * @return perft of the position of board, with board's side to move moving first
+     */
+    public static long perft(Board board, int depth){
+        return perft(board.getPosition(), depth);
+    }
+
+    /**
+     * splits perft(position, depth) up by the first move, in the order the moves are generated
+     * @param position the position to count from
+     * @param depth the number of plies to look ahead, at least 1
+     * @return a map from each legal move in coordinate notation to the node count below it
+     * @throws IllegalArgumentException if depth is less than 1, which leaves no first move to split by
+     */
+    public static Map<String, Long> divide(Position position, int depth){
+        if(depth < 1){
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        Perft perft = new Perft(position, depth);
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        MoveList list = perft.lists[0];
+        perft.position.generateLegalMoves(list);
+        for(int i = 0; i < list.size(); i++){
+            int move = list.get(i);
+            perft.position.makeMove(move);
+            counts.put(Move.toString(move), perft.count(depth - 1, 1));
+            perft.position.unmakeMove();
+        }
+        return counts;
+    }
+
+    public static Map<String, Long> divide(Board board, int depth){
+        return divide(board.getPosition(), depth);
+    }
+
+    // counts the leaves depth plies below the current position, using lists[ply] for this ply's moves
+    private long count(int depth, int ply){
+        if(depth == 0){
+            return 1L;
+        }
+        MoveList list = lists[ply];
+        list.clear();
+        position.generateLegalMoves(list);
+        if(depth == 1){
+            return list.size();
+        }
+        long nodes = 0L;
+        for(int i = 0; i < list.size(); i++){
+            position.makeMove(list.get(i));
+            nodes += count(depth - 1, ply + 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
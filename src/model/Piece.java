@@ -4,6 +4,7 @@ import exceptions.*;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -16,19 +17,21 @@ public abstract class Piece {
     protected int cost;
     protected boolean side; // false if black, true if white
     protected Square mySquare;
+    protected Board myBoard; // the board this piece was placed on, null if it has never been on one
     protected boolean isEliminated;
     protected Set<Square> allMoves;
 
     public Piece(boolean side, Square square, UnitCost cost){
         health = 100;
         this.side = side;
+        this.uCost = cost;
+        this.cost = uCost.getCost();
+        isEliminated = false;
         mySquare = square;
         if(square != null) {
+            myBoard = square.getBoard();
             square.setPiece(this);
         }
-        this.uCost = cost;
-        this.cost = uCost.getCost();
-        isEliminated = false;
     }
 
     // getters
@@ -50,6 +53,10 @@ public abstract class Piece {
         return mySquare;
     }
 
+    public Board getBoard(){
+        return myBoard;
+    }
+
     void setEliminated(boolean eliminated){
         isEliminated = eliminated;
     }
@@ -68,6 +75,7 @@ public abstract class Piece {
      * sets mySquare's piece to null
      * if newSquare == null, calls eliminate() instead
      * does nothing if newSquare is the exact same object as mySquare
+     * if newSquare belongs to a board, that board becomes the piece's board
      * @param newSquare the square to set
      */
     public void setSquare(Square newSquare){
@@ -78,6 +86,9 @@ public abstract class Piece {
             eliminate();
             return;
         }
+        if(newSquare.getBoard() != null){
+            myBoard = newSquare.getBoard();
+        }
         if(mySquare == null){
             mySquare = newSquare;
             newSquare.setPiece(this);
@@ -123,7 +134,7 @@ public abstract class Piece {
      * @throws CheckmateException thrown if board is in checkmate
      */
     public void move(Square toSquare) throws InvalidMoveException, InvalidTurnException, InvalidCoordinateException, CheckmateException, StalemateException {
-        Board board = Board.getInstance();
+        Board board = getBoard();
         if(!(board.getCurrentPlayer() == getSide())){
             if(board.getCurrentPlayer()) {
                 throw new InvalidTurnException("Currently white's turn");
@@ -132,6 +143,7 @@ public abstract class Piece {
             }
         }
         if(getAllMoves().contains(toSquare)){
+            board.recordTurn(this, toSquare);
             if(getUnitCost().equals(UnitCost.PAWN)){
                 board.resetStalemateCounter();
             } else if(toSquare.getPiece() != null){
@@ -157,17 +169,33 @@ public abstract class Piece {
     public abstract void allMoves();
 
     /**
-     * filters allMoves to only have Squares that can be moved to to prevent check
+     * filters allMoves to only have Squares the board's legal moves allow, so the King is never left in check and
+     * pinned pieces stay on their pin
      */
-    protected void checkFilter(Set<Square> allMoves){
-        Board b = Board.getInstance();
-        Set<Square> noPreventCheck = new HashSet<Square>();
-        for(Square s : allMoves){
-            if(!b.canMoveEscapeFromCheck(this, s)){
-                noPreventCheck.add(s);
+    protected void legalFilter(Set<Square> allMoves){
+        long legal = getBoard().legalTargets(this);
+        Iterator<Square> it = allMoves.iterator();
+        while(it.hasNext()){
+            if(((legal >>> Bitboard.square(it.next())) & 1L) == 0L){
+                it.remove();
             }
         }
-        allMoves.removeAll(noPreventCheck);
+    }
+
+    /**
+     * converts a bitboard of target squares into the set of Squares on the board it represents
+     * @param targets the bitboard to convert
+     * @return a set of the squares whose bit is set in targets
+     */
+    protected Set<Square> toSquares(long targets){
+        Set<Square> squares = new HashSet<Square>();
+        Square[][] board = getBoard().getSquares();
+        while(targets != 0L){
+            int sq = Long.numberOfTrailingZeros(targets);
+            squares.add(board[Bitboard.row(sq)][Bitboard.column(sq)]);
+            targets &= targets - 1;
+        }
+        return squares;
     }
 
     /**
@@ -178,63 +206,9 @@ public abstract class Piece {
      * @return a set of all diagonal squares satisfying the above conditions
      */
     protected Set<Square> scanDiagonals(){
-        Set<Square> diagonals = new HashSet<Square>();
-        int row = mySquare.getRow();
-        int column = mySquare.getColumn();
-
-        diagonals.addAll(getOneDiagonal(row, column, true, true));
-        diagonals.addAll(getOneDiagonal(row, column, true, false));
-        diagonals.addAll(getOneDiagonal(row, column, false, true));
-        diagonals.addAll(getOneDiagonal(row, column, false, false));
-
-        return diagonals;
-    }
-
-    /**
-     * starting at board[row][column], get all diagonals from this square to either an enemy piece, the square before
-     * the boundary, or the square before an ally unit in the direction:
-     * north if northSouth is true
-     * south if northSouth is false
-     * east if eastWest is true
-     * west if eastWest is false
-     * @param row the row of the square the method starts on
-     * @param column the column of the square the method starts
-     * @param northSouth if true, go north; if false, go south
-     * @param eastWest if true, go east; if false, go west
-     * @return all diagonals in the specified direction up to the specified square condition
-     */
-    private Set<Square> getOneDiagonal(int row, int column, boolean northSouth, boolean eastWest) {
-        Set<Square> diagonals = new HashSet<Square>();
-        Board theBoard = Board.getInstance();
-        int rowDirection;
-        int columnDirection;
-
-        if(northSouth){
-            rowDirection = -1;
-        } else{
-            rowDirection = 1;
-        }
-
-        if(eastWest){
-            columnDirection = 1;
-        } else{
-            columnDirection = -1;
-        }
-
-        int currRow = row + rowDirection;
-        int currColumn = column + columnDirection;
-        Square[][] board = theBoard.getSquares();
-
-        while((currRow >= 0) && (currColumn >= 0) && (currRow < Board.BOARD_DIMENSION)
-                && (currColumn < Board.BOARD_DIMENSION)){
-            if(addSquareToSet(diagonals, board[currRow][currColumn])){
-                break;
-            }
-            currRow += rowDirection;
-            currColumn += columnDirection;
-        }
-
-        return diagonals;
+        Position position = getBoard().getPosition();
+        long diagonals = Bitboard.bishopAttacks(Bitboard.square(mySquare), position.getOccupied());
+        return toSquares(diagonals & ~position.getSide(getSide()));
     }
 
     /**
@@ -265,84 +239,19 @@ public abstract class Piece {
      * @return a set of all cardinal squares satisfying the above conditions
      */
     protected Set<Square> scanCardinals(){
-        Set<Square> cardinals = new HashSet<Square>();
-        int row = mySquare.getRow();
-        int column = mySquare.getColumn();
-
-        cardinals.addAll(getOneVertical(row, column, true));
-        cardinals.addAll(getOneVertical(row, column, false));
-        cardinals.addAll(getOneHorizontal(row, column, true));
-        cardinals.addAll(getOneHorizontal(row, column, false));
-
-        return cardinals;
+        Position position = getBoard().getPosition();
+        long cardinals = Bitboard.rookAttacks(Bitboard.square(mySquare), position.getOccupied());
+        return toSquares(cardinals & ~position.getSide(getSide()));
     }
 
     /**
-     * returns a set of all squares in a horizontal direction (right if direction is true; else left) from the base
-     * square at coordinates row and column of the board until a unit or board boundary is reached
-     * a square with an enemy unit is included but not friendly unit
-     * @param row the row of the base square
-     * @param column the column of the base square
-     * @param direction true if right; false if left
-     * @return all squares in the specified horizontal direction from the base square satisfying the condition
+     * returns the union of scanDiagonals() and scanCardinals() from a single queen attack lookup
+     * @return a set of all diagonal and cardinal squares satisfying the conditions of both scans
      */
-    private Set<Square> getOneHorizontal(int row, int column, boolean direction) {
-        Set<Square> horizontals = new HashSet<Square>();
-        Board theBoard = Board.getInstance();
-
-        Square[][] board = theBoard.getSquares();
-
-        int firstRight = column + 1;
-        int firstLeft = column - 1;
-
-        if(direction){
-            for(int i = firstRight; i < Board.BOARD_DIMENSION; i++){
-                if(addSquareToSet(horizontals, board[row][i])){
-                    break;
-                }
-            }
-        } else{
-            for(int i = firstLeft; i >= 0; i--){
-                if(addSquareToSet(horizontals, board[row][i])){
-                    break;
-                }
-            }
-        }
-        return horizontals;
-    }
-
-    /**
-     * returns a set of all squares in a horizontal direction (up if direction is true; else down) from the base
-     * square at coordinates row and column of the board until a unit or board boundary is reached
-     * a square with an enemy unit is included but not friendly unit
-     * @param row the row of the base square
-     * @param column the column of the base square
-     * @param direction true if up; false if down
-     * @return all squares in the specified horizontal direction from the base square satisfying the condition
-     */
-    private Set<Square> getOneVertical(int row, int column, boolean direction) {
-        Set<Square> verticals = new HashSet<Square>();
-        Board theBoard = Board.getInstance();
-
-        Square[][] board = theBoard.getSquares();
-
-        int firstUp = row - 1;
-        int firstDown = row + 1;
-
-        if(direction){
-            for(int i = firstDown; i < Board.BOARD_DIMENSION; i++){
-                if(addSquareToSet(verticals, board[i][column])){
-                    break;
-                }
-            }
-        } else{
-            for(int i = firstUp; i >= 0; i--){
-                if(addSquareToSet(verticals, board[i][column])){
-                    break;
-                }
-            }
-        }
-        return verticals;
+    protected Set<Square> scanLines(){
+        Position position = getBoard().getPosition();
+        long lines = Bitboard.queenAttacks(Bitboard.square(mySquare), position.getOccupied());
+        return toSquares(lines & ~position.getSide(getSide()));
     }
 
     @Override
@@ -0,0 +1,119 @@
+package model;
+
+/**
+ * the piece-square tables Position sums into its middlegame and endgame scores
+ * each entry is the piece's UnitCost cost in centipawns plus a bonus for the square it stands on, positive for
+ * white pieces and negative for black ones, so the sums are from white's point of view
+ *
+ * the tables below are written from white's side with rank 8 on top, like Board.toString(); black uses them
+ * mirrored. only pawns and kings change between the middlegame and the endgame: pawns are worth more the closer
+ * they are to promoting and the king leaves its castle for the centre
+ */
+final class PieceSquare {
+
+    static final int[][] MIDDLEGAME = new int[12][64]; // [piece code][square]
+    static final int[][] ENDGAME = new int[12][64];
+
+    // how much each UnitCost counts towards the middlegame; the start position has MAX_PHASE
+    static final int[] PHASE = {0, 4, 2, 1, 1, 0};
+    static final int MAX_PHASE = 24;
+
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20};
+
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    private static final int[] QUEEN = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20};
+
+    private static final int[] ROOK = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0};
+
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+
+    private static final int[] PAWN_MIDDLEGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0};
+
+    private static final int[] PAWN_ENDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             20,  20,  20,  20,  20,  20,  20,  20,
+             10,  10,  10,  10,  10,  10,  10,  10,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0};
+
+    static {
+        // by UnitCost ordinal
+        int[][] middlegame = {KING_MIDDLEGAME, QUEEN, ROOK, BISHOP, KNIGHT, PAWN_MIDDLEGAME};
+        int[][] endgame = {KING_ENDGAME, QUEEN, ROOK, BISHOP, KNIGHT, PAWN_ENDGAME};
+        UnitCost[] units = UnitCost.values();
+        for(int type = 0; type < units.length; type++){
+            int value = units[type].getCost() * 100;
+            for(int sq = 0; sq < 64; sq++){
+                // the tables start at a8, so a white piece on sq reads entry sq ^ 56 and a black one entry sq
+                MIDDLEGAME[Position.WHITE * 6 + type][sq] = value + middlegame[type][sq ^ 56];
+                ENDGAME[Position.WHITE * 6 + type][sq] = value + endgame[type][sq ^ 56];
+                MIDDLEGAME[Position.BLACK * 6 + type][sq] = -(value + middlegame[type][sq]);
+                ENDGAME[Position.BLACK * 6 + type][sq] = -(value + endgame[type][sq]);
+            }
+        }
+    }
+
+    private PieceSquare(){}
+}
@@ -0,0 +1,1006 @@
+package model;
+
+import exceptions.InvalidFenException;
+import exceptions.ProgrammerErrorException;
+
+/**
+ * a packed bitboard view of the pieces on a Board
+ * holds one bitboard per piece type and colour plus the occupancy of each side, and is kept in sync with the
+ * Square[][] grid by Board whenever a square's piece changes
+ *
+ * also holds the state needed to play moves without the grid (side to move, castling rights, en passant square
+ * and halfmove clock) so makeMove/unmakeMove can try moves on the bitboards alone; each makeMove pushes one long
+ * onto an undo stack that unmakeMove pops, so neither allocates
+ *
+ * a Zobrist key of the pieces, side to move, castling rights and en passant file is kept up to date by every
+ * change to the position; the en passant file only counts when a pawn can actually capture there
+ *
+ * the material of each side and the PieceSquare sums for the middlegame and the endgame are kept up to date the
+ * same way, so getScore() is a read rather than a scan of the board
+ */
+public class Position {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // a piece code is colour * 6 + UnitCost.ordinal(); squares without a piece hold EMPTY
+    public static final int EMPTY = -1;
+    private static final int PIECE_TYPES = 6;
+    private static final int KING = UnitCost.KING.ordinal();
+    private static final int ROOK = UnitCost.ROOK.ordinal();
+    private static final int PAWN = UnitCost.PAWN.ordinal();
+    private static final UnitCost[] UNIT_COSTS = UnitCost.values();
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // FEN letters of the white pieces by UnitCost ordinal; black pieces use the lower case
+    private static final String FEN_PIECES = "KQRBNP";
+
+    // castling rights bits
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // the castling rights that survive a move from or to each square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for(int sq = 0; sq < 64; sq++){
+            CASTLING_MASK[sq] = ALL_CASTLING;
+        }
+        CASTLING_MASK[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[63] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    private long[][] pieces; // [colour][UnitCost.ordinal()]
+    private long[] sides;    // [colour]
+    private long occupied;
+    private int[] mailbox;   // piece code on each square
+
+    private boolean sideToMove; // true if white, false if black
+    private int castlingRights;
+    private int epSquare;       // the square a pawn can capture en passant onto, -1 if none
+    private int halfmoveClock;
+    private int fullmoveNumber; // starts at 1 and goes up after each black move
+
+    private long key;   // Zobrist key, see getKey()
+    private long epKey; // the en passant part of key, 0 if no pawn can capture en passant
+
+    private int[] material; // [colour], the UnitCost costs of the side's pieces
+    private int middlegame; // PieceSquare sums from white's point of view
+    private int endgame;
+    private int phase;      // PieceSquare.PHASE summed over the pieces
+
+    // each entry packs a move with the state it overwrote, see makeMove; keyStack holds the key before each move
+    // the first historySize keys were copied from another position by set() and have no undo entries
+    private long[] undoStack;
+    private long[] keyStack;
+    private int undoSize;
+    private int historySize;
+
+    public Position(){
+        pieces = new long[2][PIECE_TYPES];
+        sides = new long[2];
+        occupied = 0L;
+        mailbox = new int[64];
+        for(int sq = 0; sq < 64; sq++){
+            mailbox[sq] = EMPTY;
+        }
+        sideToMove = true;
+        castlingRights = ALL_CASTLING;
+        epSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoStack = new long[256];
+        keyStack = new long[256];
+        undoSize = 0;
+        historySize = 0;
+        material = new int[2];
+        key = computeKey();
+    }
+
+    /**
+     * copies the pieces and state of other, but not its undo stack, so the copy can be searched on its own thread
+     * the keys since other's last pawn move or capture are kept, so isRepetition() still sees the game's positions
+     * @param other the position to copy
+     */
+    public Position(Position other){
+        pieces = new long[2][PIECE_TYPES];
+        sides = new long[2];
+        mailbox = new int[64];
+        material = new int[2];
+        undoStack = new long[256];
+        keyStack = new long[256];
+        set(other);
+    }
+
+    /**
+     * makes this position a copy of other without allocating, so one position can be reused for game after game
+     * the undo stack is emptied rather than copied, keeping only the keys since the last pawn move or capture for
+     * isRepetition(); the moves that led here can't be taken back
+     * @param other the position to copy
+     */
+    public void set(Position other){
+        System.arraycopy(other.pieces[WHITE], 0, pieces[WHITE], 0, PIECE_TYPES);
+        System.arraycopy(other.pieces[BLACK], 0, pieces[BLACK], 0, PIECE_TYPES);
+        System.arraycopy(other.sides, 0, sides, 0, 2);
+        occupied = other.occupied;
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        epKey = other.epKey;
+        System.arraycopy(other.material, 0, material, 0, 2);
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+        int kept = Math.min(other.undoSize, other.halfmoveClock);
+        if(kept > keyStack.length){
+            undoStack = new long[other.undoStack.length];
+            keyStack = new long[other.keyStack.length];
+        }
+        System.arraycopy(other.keyStack, other.undoSize - kept, keyStack, 0, kept);
+        undoSize = kept;
+        historySize = kept;
+    }
+
+    /**
+     * reads a position from Forsyth-Edwards Notation, eg. START_FEN
+     * the halfmove clock and fullmove number may be left off, in which case they are 0 and 1
+     * @param fen the FEN string
+     * @return the position it describes
+     * @throws InvalidFenException thrown if fen is not a well formed FEN string
+     */
+    public static Position fromFen(String fen) throws InvalidFenException {
+        String[] fields = fen.trim().split("\\s+");
+        if((fields.length < 4) || (fields.length > 6)){
+            throw new InvalidFenException("FEN must have 4 to 6 fields: " + fen);
+        }
+        Position p = new Position();
+        String[] ranks = fields[0].split("/");
+        if(ranks.length != 8){
+            throw new InvalidFenException("FEN must have 8 ranks: " + fen);
+        }
+        for(int r = 0; r < 8; r++){
+            int file = 0;
+            for(char ch : ranks[r].toCharArray()){
+                if((ch >= '1') && (ch <= '8')){
+                    file += ch - '0';
+                } else{
+                    int type = FEN_PIECES.indexOf(Character.toUpperCase(ch));
+                    if((type < 0) || (file > 7)){
+                        throw new InvalidFenException("Invalid rank: " + ranks[r]);
+                    }
+                    p.putCode(((7 - r) << 3) | file, (Character.isUpperCase(ch) ? WHITE : BLACK) * PIECE_TYPES + type);
+                    file++;
+                }
+            }
+            if(file != 8){
+                throw new InvalidFenException("Invalid rank: " + ranks[r]);
+            }
+        }
+
+        for(int c = WHITE; c <= BLACK; c++){
+            if(Long.bitCount(p.sides[c]) > 16){
+                throw new InvalidFenException("A side can't have more than 16 pieces: " + fen);
+            }
+            if(Long.bitCount(p.pieces[c][KING]) != 1){
+                throw new InvalidFenException("Each side needs exactly one King: " + fen);
+            }
+        }
+
+        if(fields[1].equals("w")){
+            p.sideToMove = true;
+        } else if(fields[1].equals("b")){
+            p.sideToMove = false;
+        } else{
+            throw new InvalidFenException("Side to move must be w or b: " + fields[1]);
+        }
+
+        p.castlingRights = 0;
+        if(!fields[2].equals("-")){
+            for(char ch : fields[2].toCharArray()){
+                int index = "KQkq".indexOf(ch);
+                if(index < 0){
+                    throw new InvalidFenException("Invalid castling rights: " + fields[2]);
+                }
+                p.castlingRights |= 1 << index;
+            }
+            // a right whose King or Rook has left its home square could castle with a piece that isn't there
+            p.castlingRights &= p.possibleCastlingRights();
+        }
+
+        p.epSquare = -1;
+        if(!fields[3].equals("-")){
+            if(fields[3].length() != 2){
+                throw new InvalidFenException("Invalid en passant square: " + fields[3]);
+            }
+            p.epSquare = parseSquare(fields[3].charAt(0), fields[3].charAt(1));
+            // the square a pawn of the side not to move just skipped over, with that pawn in front of it
+            int rank = p.sideToMove ? 5 : 2;
+            int pawn = p.sideToMove ? p.epSquare - 8 : p.epSquare + 8;
+            if((p.epSquare < 0) || ((p.epSquare >>> 3) != rank)
+                    || (p.mailbox[pawn] != colour(!p.sideToMove) * PIECE_TYPES + PAWN)){
+                throw new InvalidFenException("Invalid en passant square: " + fields[3]);
+            }
+        }
+
+        try {
+            p.halfmoveClock = (fields.length > 4) ? Integer.parseInt(fields[4]) : 0;
+            p.fullmoveNumber = (fields.length > 5) ? Integer.parseInt(fields[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new InvalidFenException("Invalid move counters: " + fen);
+        }
+        p.key = p.computeKey();
+        return p;
+    }
+
+    // the castling rights whose King and Rook are still on their home squares
+    private int possibleCastlingRights(){
+        int rights = 0;
+        if(mailbox[4] == WHITE * PIECE_TYPES + KING){
+            rights |= ((mailbox[7] == WHITE * PIECE_TYPES + ROOK) ? WHITE_KINGSIDE : 0)
+                    | ((mailbox[0] == WHITE * PIECE_TYPES + ROOK) ? WHITE_QUEENSIDE : 0);
+        }
+        if(mailbox[60] == BLACK * PIECE_TYPES + KING){
+            rights |= ((mailbox[63] == BLACK * PIECE_TYPES + ROOK) ? BLACK_KINGSIDE : 0)
+                    | ((mailbox[56] == BLACK * PIECE_TYPES + ROOK) ? BLACK_QUEENSIDE : 0);
+        }
+        return rights;
+    }
+
+    /**
+     * @return the position in Forsyth-Edwards Notation
+     */
+    public String toFen(){
+        StringBuilder sb = new StringBuilder();
+        for(int rank = 7; rank >= 0; rank--){
+            int empty = 0;
+            for(int file = 0; file < 8; file++){
+                int code = mailbox[(rank << 3) | file];
+                if(code == EMPTY){
+                    empty++;
+                } else{
+                    if(empty > 0){
+                        sb.append(empty);
+                        empty = 0;
+                    }
+                    char ch = FEN_PIECES.charAt(code % PIECE_TYPES);
+                    sb.append((code < PIECE_TYPES) ? ch : Character.toLowerCase(ch));
+                }
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(rank > 0){
+                sb.append('/');
+            }
+        }
+        sb.append(sideToMove ? " w " : " b ");
+        if(castlingRights == 0){
+            sb.append('-');
+        }
+        for(int i = 0; i < 4; i++){
+            if((castlingRights & (1 << i)) != 0){
+                sb.append("KQkq".charAt(i));
+            }
+        }
+        sb.append(' ').append((epSquare < 0) ? "-" : Bitboard.name(epSquare));
+        sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    /**
+     * @param side true if white, false if black
+     * @return WHITE if side is true, else BLACK
+     */
+    public static int colour(boolean side){
+        return side ? WHITE : BLACK;
+    }
+
+    /**
+     * @return the piece code for a piece of type u on side
+     */
+    public static int code(boolean side, UnitCost u){
+        return colour(side) * PIECE_TYPES + u.ordinal();
+    }
+
+    // getters
+    public boolean getSideToMove(){
+        return sideToMove;
+    }
+
+    public int getCastlingRights(){
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare(){
+        return epSquare;
+    }
+
+    public int getHalfmoveClock(){
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber(){
+        return fullmoveNumber;
+    }
+
+    /**
+     * @return the Zobrist key of the position: equal positions (same pieces, side to move, castling rights and
+     * capturable en passant file) have equal keys
+     */
+    public long getKey(){
+        return key;
+    }
+
+    /**
+     * @param side true if white, false if black
+     * @return the sum of the UnitCost costs of side's pieces on the board
+     */
+    public int getMaterial(boolean side){
+        return material[colour(side)];
+    }
+
+    // how far from the endgame the position is, from 0 (only kings and pawns) to PieceSquare.MAX_PHASE
+    public int getPhase(){
+        return Math.min(phase, PieceSquare.MAX_PHASE);
+    }
+
+    public int getMiddlegameScore(){
+        return middlegame;
+    }
+
+    public int getEndgameScore(){
+        return endgame;
+    }
+
+    /**
+     * @return the material and piece-square score in centipawns from white's point of view, tapered from the
+     * middlegame score to the endgame score as the pieces other than pawns come off
+     */
+    public int getScore(){
+        int p = getPhase();
+        return (middlegame * p + endgame * (PieceSquare.MAX_PHASE - p)) / PieceSquare.MAX_PHASE;
+    }
+
+    /**
+     * works the Zobrist key out from scratch, which getKey() should always equal
+     * @return the key of the position
+     */
+    public long computeKey(){
+        long k = 0L;
+        for(int sq = 0; sq < 64; sq++){
+            if(mailbox[sq] != EMPTY){
+                k ^= Zobrist.PIECES[mailbox[sq]][sq];
+            }
+        }
+        epKey = enPassantKey();
+        return k ^ stateKey() ^ epKey;
+    }
+
+    /**
+     * @return true if the current position has occurred before since the last pawn move or capture, counting
+     * only positions reached by makeMove, here or in the position this was copied from
+     */
+    public boolean isRepetition(){
+        int earliest = Math.max(0, undoSize - halfmoveClock);
+        for(int i = undoSize - 2; i >= earliest; i -= 2){
+            if(keyStack[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the part of the key for the side to move and castling rights
+    private long stateKey(){
+        return Zobrist.CASTLING[castlingRights] ^ (sideToMove ? Zobrist.WHITE_TO_MOVE : 0L);
+    }
+
+    // the key of the en passant file if a pawn of the side to move can capture onto epSquare, else 0
+    private long enPassantKey(){
+        if((epSquare >= 0)
+                && ((Bitboard.PAWN_ATTACKS[colour(!sideToMove)][epSquare] & pieces[colour(sideToMove)][PAWN]) != 0L)){
+            return Zobrist.EN_PASSANT[epSquare & 7];
+        }
+        return 0L;
+    }
+
+    // replaces the en passant part of the key with the one for the current position
+    private void refreshEnPassantKey(){
+        key ^= epKey;
+        epKey = enPassantKey();
+        key ^= epKey;
+    }
+
+    // the piece code on square sq, or EMPTY
+    public int pieceAt(int sq){
+        return mailbox[sq];
+    }
+
+    /**
+     * sets the state that is not part of the piece placement
+     * @param side the side to move, true if white
+     * @param castling the castling rights as a combination of the castling bits
+     * @param ep the en passant square, -1 if none
+     * @param halfmove the number of moves since the last pawn move or capture
+     * @param fullmove the number of the current move, starting at 1
+     */
+    void setState(boolean side, int castling, int ep, int halfmove, int fullmove){
+        key ^= stateKey();
+        sideToMove = side;
+        castlingRights = castling;
+        epSquare = ep;
+        halfmoveClock = halfmove;
+        fullmoveNumber = fullmove;
+        key ^= stateKey();
+        refreshEnPassantKey();
+    }
+
+    public long getPieces(boolean side, UnitCost u){
+        return pieces[colour(side)][u.ordinal()];
+    }
+
+    public long getSide(boolean side){
+        return sides[colour(side)];
+    }
+
+    public long getOccupied(){
+        return occupied;
+    }
+
+    /**
+     * empties the board, leaving side to move with no castling rights, en passant square or move history, so a
+     * position can be set up piece by piece with put() without going through FEN
+     * @param side the side to move, true if white
+     */
+    public void clear(boolean side){
+        for(int c = 0; c < 2; c++){
+            for(int type = 0; type < PIECE_TYPES; type++){
+                pieces[c][type] = 0L;
+            }
+            sides[c] = 0L;
+            material[c] = 0;
+        }
+        occupied = 0L;
+        for(int sq = 0; sq < 64; sq++){
+            mailbox[sq] = EMPTY;
+        }
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+        sideToMove = side;
+        castlingRights = 0;
+        epSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoSize = 0;
+        historySize = 0;
+        key = computeKey();
+    }
+
+    /**
+     * adds a piece of type u for side on square sq, which must be empty
+     */
+    public void put(int sq, boolean side, UnitCost u){
+        putCode(sq, code(side, u));
+    }
+
+    /**
+     * removes the piece of type u for side from square sq
+     */
+    void remove(int sq, boolean side, UnitCost u){
+        removeCode(sq, code(side, u));
+    }
+
+    private void putCode(int sq, int code){
+        long b = 1L << sq;
+        int c = code / PIECE_TYPES;
+        pieces[c][code % PIECE_TYPES] |= b;
+        sides[c] |= b;
+        occupied |= b;
+        mailbox[sq] = code;
+        key ^= Zobrist.PIECES[code][sq];
+        addScore(sq, code, 1);
+    }
+
+    // adds (sign 1) or takes away (sign -1) what the piece code on sq counts for in the scores
+    private void addScore(int sq, int code, int sign){
+        int type = code % PIECE_TYPES;
+        material[code / PIECE_TYPES] += sign * UNIT_COSTS[type].getCost();
+        middlegame += sign * PieceSquare.MIDDLEGAME[code][sq];
+        endgame += sign * PieceSquare.ENDGAME[code][sq];
+        phase += sign * PieceSquare.PHASE[type];
+    }
+
+    private void removeCode(int sq, int code){
+        long b = ~(1L << sq);
+        int c = code / PIECE_TYPES;
+        pieces[c][code % PIECE_TYPES] &= b;
+        sides[c] &= b;
+        occupied &= b;
+        key ^= Zobrist.PIECES[code][sq];
+        addScore(sq, code, -1);
+        if(mailbox[sq] == code){
+            mailbox[sq] = EMPTY;
+        }
+    }
+
+    /**
+     * plays move on the bitboards, handling captures, en passant, castling and promotion, and pushes what it
+     * overwrote onto the undo stack
+     * the move is not checked for legality, but must carry its flags (see toMove); the piece on its from square
+     * is the one that moves, and side to move becomes the other side
+     * @param move a move encoded by Move
+     */
+    public void makeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int moving = mailbox[from];
+        int c = moving / PIECE_TYPES;
+        int captured = mailbox[to];
+        int capturedSquare = to;
+        if((move & Move.EN_PASSANT) != 0){
+            capturedSquare = (c == WHITE) ? to - 8 : to + 8;
+            captured = mailbox[capturedSquare];
+        }
+
+        push(move, captured);
+        key ^= stateKey() ^ epKey;
+
+        if(captured != EMPTY){
+            removeCode(capturedSquare, captured);
+        }
+        removeCode(from, moving);
+        int promotion = Move.promotion(move);
+        putCode(to, (promotion == 0) ? moving : c * PIECE_TYPES + promotion);
+
+        if((move & Move.CASTLE) != 0){
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (to > from) ? to - 1 : to + 1;
+            int rook = mailbox[rookFrom];
+            removeCode(rookFrom, rook);
+            putCode(rookTo, rook);
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        if((move & Move.DOUBLE_PUSH) != 0){
+            epSquare = (from + to) >>> 1;
+        } else{
+            epSquare = -1;
+        }
+        if(((moving % PIECE_TYPES) == PAWN) || (captured != EMPTY)){
+            halfmoveClock = 0;
+        } else{
+            halfmoveClock++;
+        }
+        if(c == BLACK){
+            fullmoveNumber++;
+        }
+        sideToMove = (c != WHITE);
+        key ^= stateKey();
+        epKey = enPassantKey();
+        key ^= epKey;
+    }
+
+    /**
+     * takes back the last move played by makeMove, restoring the pieces and state from the undo stack
+     */
+    public void unmakeMove(){
+        if(undoSize == historySize){
+            throw new ProgrammerErrorException(); // no move of this position's own to take back
+        }
+        long record = undoStack[--undoSize];
+        int move = (int) (record & 0xFFFFF);
+        int captured = (int) ((record >>> 20) & 0xF) - 1;
+        castlingRights = (int) ((record >>> 24) & 0xF);
+        epSquare = (int) ((record >>> 28) & 0x7F) - 1;
+        halfmoveClock = (int) (record >>> 35);
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int moved = mailbox[to];
+        int c = moved / PIECE_TYPES;
+        int original = (Move.promotion(move) == 0) ? moved : c * PIECE_TYPES + PAWN;
+
+        removeCode(to, moved);
+        putCode(from, original);
+
+        if((move & Move.CASTLE) != 0){
+            int rookFrom = (to > from) ? to + 1 : to - 2;
+            int rookTo = (to > from) ? to - 1 : to + 1;
+            int rook = mailbox[rookTo];
+            removeCode(rookTo, rook);
+            putCode(rookFrom, rook);
+        }
+
+        if(captured != EMPTY){
+            if((move & Move.EN_PASSANT) != 0){
+                putCode((c == WHITE) ? to - 8 : to + 8, captured);
+            } else{
+                putCode(to, captured);
+            }
+        }
+        if(c == BLACK){
+            fullmoveNumber--;
+        }
+        sideToMove = (c == WHITE);
+        key = keyStack[undoSize];
+        epKey = enPassantKey();
+    }
+
+    /**
+     * plays move, checks whether the moving side's King is attacked, then takes the move back
+     * @param move a move encoded by Move
+     * @return true if move would leave the mover's King in check
+     */
+    public boolean leavesKingInCheck(int move){
+        boolean side = mailbox[Move.from(move)] < PIECE_TYPES;
+        makeMove(move);
+        boolean inCheck = isInCheck(side);
+        unmakeMove();
+        return inCheck;
+    }
+
+    // packs move, captured and the current state into one undo entry
+    private void push(int move, int captured){
+        if(undoSize == undoStack.length){
+            grow();
+        }
+        keyStack[undoSize] = key;
+        undoStack[undoSize++] = (move & 0xFFFFFL)
+                | ((long) (captured + 1) << 20)
+                | ((long) castlingRights << 24)
+                | ((long) (epSquare + 1) << 28)
+                | ((long) halfmoveClock << 35);
+    }
+
+    // doubles the undo and key stacks
+    private void grow(){
+        long[] bigger = new long[undoStack.length * 2];
+        System.arraycopy(undoStack, 0, bigger, 0, undoSize);
+        undoStack = bigger;
+        long[] biggerKeys = new long[keyStack.length * 2];
+        System.arraycopy(keyStack, 0, biggerKeys, 0, undoSize);
+        keyStack = biggerKeys;
+    }
+
+    /**
+     * records the current key as a position of the game before a move made on the pieces rather than with
+     * makeMove, so isRepetition() and copies of this position still see it; it can't be taken back by unmakeMove
+     * only called while no move made with makeMove is waiting to be taken back
+     */
+    void pushHistory(){
+        if(undoSize == undoStack.length){
+            grow();
+        }
+        keyStack[undoSize++] = key;
+        historySize = undoSize;
+    }
+
+    /**
+     * forgets the key recorded by the last pushHistory(), when the move after it is taken back
+     */
+    void popHistory(){
+        historySize = --undoSize;
+    }
+
+    /**
+     * encodes a move of the piece on from to to with the flags the current position gives it
+     * en passant is a pawn moving diagonally to an empty square and castling is a King moving two files
+     * @param from the from square
+     * @param to the to square
+     * @param promotion the UnitCost ordinal of the promotion piece, 0 if none
+     * @return the encoded move
+     */
+    public int toMove(int from, int to, int promotion){
+        int moving = mailbox[from];
+        int type = moving % PIECE_TYPES;
+        int flags = 0;
+        if(mailbox[to] != EMPTY){
+            flags |= Move.CAPTURE;
+        }
+        if(type == PAWN){
+            if((mailbox[to] == EMPTY) && (((from ^ to) & 7) != 0)){
+                flags |= Move.CAPTURE | Move.EN_PASSANT;
+            } else if((to - from == 16) || (from - to == 16)){
+                flags |= Move.DOUBLE_PUSH;
+            }
+        } else if((type == KING) && ((to - from == 2) || (from - to == 2))){
+            flags |= Move.CASTLE;
+        }
+        return Move.of(from, to, promotion, flags);
+    }
+
+    /**
+     * parses a move in coordinate notation, eg. "a2a4", or "a7a8q" to promote to a Queen
+     * returns Move.NONE if s is not of that form or there is no piece on the from square
+     * @param s the move to parse
+     * @return the encoded move, with flags from the current position
+     */
+    public int parseMove(String s){
+        String m = s.trim().toLowerCase();
+        if((m.length() != 4) && (m.length() != 5)){
+            return Move.NONE;
+        }
+        int from = parseSquare(m.charAt(0), m.charAt(1));
+        int to = parseSquare(m.charAt(2), m.charAt(3));
+        if((from < 0) || (to < 0) || (mailbox[from] == EMPTY)){
+            return Move.NONE;
+        }
+        int promotion = 0;
+        if(m.length() == 5){
+            int index = "qrbn".indexOf(m.charAt(4));
+            if(index < 0){
+                return Move.NONE;
+            }
+            promotion = index + UnitCost.QUEEN.ordinal();
+        }
+        return toMove(from, to, promotion);
+    }
+
+    /**
+     * @return the bit index of the square named by file ('a'-'h') and rank ('1'-'8'), -1 if there isn't one
+     */
+    static int parseSquare(char file, char rank){
+        if((file < 'a') || (file > 'h') || (rank < '1') || (rank > '8')){
+            return -1;
+        }
+        return ((rank - '1') << 3) | (file - 'a');
+    }
+
+    /**
+     * adds every pseudo-legal move for the side to move to list: moves that follow each piece's movement rules
+     * but may leave the King in check
+     * castling is generated when the right is held and the squares between King and Rook are empty
+     * @param list the list to add to (it is not cleared first)
+     */
+    public void generateMoves(MoveList list){
+        int c = colour(sideToMove);
+        long own = sides[c];
+        long enemy = sides[c ^ 1];
+        long targets = ~own;
+
+        generatePawnMoves(list, c, enemy);
+        long knights = pieces[c][UnitCost.KNIGHT.ordinal()];
+        while(knights != 0L){
+            int from = Long.numberOfTrailingZeros(knights);
+            addMoves(list, from, Bitboard.KNIGHT_ATTACKS[from] & targets, enemy);
+            knights &= knights - 1;
+        }
+        long bishops = pieces[c][UnitCost.BISHOP.ordinal()];
+        while(bishops != 0L){
+            int from = Long.numberOfTrailingZeros(bishops);
+            addMoves(list, from, Bitboard.bishopAttacks(from, occupied) & targets, enemy);
+            bishops &= bishops - 1;
+        }
+        long rooks = pieces[c][ROOK];
+        while(rooks != 0L){
+            int from = Long.numberOfTrailingZeros(rooks);
+            addMoves(list, from, Bitboard.rookAttacks(from, occupied) & targets, enemy);
+            rooks &= rooks - 1;
+        }
+        long queens = pieces[c][UnitCost.QUEEN.ordinal()];
+        while(queens != 0L){
+            int from = Long.numberOfTrailingZeros(queens);
+            addMoves(list, from, Bitboard.queenAttacks(from, occupied) & targets, enemy);
+            queens &= queens - 1;
+        }
+        long kings = pieces[c][KING];
+        while(kings != 0L){
+            int from = Long.numberOfTrailingZeros(kings);
+            addMoves(list, from, Bitboard.KING_ATTACKS[from] & targets, enemy);
+            kings &= kings - 1;
+        }
+        generateCastling(list, c);
+    }
+
+    // adds a move from from to every square in targets, flagging those onto an enemy as captures
+    private void addMoves(MoveList list, int from, long targets, long enemy){
+        while(targets != 0L){
+            int to = Long.numberOfTrailingZeros(targets);
+            list.add(Move.of(from, to, 0, ((enemy >>> to) & 1L) != 0L ? Move.CAPTURE : 0));
+            targets &= targets - 1;
+        }
+    }
+
+    private void generatePawnMoves(MoveList list, int c, long enemy){
+        long pawns = pieces[c][PAWN];
+        long empty = ~occupied;
+        int forward = (c == WHITE) ? 8 : -8;
+        long lastRank = (c == WHITE) ? Bitboard.RANK_8 : Bitboard.RANK_1;
+        long doubleRank = (c == WHITE) ? Bitboard.RANK_1 << 24 : Bitboard.RANK_1 << 32;
+
+        long single = ((c == WHITE) ? (pawns << 8) : (pawns >>> 8)) & empty;
+        long pushTwo = ((c == WHITE) ? (single << 8) : (single >>> 8)) & empty & doubleRank;
+        addPawnMoves(list, single & ~lastRank, forward, 0);
+        addPromotions(list, single & lastRank, forward, 0);
+        while(pushTwo != 0L){
+            int to = Long.numberOfTrailingZeros(pushTwo);
+            list.add(Move.of(to - 2 * forward, to, 0, Move.DOUBLE_PUSH));
+            pushTwo &= pushTwo - 1;
+        }
+
+        // captures towards the a-file and towards the h-file
+        long west = ((c == WHITE) ? (pawns << 7) : (pawns >>> 9)) & ~Bitboard.FILE_H;
+        long east = ((c == WHITE) ? (pawns << 9) : (pawns >>> 7)) & ~Bitboard.FILE_A;
+        int westStep = (c == WHITE) ? 7 : -9;
+        int eastStep = (c == WHITE) ? 9 : -7;
+        addPawnMoves(list, west & enemy & ~lastRank, westStep, Move.CAPTURE);
+        addPromotions(list, west & enemy & lastRank, westStep, Move.CAPTURE);
+        addPawnMoves(list, east & enemy & ~lastRank, eastStep, Move.CAPTURE);
+        addPromotions(list, east & enemy & lastRank, eastStep, Move.CAPTURE);
+
+        if(epSquare >= 0){
+            long attackers = Bitboard.PAWN_ATTACKS[c ^ 1][epSquare] & pawns;
+            while(attackers != 0L){
+                int from = Long.numberOfTrailingZeros(attackers);
+                list.add(Move.of(from, epSquare, 0, Move.CAPTURE | Move.EN_PASSANT));
+                attackers &= attackers - 1;
+            }
+        }
+    }
+
+    // adds a pawn move to every square in targets, each from the square step behind it
+    private void addPawnMoves(MoveList list, long targets, int step, int flags){
+        while(targets != 0L){
+            int to = Long.numberOfTrailingZeros(targets);
+            list.add(Move.of(to - step, to, 0, flags));
+            targets &= targets - 1;
+        }
+    }
+
+    // adds all four promotions to every square in targets
+    private void addPromotions(MoveList list, long targets, int step, int flags){
+        while(targets != 0L){
+            int to = Long.numberOfTrailingZeros(targets);
+            int from = to - step;
+            list.add(Move.of(from, to, UnitCost.QUEEN.ordinal(), flags));
+            list.add(Move.of(from, to, UnitCost.ROOK.ordinal(), flags));
+            list.add(Move.of(from, to, UnitCost.BISHOP.ordinal(), flags));
+            list.add(Move.of(from, to, UnitCost.KNIGHT.ordinal(), flags));
+            targets &= targets - 1;
+        }
+    }
+
+    private void generateCastling(MoveList list, int c){
+        int kingside = (c == WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = (c == WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int king = (c == WHITE) ? 4 : 60;
+        if(((castlingRights & kingside) != 0) && ((occupied & (3L << (king + 1))) == 0L)){
+            list.add(Move.of(king, king + 2, 0, Move.CASTLE));
+        }
+        if(((castlingRights & queenside) != 0) && ((occupied & (7L << (king - 3))) == 0L)){
+            list.add(Move.of(king, king - 2, 0, Move.CASTLE));
+        }
+    }
+
+    /**
+     * adds every legal move for the side to move to list
+     * the pseudo-legal moves are filtered with masks worked out once for the position: the pieces giving check,
+     * the squares that block or capture a single checker (none when in double check) and the pieces pinned to the
+     * King, which may only move along their pin; King moves are tested against attacks with the King lifted off
+     * the board, and castling may not start in, pass through or land in check
+     * en passant can uncover the King along a rank, so it is the one move still tried with makeMove/unmakeMove
+     * if the side to move has no King, every pseudo-legal move is added
+     * @param list the list to add to (it is not cleared first)
+     */
+    public void generateLegalMoves(MoveList list){
+        int start = list.size();
+        generateMoves(list);
+        int king = kingSquare(sideToMove);
+        if(king < 0){
+            return;
+        }
+        int c = colour(sideToMove);
+        long own = sides[c];
+        long enemy = sides[c ^ 1];
+
+        long checkers = attackersTo(king, occupied) & enemy;
+        long checkMask = ~0L;
+        if(Long.bitCount(checkers) > 1){
+            checkMask = 0L;
+        } else if(checkers != 0L){
+            checkMask = checkers | Bitboard.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+
+        long pinned = 0L;
+        long rookLike = pieces[c ^ 1][ROOK] | pieces[c ^ 1][UnitCost.QUEEN.ordinal()];
+        long bishopLike = pieces[c ^ 1][UnitCost.BISHOP.ordinal()] | pieces[c ^ 1][UnitCost.QUEEN.ordinal()];
+        long snipers = (Bitboard.rookAttacks(king, 0L) & rookLike) | (Bitboard.bishopAttacks(king, 0L) & bishopLike);
+        while(snipers != 0L){
+            long blockers = Bitboard.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if((Long.bitCount(blockers) == 1) && ((blockers & own) != 0L)){
+                pinned |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+
+        long withoutKing = occupied ^ Bitboard.bit(king);
+        int size = start;
+        for(int i = start; i < list.size(); i++){
+            int move = list.get(i);
+            int from = Move.from(move);
+            int to = Move.to(move);
+            boolean legal;
+            if(from == king){
+                if((move & Move.CASTLE) != 0){
+                    legal = (checkers == 0L) && !isAttacked((from + to) >>> 1, !sideToMove)
+                            && !isAttacked(to, !sideToMove);
+                } else{
+                    legal = (attackersTo(to, withoutKing) & enemy) == 0L;
+                }
+            } else if((move & Move.EN_PASSANT) != 0){
+                legal = !leavesKingInCheck(move);
+            } else{
+                legal = ((checkMask >>> to) & 1L) != 0L
+                        && ((((pinned >>> from) & 1L) == 0L) || (((Bitboard.line(king, from) >>> to) & 1L) != 0L));
+            }
+            if(legal){
+                list.set(size++, move);
+            }
+        }
+        list.truncate(size);
+    }
+
+    /**
+     * @return the square of side's King, or -1 if side has no King on the board
+     */
+    public int kingSquare(boolean side){
+        long king = getPieces(side, UnitCost.KING);
+        if(king == 0L){
+            return -1;
+        }
+        return Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * returns all pieces of either side that attack square sq if the occupied squares were occ
+     * @param sq the square being attacked
+     * @param occ the occupancy to use for sliding pieces
+     * @return a bitboard of every attacker of sq
+     */
+    public long attackersTo(int sq, long occ){
+        long rooks = pieces[WHITE][UnitCost.ROOK.ordinal()] | pieces[BLACK][UnitCost.ROOK.ordinal()]
+                | pieces[WHITE][UnitCost.QUEEN.ordinal()] | pieces[BLACK][UnitCost.QUEEN.ordinal()];
+        long bishops = pieces[WHITE][UnitCost.BISHOP.ordinal()] | pieces[BLACK][UnitCost.BISHOP.ordinal()]
+                | pieces[WHITE][UnitCost.QUEEN.ordinal()] | pieces[BLACK][UnitCost.QUEEN.ordinal()];
+        long knights = pieces[WHITE][UnitCost.KNIGHT.ordinal()] | pieces[BLACK][UnitCost.KNIGHT.ordinal()];
+        long kings = pieces[WHITE][UnitCost.KING.ordinal()] | pieces[BLACK][UnitCost.KING.ordinal()];
+
+        return (Bitboard.PAWN_ATTACKS[BLACK][sq] & pieces[WHITE][UnitCost.PAWN.ordinal()])
+                | (Bitboard.PAWN_ATTACKS[WHITE][sq] & pieces[BLACK][UnitCost.PAWN.ordinal()])
+                | (Bitboard.KNIGHT_ATTACKS[sq] & knights)
+                | (Bitboard.KING_ATTACKS[sq] & kings)
+                | (Bitboard.rookAttacks(sq, occ) & rooks)
+                | (Bitboard.bishopAttacks(sq, occ) & bishops);
+    }
+
+    /**
+     * @param sq the square to check
+     * @param bySide the side that may be attacking
+     * @return true if any piece of bySide attacks sq
+     */
+    public boolean isAttacked(int sq, boolean bySide){
+        return (attackersTo(sq, occupied) & sides[colour(bySide)]) != 0L;
+    }
+
+    /**
+     * @param side the side whose King to check
+     * @return true if side's King is on the board and attacked by the other side
+     */
+    public boolean isInCheck(boolean side){
+        int king = kingSquare(side);
+        return (king >= 0) && isAttacked(king, !side);
+    }
+}
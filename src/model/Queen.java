@@ -21,14 +21,13 @@ public class Queen extends Piece {
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
 
-        allMoves.addAll(scanDiagonals());
-        allMoves.addAll(scanCardinals());
+        allMoves.addAll(scanLines());
 
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
 
         this.allMoves = allMoves;
@@ -21,6 +21,10 @@ public class Rook extends Piece {
         return hasMoved;
     }
 
+    void setHasMoved(boolean hasMoved){
+        this.hasMoved = hasMoved;
+    }
+
     /**
      * checks if the piece can move to that square and it's that piece's colour's turn
      * if both these conditions are met, moves the piece to that square otherwise throws InvalidMoveException
@@ -51,12 +55,12 @@ public class Rook extends Piece {
      */
     @Override
     public void allMoves() {
-        Board b = Board.getInstance();
+        Board b = getBoard();
         Set<Square> allMoves = new HashSet<Square>();
 
         allMoves.addAll(scanCardinals());
-        if(b.getInCheck() && (b.getCurrentPlayer() == getSide())){
-            checkFilter(allMoves);
+        if(b.getCurrentPlayer() == getSide()){
+            legalFilter(allMoves);
         }
 
         this.allMoves = allMoves;
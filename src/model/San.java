@@ -0,0 +1,192 @@
+package model;
+
+/**
+ * static helpers for Standard Algebraic Notation, the move notation of PGN files, eg. "Nf3", "exd5", "O-O",
+ * "e8=Q+" or "R1a3"
+ * moves are resolved against the legal moves of a Position, so a SAN string only has as much disambiguation as
+ * the position needs, and written with the least disambiguation that tells them apart
+ */
+public final class San {
+
+    // SAN letters by UnitCost ordinal; pawns have none
+    private static final String PIECE_LETTERS = "KQRBN";
+    private static final int PIECE_TYPES = 6;
+
+    private San(){}
+
+    /**
+     * parses san into a legal move of position
+     * @return the encoded move, or Move.NONE if san isn't SAN for exactly one legal move
+     */
+    public static int parse(Position position, String san){
+        MoveList legal = new MoveList();
+        position.generateLegalMoves(legal);
+        return parse(position, san, legal);
+    }
+
+    /**
+     * parses san into one of legal, which must hold the legal moves of position
+     * check and annotation marks ("+", "#", "!", "?") and an "e.p." suffix are ignored, castling may be written
+     * with O or 0, a promotion with or without the "=", and a piece move with more disambiguation than it needs
+     * @return the encoded move, or Move.NONE if san isn't SAN for exactly one move of legal
+     */
+    public static int parse(Position position, String san, MoveList legal){
+        int end = san.length();
+        while((end > 0) && ("+#!?".indexOf(san.charAt(end - 1)) >= 0)){
+            end--;
+        }
+        String s = san.substring(0, end);
+        if(s.endsWith("e.p.")){
+            s = s.substring(0, s.length() - 4).trim();
+        }
+
+        if(s.equals("O-O") || s.equals("0-0")){
+            return castle(legal, 6);
+        } else if(s.equals("O-O-O") || s.equals("0-0-0")){
+            return castle(legal, 2);
+        }
+
+        int length = s.length();
+        int promotion = 0;
+        if((length > 2) && (PIECE_LETTERS.indexOf(s.charAt(length - 1)) > 0)){
+            promotion = PIECE_LETTERS.indexOf(s.charAt(length - 1));
+            length -= (s.charAt(length - 2) == '=') ? 2 : 1;
+        }
+        if(length < 2){
+            return Move.NONE;
+        }
+        int to = Position.parseSquare(s.charAt(length - 2), s.charAt(length - 1));
+        if(to < 0){
+            return Move.NONE;
+        }
+
+        int start = 0;
+        int type = UnitCost.PAWN.ordinal();
+        if(PIECE_LETTERS.indexOf(s.charAt(0)) >= 0){
+            type = PIECE_LETTERS.indexOf(s.charAt(0));
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for(int i = start; i < length - 2; i++){
+            char c = s.charAt(i);
+            if((c >= 'a') && (c <= 'h')){
+                fromFile = c - 'a';
+            } else if((c >= '1') && (c <= '8')){
+                fromRank = c - '1';
+            } else if((c != 'x') && (c != '-') && (c != ':')){
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for(int i = 0; i < legal.size(); i++){
+            int move = legal.get(i);
+            int from = Move.from(move);
+            if((Move.to(move) == to) && (Move.promotion(move) == promotion)
+                    && ((position.pieceAt(from) % PIECE_TYPES) == type)
+                    && ((fromFile < 0) || ((from & 7) == fromFile))
+                    && ((fromRank < 0) || ((from >>> 3) == fromRank))){
+                if(found != Move.NONE){
+                    return Move.NONE; // ambiguous
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param position the position move is played in; it is left as it was
+     * @param move a legal move of position
+     * @return move in SAN, with a "+" or "#" if it checks or mates
+     */
+    public static String toString(Position position, int move){
+        MoveList legal = new MoveList();
+        position.generateLegalMoves(legal);
+        String san = toString(position, move, legal);
+        position.makeMove(move);
+        legal.clear();
+        position.generateLegalMoves(legal);
+        san += checkMark(position, legal);
+        position.unmakeMove();
+        return san;
+    }
+
+    /**
+     * writes move without a check mark, which needs the position after the move; callers replaying a game already
+     * generate those moves, so they can add checkMark() themselves without generating them twice
+     * @param legal the legal moves of position, which decide how much disambiguation move needs
+     * @return move in SAN, eg. "Nbd7", "exd6" or "a8=Q"
+     */
+    public static String toString(Position position, int move, MoveList legal){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if(Move.isCastle(move)){
+            return ((to & 7) == 6) ? "O-O" : "O-O-O";
+        }
+        int type = position.pieceAt(from) % PIECE_TYPES;
+        StringBuilder sb = new StringBuilder(8);
+        if(type == UnitCost.PAWN.ordinal()){
+            if(Move.isCapture(move)){
+                sb.append((char) ('a' + (from & 7))).append('x');
+            }
+            sb.append(Bitboard.name(to));
+            if(Move.isPromotion(move)){
+                sb.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+            return sb.toString();
+        }
+
+        sb.append(PIECE_LETTERS.charAt(type));
+        // the other pieces of the same type that can go to the same square
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for(int i = 0; i < legal.size(); i++){
+            int other = Move.from(legal.get(i));
+            if((Move.to(legal.get(i)) == to) && (other != from)
+                    && ((position.pieceAt(other) % PIECE_TYPES) == type)){
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if(ambiguous){
+            if(!sameFile){
+                sb.append((char) ('a' + (from & 7)));
+            } else if(!sameRank){
+                sb.append((char) ('1' + (from >>> 3)));
+            } else{
+                sb.append(Bitboard.name(from));
+            }
+        }
+        if(Move.isCapture(move)){
+            sb.append('x');
+        }
+        return sb.append(Bitboard.name(to)).toString();
+    }
+
+    /**
+     * @param position the position after a move
+     * @param legal the legal moves of position
+     * @return "#" if the side to move is mated, "+" if it is in check, otherwise ""
+     */
+    public static String checkMark(Position position, MoveList legal){
+        if(!position.isInCheck(position.getSideToMove())){
+            return "";
+        }
+        return legal.isEmpty() ? "#" : "+";
+    }
+
+    // the castling move of legal that takes the King to file, Move.NONE if there isn't one
+    private static int castle(MoveList legal, int file){
+        for(int i = 0; i < legal.size(); i++){
+            int move = legal.get(i);
+            if(Move.isCastle(move) && ((Move.to(move) & 7) == file)){
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
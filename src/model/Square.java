@@ -10,8 +10,14 @@ public class Square {
     private boolean myColour;
     private int row;
     private int column;
+    private Board board; // the board this square belongs to, null for a free-standing square
 
     public Square(boolean colour, int row, int column){
+        this(null, colour, row, column);
+    }
+
+    Square(Board board, boolean colour, int row, int column){
+        this.board = board;
         myColour = colour;
         this.row = row;
         this.column = column;
@@ -33,15 +39,21 @@ public class Square {
         return column;
     }
 
+    public Board getBoard(){
+        return board;
+    }
+
     /**
      * eliminates the current piece of this square if non-null and sets it to newPiece
      * does nothing if newPiece is the exact same object as myPiece
+     * tells the board this square belongs to (if any) that its piece changed
      * @param newPiece the new piece that belongs on this square
      */
     public void setPiece(Piece newPiece){
         if(newPiece == myPiece){
             return;
         }
+        Piece oldPiece = myPiece;
         if(myPiece == null){
             myPiece = newPiece;
             if(newPiece != null) {
@@ -58,6 +70,9 @@ public class Square {
                 newPiece.setSquare(this);
             }
         }
+        if(board != null){
+            board.squareChanged(this, oldPiece, myPiece);
+        }
     }
 
     @Override
@@ -0,0 +1,35 @@
+package model;
+
+/**
+ * what a single turn changed on a Board's pieces and game state, so Board.undo() can take the turn back
+ * the bitboards don't need their own record as they follow the squares as the pieces are put back
+ */
+class TurnRecord {
+    // the move encoded by Move, and the piece that moved and where it moved
+    int move;
+    Piece mover;
+    Square from;
+    Square to;
+    boolean moverHasMoved;
+    int moverTurnDoubleJumped;
+
+    // the piece eliminated by the move (on an en passant, capturedSquare is not to)
+    Piece captured;
+    Square capturedSquare;
+
+    // the rook that moved when castling
+    Rook castledRook;
+    Square rookFrom;
+
+    // board state before the move
+    boolean currentTurn;
+    int turnCount;
+    int stalemateCounter;
+    boolean inCheck;
+    Pawn promotable;
+
+    // set by Board.promote() if the moved pawn was promoted afterwards
+    Pawn promotedPawn;
+    Piece promotedTo;
+    int promotedIndex;
+}
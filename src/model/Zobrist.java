@@ -0,0 +1,48 @@
+package model;
+
+/**
+ * the random keys Position XORs together into a 64-bit hash of a position
+ * there is one key per piece code and square, one per castling right, one per en passant file and one for white
+ * to move; they come from a fixed-seed SplitMix64 generator, so every run hashes a position to the same key
+ */
+final class Zobrist {
+
+    static final long[][] PIECES = new long[12][64]; // [piece code][square]
+    static final long[] CASTLING = new long[16];     // every combination of the castling bits
+    static final long[] EN_PASSANT = new long[8];    // [file]
+    static final long WHITE_TO_MOVE;
+
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        for(int code = 0; code < 12; code++){
+            for(int sq = 0; sq < 64; sq++){
+                PIECES[code][sq] = next();
+            }
+        }
+        long[] rights = new long[4];
+        for(int i = 0; i < 4; i++){
+            rights[i] = next();
+        }
+        for(int castling = 0; castling < 16; castling++){
+            for(int i = 0; i < 4; i++){
+                if((castling & (1 << i)) != 0){
+                    CASTLING[castling] ^= rights[i];
+                }
+            }
+        }
+        for(int file = 0; file < 8; file++){
+            EN_PASSANT[file] = next();
+        }
+        WHITE_TO_MOVE = next();
+    }
+
+    private Zobrist(){}
+
+    private static long next(){
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+package pgn;
+
+import model.Position;
+
+import java.util.Map;
+
+/**
+ * told about the games PgnReader reads, in the order they come in the file
+ * every method does nothing unless overridden; a listener is only ever called from one thread
+ */
+public interface PgnListener {
+
+    /**
+     * called once the tags of a game have been read, before its first move
+     * @param tags the game's tags in file order, eg. "White" and "Result"; valid until the next game starts
+     */
+    default void gameStarted(Map<String, String> tags){}
+
+    /**
+     * called after each move of the main line, and once with Move.NONE for the position the game starts from
+     * @param position the position after the move; it is reused for the next move, so copy it to keep it
+     * @param move the move just played, encoded by Move
+     * @param ply the number of moves played so far in the game
+     */
+    default void positionReached(Position position, int move, int ply){}
+
+    /**
+     * called when a game's result token has been read
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     * @param plies the number of moves in the game's main line
+     */
+    default void gameFinished(Map<String, String> tags, String result, int plies){}
+
+    /**
+     * called instead of gameFinished when a game can't be replayed; the reader goes on with the next game
+     * @param reason what was wrong, eg. a move that isn't legal in the game
+     */
+    default void gameFailed(Map<String, String> tags, String reason){}
+}
@@ -0,0 +1,408 @@
+package pgn;
+
+import exceptions.InvalidFenException;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.San;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * reads games in Portable Game Notation from a stream, a line at a time, and replays their main lines on a Position,
+ * telling a PgnListener about every game and every position in it
+ *
+ * nothing is kept from one game to the next but the tags of the current one, so memory doesn't grow with the size
+ * of the file; one Position and MoveList are reused for every game, and comments, NAGs and variations are skipped
+ * read(Path, int, Supplier) splits a file into byte ranges at "[Event " lines and reads each range on a thread of
+ * its own
+ */
+public class PgnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String GAME_START = "[Event ";
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private long offset;     // the offset in the stream of buffer[pos]
+    private final long start; // skip to the first game starting at or after this offset
+    private final long end;   // stop at the first game starting at or after this offset
+
+    private byte[] line;
+    private int lineLength;
+    private long lineStart;
+
+    private final Position startPosition;
+    private final Position position;
+    private final MoveList legal;
+    private final Map<String, String> tags;
+    private PgnListener listener;
+
+    private boolean inGame;     // the current game's movetext has started
+    private boolean tagsPending; // the next tag starts a new game's tags
+    private String failure;     // why the current game can't be replayed, null if it can
+    private boolean inComment;
+    private int variationDepth;
+    private int plies;
+    private long games;
+
+    /**
+     * @param in the stream to read; it is read from where it is up to its end
+     */
+    public PgnReader(InputStream in){
+        this(in, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param file the PGN file to read
+     */
+    public PgnReader(Path file) throws IOException {
+        this(Files.newInputStream(file));
+    }
+
+    /**
+     * reads the games starting in [start, end) of the stream
+     * @param in the stream, already skipped to start - 1 if start > 0
+     */
+    private PgnReader(InputStream in, long start, long end){
+        this.in = in;
+        this.start = start;
+        this.end = end;
+        buffer = new byte[BUFFER_SIZE];
+        offset = (start > 0) ? start - 1 : 0;
+        line = new byte[256];
+        try {
+            startPosition = Position.fromFen(Position.START_FEN);
+        } catch (InvalidFenException e) {
+            throw new IllegalStateException(e);
+        }
+        position = new Position(startPosition);
+        legal = new MoveList();
+        tags = new LinkedHashMap<String, String>();
+        tagsPending = true;
+    }
+
+    /**
+     * reads every game up to the end of the stream
+     * @param listener told about each game and position
+     * @return the number of games read, including the ones that failed
+     */
+    public long read(PgnListener listener) throws IOException {
+        this.listener = listener;
+        boolean seeking = start > 0;
+        if(seeking){
+            readLine(); // the rest of the line start - 1 is on
+        }
+        while(readLine()){
+            if(isGameStart()){
+                if(lineStart >= end){
+                    break;
+                }
+                seeking = false;
+            }
+            if(!seeking){
+                process(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+            }
+        }
+        if(inGame){
+            fail("the game has no result");
+            finishGame("*");
+        }
+        return games;
+    }
+
+    /**
+     * reads a PGN file on threads threads, each reading the games that start in its share of the file
+     * @param file the file to read
+     * @param threads the number of threads to read with
+     * @param listeners gives each thread its own listener, so listeners needn't be thread safe
+     * @return the number of games read
+     */
+    public static long read(final Path file, int threads, Supplier<? extends PgnListener> listeners)
+            throws IOException {
+        long size = Files.size(file);
+        int n = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            List<Future<Long>> parts = new ArrayList<Future<Long>>();
+            for(int i = 0; i < n; i++){
+                final long start = size * i / n;
+                final long end = size * (i + 1) / n;
+                final PgnListener listener = listeners.get();
+                parts.add(pool.submit(() -> readRange(file, start, end, listener)));
+            }
+            long games = 0;
+            for(Future<Long> part : parts){
+                games += part.get();
+            }
+            return games;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + file);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException){
+                throw (IOException) e.getCause();
+            } else if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long readRange(Path file, long start, long end, PgnListener listener) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            long toSkip = (start > 0) ? start - 1 : 0;
+            while(toSkip > 0){
+                long skipped = in.skip(toSkip);
+                if(skipped <= 0){
+                    return 0;
+                }
+                toSkip -= skipped;
+            }
+            return new PgnReader(in, start, end).read(listener);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // reads the next line, without its line break, into line; returns false at the end of the stream
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        lineStart = offset;
+        while(true){
+            if(pos == limit){
+                limit = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if(limit <= 0){
+                    limit = 0;
+                    return lineLength > 0;
+                }
+            }
+            int i = pos;
+            while((i < limit) && (buffer[i] != '\n')){
+                i++;
+            }
+            append(pos, i - pos);
+            offset += i - pos;
+            pos = i;
+            if(i < limit){
+                pos++;
+                offset++;
+                if((lineLength > 0) && (line[lineLength - 1] == '\r')){
+                    lineLength--;
+                }
+                return true;
+            }
+        }
+    }
+
+    private void append(int from, int length){
+        if(lineLength + length > line.length){
+            byte[] bigger = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, bigger, 0, lineLength);
+            line = bigger;
+        }
+        System.arraycopy(buffer, from, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private boolean isGameStart(){
+        if(inComment || (lineLength < GAME_START.length())){
+            return false;
+        }
+        for(int i = 0; i < GAME_START.length(); i++){
+            if(line[i] != GAME_START.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // splits a line into tags, comments, variations and movetext tokens
+    private void process(String s){
+        int n = s.length();
+        if(!inComment && (n > 0) && (s.charAt(0) == '%')){
+            return; // escaped line
+        }
+        int i = 0;
+        while(i < n){
+            if(inComment){
+                int close = s.indexOf('}', i);
+                if(close < 0){
+                    return;
+                }
+                inComment = false;
+                i = close + 1;
+                continue;
+            }
+            char c = s.charAt(i);
+            if(Character.isWhitespace(c)){
+                i++;
+            } else if((c == '[') && (variationDepth == 0)){
+                tag(s, i);
+                return;
+            } else if(c == '{'){
+                inComment = true;
+                i++;
+            } else if(c == ';'){
+                return;
+            } else if(c == '('){
+                variationDepth++;
+                i++;
+            } else if(c == ')'){
+                if(variationDepth > 0){
+                    variationDepth--;
+                }
+                i++;
+            } else{
+                int j = i;
+                while((j < n) && !Character.isWhitespace(s.charAt(j)) && ("{}();[]".indexOf(s.charAt(j)) < 0)){
+                    j++;
+                }
+                token(s.substring(i, j));
+                i = j;
+            }
+        }
+    }
+
+    // [Name "value"], where the value may escape quotes and backslashes with a backslash
+    private void tag(String s, int i){
+        if(inGame){
+            fail("the game has no result");
+            finishGame("*");
+        }
+        if(tagsPending){
+            tags.clear();
+            tagsPending = false;
+        }
+        int quote = s.indexOf('"', i);
+        if(quote < 0){
+            return;
+        }
+        String name = s.substring(i + 1, quote).trim();
+        StringBuilder value = new StringBuilder();
+        for(int j = quote + 1; j < s.length(); j++){
+            char c = s.charAt(j);
+            if((c == '\\') && (j + 1 < s.length())){
+                value.append(s.charAt(++j));
+            } else if(c == '"'){
+                tags.put(name, value.toString());
+                return;
+            } else{
+                value.append(c);
+            }
+        }
+    }
+
+    private void token(String t){
+        if(t.equals("1-0") || t.equals("0-1") || t.equals("1/2-1/2") || t.equals("*")){
+            if(variationDepth == 0){
+                if(!inGame){
+                    startGame();
+                }
+                finishGame(t);
+            }
+            return;
+        }
+        if((variationDepth > 0) || (t.charAt(0) == '$') || t.equals("e.p.")){
+            return;
+        }
+        // move numbers, eg. "12." or "12...", which may run into the move
+        int k = 0;
+        while((k < t.length()) && Character.isDigit(t.charAt(k))){
+            k++;
+        }
+        if((k > 0) && (k < t.length()) && (t.charAt(k) == '.')){
+            while((k < t.length()) && (t.charAt(k) == '.')){
+                k++;
+            }
+            t = t.substring(k);
+        } else if((k > 0) && (k == t.length())){
+            return;
+        }
+        if(t.isEmpty()){
+            return;
+        }
+
+        if(!inGame){
+            startGame();
+        }
+        if(failure != null){
+            return;
+        }
+        legal.clear();
+        position.generateLegalMoves(legal);
+        int move = San.parse(position, t, legal);
+        if(move == Move.NONE){
+            fail("illegal move " + t + " after " + plies + " plies");
+            return;
+        }
+        position.makeMove(move);
+        plies++;
+        listener.positionReached(position, move, plies);
+    }
+
+    private void startGame(){
+        if(tagsPending){
+            tags.clear(); // a game without tags
+        }
+        inGame = true;
+        tagsPending = true;
+        failure = null;
+        plies = 0;
+        variationDepth = 0;
+        String fen = tags.get("FEN");
+        if(fen != null){
+            try {
+                position.set(Position.fromFen(fen));
+            } catch (InvalidFenException e) {
+                listener.gameStarted(tags);
+                fail(e.getMessage());
+                return;
+            }
+        } else{
+            position.set(startPosition);
+        }
+        listener.gameStarted(tags);
+        listener.positionReached(position, Move.NONE, 0);
+    }
+
+    private void fail(String reason){
+        if(failure == null){
+            failure = reason;
+        }
+    }
+
+    private void finishGame(String result){
+        games++;
+        inGame = false;
+        if(failure != null){
+            listener.gameFailed(tags, failure);
+        } else{
+            listener.gameFinished(tags, result, plies);
+        }
+        failure = null;
+    }
+}
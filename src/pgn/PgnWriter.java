@@ -0,0 +1,150 @@
+package pgn;
+
+import exceptions.InvalidFenException;
+import model.Board;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.San;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * writes games in Portable Game Notation to a Writer, one game at a time, so a long session or a server can archive
+ * every game as it ends without keeping finished games around
+ *
+ * the movetext is written a move at a time as the game is replayed on one reused Position, wrapping lines at 80
+ * columns as the PGN export format asks; nothing is buffered here, so wrap out in a BufferedWriter if it isn't one
+ */
+public class PgnWriter implements Flushable {
+
+    // the tags every PGN game has, in the order they are written, and their values when unknown
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    private static final String[] UNKNOWN = {"?", "?", "????.??.??", "?", "?", "?", "*"};
+    private static final int LINE_LENGTH = 80;
+
+    private final Writer out;
+    private final Position position;
+    private final MoveList legal;
+    private int column;
+
+    /**
+     * @param out where games are written
+     */
+    public PgnWriter(Writer out){
+        this.out = out;
+        position = new Position();
+        legal = new MoveList();
+    }
+
+    /**
+     * writes the game played on board so far, from the position it started in
+     * @param tags tag values by name, eg. "Event", "White", "Black"; the Result tag is the board's result
+     */
+    public void writeGame(Board board, Map<String, String> tags) throws IOException {
+        writeGame(tags, board.getStartFen(), board.getMoves(), board.getResult());
+    }
+
+    /**
+     * writes one game: the Seven Tag Roster (with "?" for any missing value), the rest of tags in their own order,
+     * SetUp and FEN tags if the game doesn't start from the standard position, then the moves in SAN
+     * @param tags tag values by name
+     * @param fen the position the game started from
+     * @param moves the moves of the game, encoded by Move, each legal in the position before it
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     * @throws IllegalArgumentException if fen isn't well formed or a move isn't legal
+     */
+    public void writeGame(Map<String, String> tags, String fen, int[] moves, String result) throws IOException {
+        try {
+            position.set(Position.fromFen(fen));
+        } catch (InvalidFenException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        for(int i = 0; i < SEVEN_TAG_ROSTER.length; i++){
+            String value = tags.get(SEVEN_TAG_ROSTER[i]);
+            if(SEVEN_TAG_ROSTER[i].equals("Result")){
+                value = result;
+            }
+            writeTag(SEVEN_TAG_ROSTER[i], (value == null) ? UNKNOWN[i] : value);
+        }
+        String start = position.toFen();
+        for(Map.Entry<String, String> tag : tags.entrySet()){
+            if(!isRoster(tag.getKey()) && !tag.getKey().equals("SetUp") && !tag.getKey().equals("FEN")){
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        if(!start.equals(Position.START_FEN)){
+            writeTag("SetUp", "1");
+            writeTag("FEN", start);
+        }
+        out.write('\n');
+
+        column = 0;
+        legal.clear();
+        position.generateLegalMoves(legal);
+        for(int i = 0; i < moves.length; i++){
+            int move = moves[i];
+            if(!legal.contains(move)){
+                throw new IllegalArgumentException("Illegal move " + Move.toString(move) + " after " + i + " plies");
+            }
+            boolean white = position.getSideToMove();
+            if(white || (i == 0)){
+                writeToken(position.getFullmoveNumber() + (white ? "." : "..."));
+            }
+            String san = San.toString(position, move, legal);
+            position.makeMove(move);
+            legal.clear();
+            position.generateLegalMoves(legal);
+            writeToken(san + San.checkMark(position, legal));
+        }
+        writeToken(result);
+        out.write("\n\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    // [Name "value"], escaping quotes and backslashes in the value
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if((c == '"') || (c == '\\')){
+                out.write('\\');
+            }
+            out.write(c);
+        }
+        out.write("\"]\n");
+    }
+
+    // writes a movetext token, starting a new line if it wouldn't fit on this one
+    private void writeToken(String token) throws IOException {
+        if(column > 0){
+            if(column + 1 + token.length() > LINE_LENGTH){
+                out.write('\n');
+                column = 0;
+            } else{
+                out.write(' ');
+                column++;
+            }
+        }
+        out.write(token);
+        column += token.length();
+    }
+
+    private static boolean isRoster(String name){
+        for(String tag : SEVEN_TAG_ROSTER){
+            if(tag.equals(name)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,283 @@
+package tablebase;
+
+import model.Bitboard;
+import model.Position;
+import model.UnitCost;
+
+/**
+ * a material signature, eg. "KRvKP", and the index scheme of its table
+ *
+ * the signature lists the pieces of the side the table calls white, King first, then "v" and the other side's; a
+ * position with the same pieces the other way round is looked up with its colours swapped and its ranks mirrored
+ * a position's index is its side to move, then the square of the first King, then the square of every other piece
+ * in signature order; the board is mirrored left to right so that King is on files a-d, and without pawns also top
+ * to bottom so it is on ranks 1-4, which folds every position onto one of 2 * 32 * 64^(n-1) indices (2 * 16 *
+ * 64^(n-1) without pawns)
+ */
+public final class Material {
+
+    // signature letters by UnitCost ordinal
+    private static final String LETTERS = "KQRBNP";
+    private static final int PIECE_TYPES = 6;
+    private static final UnitCost[] UNITS = UnitCost.values();
+
+    private final String signature;
+    private final int[] types;  // the UnitCost ordinal of each piece, the first side's pieces first
+    private final int whiteCount; // the number of pieces the first side has
+    private final int[] counts; // [colour * PIECE_TYPES + type], how many of each piece there are
+    private final boolean pawns;
+    private final long size;
+
+    private Material(String signature, int[] types, int whiteCount){
+        this.signature = signature;
+        this.types = types;
+        this.whiteCount = whiteCount;
+        counts = new int[2 * PIECE_TYPES];
+        boolean hasPawns = false;
+        for(int i = 0; i < types.length; i++){
+            counts[((i < whiteCount) ? 0 : PIECE_TYPES) + types[i]]++;
+            hasPawns |= types[i] == UnitCost.PAWN.ordinal();
+        }
+        pawns = hasPawns;
+        long n = 2 * (pawns ? 32 : 16);
+        for(int i = 1; i < types.length; i++){
+            n *= 64;
+        }
+        size = n;
+    }
+
+    /**
+     * @param signature the pieces of each side, King first, eg. "KQvK" or "KRvKP"; the pieces after the King may
+     * be in any order
+     * @return the material, with each side's pieces in the order King, Queen, Rook, Bishop, Knight, pawn
+     * @throws IllegalArgumentException if signature isn't two sides with one King each
+     */
+    public static Material of(String signature){
+        String[] sides = signature.toUpperCase().split("V");
+        if(sides.length != 2){
+            throw new IllegalArgumentException("Not a material signature: " + signature);
+        }
+        String white = sort(sides[0], signature);
+        String black = sort(sides[1], signature);
+        int[] types = new int[white.length() + black.length()];
+        String all = white + black;
+        for(int i = 0; i < all.length(); i++){
+            types[i] = LETTERS.indexOf(all.charAt(i));
+        }
+        return new Material(white + "v" + black, types, white.length());
+    }
+
+    // one side's pieces in LETTERS order, checking there is exactly one King and it comes first
+    private static String sort(String side, String signature){
+        int[] count = new int[PIECE_TYPES];
+        for(char c : side.toCharArray()){
+            int type = LETTERS.indexOf(c);
+            if(type < 0){
+                throw new IllegalArgumentException("Not a material signature: " + signature);
+            }
+            count[type]++;
+        }
+        if((count[UnitCost.KING.ordinal()] != 1) || (side.charAt(0) != 'K')){
+            throw new IllegalArgumentException("Each side needs one King, written first: " + signature);
+        }
+        StringBuilder sb = new StringBuilder();
+        for(int type = 0; type < PIECE_TYPES; type++){
+            for(int i = 0; i < count[type]; i++){
+                sb.append(LETTERS.charAt(type));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the signature of the pieces on position, white's first, eg. "KQvK"
+     */
+    public static String signatureOf(Position position){
+        StringBuilder sb = new StringBuilder();
+        for(boolean side : new boolean[]{true, false}){
+            for(UnitCost u : UnitCost.values()){
+                for(int i = Long.bitCount(position.getPieces(side, u)); i > 0; i--){
+                    sb.append(LETTERS.charAt(u.ordinal()));
+                }
+            }
+            if(side){
+                sb.append('v');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the signature tables are kept under for the same pieces as signature: the side with more material
+     * (by UnitCost, then by the stronger pieces) first
+     */
+    public static String canonical(String signature){
+        Material m = of(signature);
+        String[] sides = m.signature.split("v");
+        int c = compareSides(sides[0], sides[1]);
+        return (c >= 0) ? m.signature : sides[1] + "v" + sides[0];
+    }
+
+    // positive if side a is stronger than side b: more material, then more pieces, then stronger pieces
+    private static int compareSides(String a, String b){
+        if(cost(a) != cost(b)){
+            return Integer.compare(cost(a), cost(b));
+        }
+        if(a.length() != b.length()){
+            return Integer.compare(a.length(), b.length());
+        }
+        for(int i = 0; i < a.length(); i++){
+            if(a.charAt(i) != b.charAt(i)){
+                // the earlier letter is the stronger piece
+                return Integer.compare(LETTERS.indexOf(b.charAt(i)), LETTERS.indexOf(a.charAt(i)));
+            }
+        }
+        return 0;
+    }
+
+    private static int cost(String side){
+        int cost = 0;
+        for(char c : side.toCharArray()){
+            cost += UNITS[LETTERS.indexOf(c)].getCost();
+        }
+        return cost;
+    }
+
+    public String getSignature(){
+        return signature;
+    }
+
+    // the number of pieces
+    public int getPieces(){
+        return types.length;
+    }
+
+    public boolean hasPawns(){
+        return pawns;
+    }
+
+    /**
+     * @return the number of indices, one more than the largest index()
+     */
+    public long size(){
+        return size;
+    }
+
+    /**
+     * @param position a position with this material, or this material with the colours swapped
+     * @return true if position has the colours swapped, so that its black pieces are this material's first side
+     */
+    public boolean isSwapped(Position position){
+        for(int type = 0; type < PIECE_TYPES; type++){
+            UnitCost u = UNITS[type];
+            if((Long.bitCount(position.getPieces(true, u)) != counts[type])
+                    || (Long.bitCount(position.getPieces(false, u)) != counts[PIECE_TYPES + type])){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param position a position with this material, or this material with the colours swapped, without castling
+     * rights or an en passant square that matters
+     * @param squares where the squares of the pieces are put, at least getPieces() long
+     * @return the index of position
+     */
+    public long index(Position position, int[] squares){
+        boolean swapped = isSwapped(position);
+        int slot = 0;
+        for(int side = 0; side < 2; side++){
+            // the table's first side is black on a swapped position, seen from the other end of the board
+            boolean colour = (side == 0) != swapped;
+            int end = (side == 0) ? whiteCount : types.length;
+            while(slot < end){
+                long b = position.getPieces(colour, UNITS[types[slot]]);
+                while((b != 0) && (slot < end)){
+                    int sq = Long.numberOfTrailingZeros(b);
+                    b &= b - 1;
+                    squares[slot++] = swapped ? (sq ^ 56) : sq;
+                }
+            }
+        }
+        return index(squares, position.getSideToMove() != swapped);
+    }
+
+    /**
+     * @param squares the square of each piece in signature order, seen from the first side
+     * @param firstToMove true if the first side is to move
+     * @return the index of the position, after mirroring it into the folded part of the board
+     */
+    public long index(int[] squares, boolean firstToMove){
+        int king = squares[0];
+        int flip = 0;
+        if((king & 7) > 3){
+            flip ^= 7;
+        }
+        if(!pawns && ((king >>> 3) > 3)){
+            flip ^= 56;
+        }
+        king ^= flip;
+        long index = ((firstToMove ? 0 : 1) * (pawns ? 32 : 16)) + ((king >>> 3) << 2) + (king & 7);
+        for(int i = 1; i < types.length; i++){
+            index = (index << 6) | (squares[i] ^ flip);
+        }
+        return index;
+    }
+
+    /**
+     * the inverse of index(), seen from the first side
+     * @param squares where the square of each piece is put
+     * @return true if the first side is to move
+     */
+    public boolean decode(long index, int[] squares){
+        for(int i = types.length - 1; i > 0; i--){
+            squares[i] = (int) (index & 63);
+            index >>>= 6;
+        }
+        int kings = pawns ? 32 : 16;
+        int king = (int) (index % kings);
+        squares[0] = ((king >>> 2) << 3) | (king & 3);
+        return index < kings;
+    }
+
+    /**
+     * sets position up with the pieces on squares, the first side as white
+     * @return false if two pieces share a square or a pawn is on the first or last rank, leaving position as it was
+     */
+    public boolean setUp(Position position, int[] squares, boolean firstToMove){
+        long occupied = 0L;
+        for(int i = 0; i < types.length; i++){
+            long b = Bitboard.bit(squares[i]);
+            if(((occupied & b) != 0)
+                    || ((types[i] == UnitCost.PAWN.ordinal()) && (((Bitboard.RANK_1 | Bitboard.RANK_8) & b) != 0))){
+                return false;
+            }
+            occupied |= b;
+        }
+        position.clear(firstToMove);
+        for(int i = 0; i < types.length; i++){
+            position.put(squares[i], i < whiteCount, UNITS[types[i]]);
+        }
+        return true;
+    }
+
+    /**
+     * @return the UnitCost ordinal of piece i
+     */
+    public int getType(int i){
+        return types[i];
+    }
+
+    /**
+     * @return true if piece i belongs to the first side
+     */
+    public boolean isFirstSide(int i){
+        return i < whiteCount;
+    }
+
+    @Override
+    public String toString(){
+        return signature;
+    }
+}
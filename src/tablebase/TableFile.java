@@ -0,0 +1,125 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * the file layout of a table: a 16-byte header (magic, bits per value, number of values), then every value packed
+ * into bits-wide fields of big-endian longs, lowest bits first, with a spare long at the end so any value can be
+ * read with two longs
+ *
+ * a value is 0 for a draw, or the distance to mate in plies plus 1: an odd distance is a win for the side to move
+ * and an even one a loss, 0 being checkmated
+ */
+final class TableFile {
+
+    static final int MAGIC = 0x43544231; // "CTB1"
+    static final int HEADER_SIZE = 16;
+    static final String EXTENSION = ".ctb";
+
+    private static final int BLOCK = 1 << 17; // longs written at a time
+
+    private TableFile(){}
+
+    /**
+     * writes values to file, packed into as few bits as the largest needs
+     */
+    static void write(Path file, byte[] values) throws IOException {
+        int max = 0;
+        for(byte v : values){
+            max = Math.max(max, v & 0xFF);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(bits).putLong(values.length).flip();
+            writeFully(out, header);
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK * 8);
+            long word = 0L;
+            int filled = 0; // bits of word used
+            for(byte b : values){
+                long v = b & 0xFF;
+                word |= v << filled;
+                filled += bits;
+                if(filled >= 64){
+                    put(out, buffer, word);
+                    filled -= 64;
+                    word = (filled > 0) ? (v >>> (bits - filled)) : 0L;
+                }
+            }
+            if(filled > 0){
+                put(out, buffer, word);
+            }
+            put(out, buffer, 0L); // the spare long
+            buffer.flip();
+            writeFully(out, buffer);
+        }
+    }
+
+    private static void put(FileChannel out, ByteBuffer buffer, long word) throws IOException {
+        if(!buffer.hasRemaining()){
+            buffer.flip();
+            writeFully(out, buffer);
+            buffer.clear();
+        }
+        buffer.putLong(word);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()){
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * reads every value of a table written by write()
+     */
+    static byte[] read(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            int bits = checkHeader(data, file);
+            long entries = data.getLong(8);
+            byte[] values = new byte[(int) entries];
+            for(int i = 0; i < values.length; i++){
+                values[i] = (byte) get(data, i, bits);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * @return the bits per value of the table in data
+     * @throws IOException if data doesn't start with a table header or is too short for its values
+     */
+    static int checkHeader(ByteBuffer data, Path file) throws IOException {
+        if((data.limit() < HEADER_SIZE) || (data.getInt(0) != MAGIC)){
+            throw new IOException(file + " is not a table");
+        }
+        int bits = data.getInt(4);
+        long entries = data.getLong(8);
+        if((bits < 1) || (bits > 8) || (entries < 0) || (entries > Integer.MAX_VALUE)
+                || (HEADER_SIZE + ((entries * bits + 63) / 64 + 1) * 8 > data.limit())){
+            throw new IOException(file + " is not a table");
+        }
+        return bits;
+    }
+
+    /**
+     * @param data a whole table file
+     * @return value i of the table
+     */
+    static int get(ByteBuffer data, long i, int bits){
+        long bit = i * bits;
+        int word = HEADER_SIZE + (int) ((bit >>> 6) << 3);
+        int shift = (int) (bit & 63);
+        long v = data.getLong(word) >>> shift;
+        if(shift + bits > 64){
+            v |= data.getLong(word + 8) << (64 - shift);
+        }
+        return (int) (v & ((1L << bits) - 1));
+    }
+}
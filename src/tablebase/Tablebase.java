@@ -0,0 +1,242 @@
+package tablebase;
+
+import model.Bitboard;
+import model.Board;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.UnitCost;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * the endgame tables in a directory, memory-mapped read-only and probed in place, so tables of any size cost no
+ * heap and the operating system pages in only the parts that are probed
+ *
+ * a table is found by a key made of the piece counts of both sides and the position's index is worked out from its
+ * squares, so a probe neither locks nor allocates and any number of search threads can probe at every node
+ * a value is 0 for a draw, or the distance to mate in plies plus 1, see TableFile
+ */
+public class Tablebase {
+
+    public static final int MISS = -1; // the position isn't in the tables
+    public static final int DRAW = 0;
+
+    private static final int COUNT_BITS = 4; // bits per piece count in a material key
+    private static final UnitCost[] UNITS = UnitCost.values();
+
+    private static final long BARE_KINGS = key(Material.of("KvK"), false);
+
+    // a table is filed under the material keys of both its colourings, sorted for binary search
+    private final long[] keys;
+    private final Table[] tables;
+    private final int maxPieces;
+
+    // one mapped table file
+    private static final class Table {
+        final Material material;
+        final ByteBuffer data;
+        final int bits;
+
+        Table(Material material, ByteBuffer data, int bits){
+            this.material = material;
+            this.data = data;
+            this.bits = bits;
+        }
+    }
+
+    /**
+     * maps every table in directory
+     * @param directory a directory of tables written by TablebaseGenerator
+     * @throws IOException if directory can't be read or a table in it is damaged
+     */
+    public Tablebase(Path directory) throws IOException {
+        TreeMap<Long, Table> byKey = new TreeMap<Long, Table>();
+        int most = 2;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TableFile.EXTENSION)) {
+            for(Path file : files){
+                String name = file.getFileName().toString();
+                Material m;
+                try {
+                    m = Material.of(name.substring(0, name.length() - TableFile.EXTENSION.length()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + " is not named after a material signature");
+                }
+                ByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                int bits = TableFile.checkHeader(buffer, file);
+                if(buffer.getLong(8) != m.size()){
+                    throw new IOException(file + " doesn't have a value for every " + m + " position");
+                }
+                Table t = new Table(m, buffer, bits);
+                byKey.put(key(m, false), t);
+                byKey.put(key(m, true), t);
+                most = Math.max(most, m.getPieces());
+            }
+        }
+        keys = new long[byKey.size()];
+        tables = new Table[byKey.size()];
+        int i = 0;
+        for(Map.Entry<Long, Table> e : byKey.entrySet()){
+            keys[i] = e.getKey();
+            tables[i++] = e.getValue();
+        }
+        maxPieces = most;
+    }
+
+    // the material key of m's pieces, with its first side as black if swapped
+    private static long key(Material m, boolean swapped){
+        int[] counts = new int[2 * UNITS.length];
+        for(int i = 0; i < m.getPieces(); i++){
+            counts[((m.isFirstSide(i) != swapped) ? 0 : UNITS.length) + m.getType(i)]++;
+        }
+        long key = 0L;
+        for(int count : counts){
+            key = (key << COUNT_BITS) | count;
+        }
+        return key;
+    }
+
+    // the material key of position's pieces, the same as key() gives for a table of them
+    private static long key(Position position){
+        return (key(position, true) << (COUNT_BITS * UNITS.length)) | key(position, false);
+    }
+
+    private static long key(Position position, boolean side){
+        long key = 0L;
+        for(UnitCost u : UNITS){
+            key = (key << COUNT_BITS) | Math.min(Long.bitCount(position.getPieces(side, u)), (1 << COUNT_BITS) - 1);
+        }
+        return key;
+    }
+
+    /**
+     * @return the number of tables
+     */
+    public int size(){
+        return new HashSet<Table>(Arrays.asList(tables)).size();
+    }
+
+    /**
+     * @return the most pieces, Kings included, of any table; a position with more is never in the tables
+     */
+    public int getMaxPieces(){
+        return maxPieces;
+    }
+
+    /**
+     * looks position up without allocating
+     * @param squares scratch space for the squares of the pieces, at least getMaxPieces() long, one per thread
+     * @return the value of position, or MISS if there is no table for it, it has castling rights, or it has an en
+     * passant capture, which the tables leave out
+     */
+    public int probe(Position position, int[] squares){
+        if((position.getCastlingRights() != 0) || hasEnPassant(position)){
+            return MISS;
+        }
+        long key = key(position);
+        if(key == BARE_KINGS){
+            return DRAW;
+        }
+        int i = Arrays.binarySearch(keys, key);
+        if(i < 0){
+            return MISS;
+        }
+        Table t = tables[i];
+        return TableFile.get(t.data, t.material.index(position, squares), t.bits);
+    }
+
+    /**
+     * @see #probe(Position, int[])
+     */
+    public int probe(Position position){
+        return probe(position, new int[maxPieces]);
+    }
+
+    private static boolean hasEnPassant(Position position){
+        int ep = position.getEnPassantSquare();
+        boolean side = position.getSideToMove();
+        return (ep >= 0) && ((Bitboard.pawnAttacks(!side, ep) & position.getPieces(side, UnitCost.PAWN)) != 0L);
+    }
+
+    /**
+     * @return true if value is a win for the side to move
+     */
+    public static boolean isWin(int value){
+        return (value > 0) && ((value - 1) % 2 == 1);
+    }
+
+    /**
+     * @return true if value is a loss for the side to move
+     */
+    public static boolean isLoss(int value){
+        return (value > 0) && ((value - 1) % 2 == 0);
+    }
+
+    /**
+     * @return the plies to mate of a win or loss
+     */
+    public static int distance(int value){
+        return value - 1;
+    }
+
+    /**
+     * picks the move that mates soonest from a won position, holds a drawn one, or resists longest in a lost one
+     * @return the move, or Move.NONE if position or one of its moves isn't in the tables, or it has no moves
+     */
+    public int bestMove(Position position){
+        Position p = new Position(position);
+        MoveList legal = new MoveList();
+        p.generateLegalMoves(legal);
+        int[] squares = new int[maxPieces];
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for(int i = 0; i < legal.size(); i++){
+            int move = legal.get(i);
+            p.makeMove(move);
+            int value = probe(p, squares);
+            p.unmakeMove();
+            if(value == MISS){
+                return Move.NONE;
+            }
+            // the position after move is from the opponent's side
+            int rank = isLoss(value) ? 1000 - distance(value) : (isWin(value) ? -1000 + distance(value) : 0);
+            if(rank > bestRank){
+                bestRank = rank;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * adjudicates a game whose position is in the tables by its result with perfect play
+     * @return board.getResult() if the game is over, otherwise "1-0", "0-1" or "1/2-1/2" from the tables, or "*"
+     * if the position isn't in them
+     */
+    public String adjudicate(Board board){
+        String result = board.getResult();
+        if(!result.equals("*") || (board.getPromotable() != null)){
+            return result;
+        }
+        int value = probe(board.getPosition());
+        if(value == MISS){
+            return "*";
+        } else if(value == DRAW){
+            return "1/2-1/2";
+        }
+        return (isWin(value) == board.getCurrentPlayer()) ? "1-0" : "0-1";
+    }
+}
@@ -0,0 +1,429 @@
+package tablebase;
+
+import model.Bitboard;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import model.UnitCost;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * generates endgame tables by retrograde analysis: every position of a material signature gets its distance to
+ * mate, or a draw, with perfect play
+ *
+ * mates are found first, then each pass d finds the positions mated or mating in d plies: only predecessors of the
+ * positions found in pass d - 1 (found by un-moving the side that just moved) and positions whose best capture or
+ * promotion mates in d can change, and they are settled from the values of their moves, so a pass touches a small
+ * part of the table; captures and promotions leave the table, so the tables they lead to are generated first
+ * every pass is split across threads by index range; a thread only writes the values of its own range, and the
+ * candidate marks it sets elsewhere are all the same value, so no locks are needed
+ */
+public class TablebaseGenerator {
+
+    private static final int INVALID = 0xFF;
+    private static final int MAX_DISTANCE = 0xFD; // so a value (distance + 1) never reads as INVALID
+    private static final int CHUNK = 1 << 14;
+    private static final UnitCost[] UNITS = UnitCost.values();
+
+    private final Path directory;
+    private final int threads;
+    private final Map<String, byte[]> tables; // values by canonical signature, invalid positions as draws
+    private final Map<String, Material> materials;
+
+    /**
+     * @param directory where tables are read from if they are there and written to once generated, or null to keep
+     * them in memory only
+     * @param threads the threads to generate on
+     */
+    public TablebaseGenerator(Path directory, int threads){
+        this.directory = directory;
+        this.threads = Math.max(1, threads);
+        tables = new HashMap<String, byte[]>();
+        materials = new HashMap<String, Material>();
+    }
+
+    /**
+     * usage: TablebaseGenerator [-threads n] directory KQvK KRvK KPvK ...
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int i = 0;
+        if((args.length > 1) && args[0].equals("-threads")){
+            threads = Integer.parseInt(args[1]);
+            i = 2;
+        }
+        if(args.length - i < 2){
+            System.out.println("usage: TablebaseGenerator [-threads n] directory KQvK KRvK KPvK ...");
+            return;
+        }
+        Path directory = Paths.get(args[i]);
+        Files.createDirectories(directory);
+        TablebaseGenerator generator = new TablebaseGenerator(directory, threads);
+        for(i++; i < args.length; i++){
+            long start = System.nanoTime();
+            String signature = Material.canonical(args[i]);
+            byte[] values = generator.generate(signature);
+            int longest = 0;
+            for(byte v : values){
+                longest = Math.max(longest, (v & 0xFF) - 1);
+            }
+            System.out.println(signature + ": " + values.length + " positions, longest mate " + longest
+                    + " plies, " + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * generates the table of signature, and before it every table its captures and promotions lead to, unless they
+     * have been generated or are in the directory already
+     * @param signature a material signature such as "KRvKP", in either order
+     * @return the value of every index of the canonical signature's table, see TableFile
+     */
+    public synchronized byte[] generate(String signature) throws IOException {
+        String canonical = Material.canonical(signature);
+        byte[] values = tables.get(canonical);
+        if(values != null){
+            return values;
+        }
+        Material m = material(canonical);
+        Path file = (directory == null) ? null : directory.resolve(canonical + TableFile.EXTENSION);
+        if((file != null) && Files.exists(file)){
+            values = TableFile.read(file);
+        } else{
+            for(String next : successors(m)){
+                generate(next);
+            }
+            values = solve(m);
+            if(file != null){
+                TableFile.write(file, values);
+            }
+        }
+        tables.put(canonical, values);
+        return values;
+    }
+
+    /**
+     * @param position a position whose table has been generated, without castling rights
+     * @return its value, see TableFile; 0 for bare Kings
+     */
+    public synchronized int probe(Position position){
+        return exitValue(position, new int[8]);
+    }
+
+    // the signatures a capture or promotion on m leads to, other than bare Kings
+    private static List<String> successors(Material m){
+        String[] sides = m.getSignature().split("v");
+        List<String> next = new ArrayList<String>();
+        for(int s = 0; s < 2; s++){
+            for(int i = 1; i < sides[s].length(); i++){
+                String fewer = sides[s].substring(0, i) + sides[s].substring(i + 1);
+                next.add((s == 0) ? fewer + "v" + sides[1] : sides[0] + "v" + fewer);
+                if(sides[s].charAt(i) == 'P'){
+                    for(char promoted : "QRBN".toCharArray()){
+                        String side = fewer + promoted;
+                        next.add((s == 0) ? side + "v" + sides[1] : sides[0] + "v" + side);
+                    }
+                }
+            }
+        }
+        next.remove("KvK");
+        return next;
+    }
+
+    private Material material(String signature){
+        Material m = materials.get(signature);
+        if(m == null){
+            m = Material.of(signature);
+            materials.put(signature, m);
+        }
+        return m;
+    }
+
+    // the value of a position with different material from the table being solved, whose table exists
+    private int exitValue(Position position, int[] squares){
+        String signature = Material.signatureOf(position);
+        if(signature.equals("KvK")){
+            return 0;
+        }
+        String canonical = Material.canonical(signature);
+        byte[] values = tables.get(canonical);
+        if(values == null){
+            throw new IllegalStateException("No table for " + canonical);
+        }
+        return values[(int) material(canonical).index(position, squares)] & 0xFF;
+    }
+
+    // per-thread scratch space
+    private static class Scratch {
+        final Position position = new Position();
+        final MoveList legal = new MoveList();
+        final int[] squares = new int[8];
+        final int[] unmoved = new int[8];
+    }
+
+    private interface RangeTask {
+        void run(int from, int to, Scratch scratch);
+    }
+
+    // runs task over [0, size) in chunks on every thread
+    private void parallel(ExecutorService pool, final int size, final RangeTask task) throws IOException {
+        final AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+        for(int t = 0; t < threads; t++){
+            workers.add(pool.submit(() -> {
+                Scratch scratch = new Scratch();
+                int from;
+                while((from = next.getAndAdd(CHUNK)) < size){
+                    task.run(from, Math.min(size, from + CHUNK), scratch);
+                }
+            }));
+        }
+        try {
+            for(Future<?> w : workers){
+                w.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while generating");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // works out the value of every index of m
+    private byte[] solve(final Material m) throws IOException {
+        if(m.size() > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException(m + " has too many positions to generate");
+        }
+        final int size = (int) m.size();
+        final byte[] value = new byte[size];
+        final byte[] mark = new byte[size];    // 1 if a move of the position reached a newly settled position
+        final byte[] exitWin = new byte[size]; // the value of the best winning capture or promotion, 0 if none
+        final AtomicInteger pending = new AtomicInteger(); // the largest value set or promised by exitWin
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // mates, stalemates, invalid positions, and positions that can only leave the table
+            parallel(pool, size, (from, to, s) -> {
+                for(int i = from; i < to; i++){
+                    boolean first = m.decode(i, s.squares);
+                    if(!m.setUp(s.position, s.squares, first)
+                            || s.position.isInCheck(!s.position.getSideToMove())){
+                        value[i] = (byte) INVALID;
+                        continue;
+                    }
+                    s.legal.clear();
+                    s.position.generateLegalMoves(s.legal);
+                    if(s.legal.isEmpty()){
+                        value[i] = (byte) (s.position.isInCheck(s.position.getSideToMove()) ? 1 : 0);
+                        continue;
+                    }
+                    boolean inTable = false;
+                    int bestExit = Integer.MAX_VALUE;
+                    for(int j = 0; j < s.legal.size(); j++){
+                        int move = s.legal.get(j);
+                        if(!leavesTable(move)){
+                            inTable = true;
+                            continue;
+                        }
+                        s.position.makeMove(move);
+                        int v = exitValue(s.position, s.unmoved);
+                        s.position.unmakeMove();
+                        if((v != 0) && (((v - 1) & 1) == 0)){
+                            bestExit = Math.min(bestExit, v - 1);
+                        }
+                    }
+                    if(!inTable){
+                        value[i] = (byte) settle(m, s, value, Integer.MAX_VALUE);
+                        raise(pending, value[i] & 0xFF);
+                    } else if(bestExit != Integer.MAX_VALUE){
+                        exitWin[i] = (byte) check(bestExit + 2);
+                        raise(pending, bestExit + 2);
+                    }
+                }
+            });
+
+            for(int d = 0; ; d++){
+                final int level = d;
+                if(d > 0){
+                    parallel(pool, size, (from, to, s) -> {
+                        for(int i = from; i < to; i++){
+                            if((value[i] != 0) || ((mark[i] == 0) && ((exitWin[i] & 0xFF) != level + 1))){
+                                continue;
+                            }
+                            mark[i] = 0;
+                            boolean first = m.decode(i, s.squares);
+                            m.setUp(s.position, s.squares, first);
+                            s.legal.clear();
+                            s.position.generateLegalMoves(s.legal);
+                            if(!s.legal.isEmpty()){
+                                int v = settle(m, s, value, level);
+                                if(v != 0){
+                                    value[i] = (byte) check(v);
+                                    raise(pending, v);
+                                }
+                            }
+                        }
+                    });
+                }
+                final AtomicBoolean marked = new AtomicBoolean();
+                parallel(pool, size, (from, to, s) -> {
+                    boolean any = false;
+                    for(int i = from; i < to; i++){
+                        if((value[i] & 0xFF) == level + 1){
+                            any |= markPredecessors(m, i, s, value, mark);
+                        }
+                    }
+                    if(any){
+                        marked.set(true);
+                    }
+                });
+                if(!marked.get() && (level + 1 >= pending.get())){
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for(int i = 0; i < size; i++){
+            if((value[i] & 0xFF) == INVALID){
+                value[i] = 0;
+            }
+        }
+        return value;
+    }
+
+    private static boolean leavesTable(int move){
+        return Move.isCapture(move) || Move.isPromotion(move);
+    }
+
+    private static int check(int value){
+        if(value - 1 > MAX_DISTANCE){
+            throw new IllegalStateException("A mate is too long to store: " + (value - 1) + " plies");
+        }
+        return value;
+    }
+
+    private static void raise(AtomicInteger max, int value){
+        int current;
+        while((current = max.get()) < value){
+            if(max.compareAndSet(current, value)){
+                return;
+            }
+        }
+    }
+
+    /**
+     * values the position set up in s from its moves, whose legal moves are in s.legal: a win if a move leads to a
+     * loss, mating in level plies or fewer; a loss if every move leads to a known win
+     * @return the value, or 0 if the position can't be settled yet
+     */
+    private int settle(Material m, Scratch s, byte[] value, int level){
+        int shortestLoss = Integer.MAX_VALUE;
+        int longestWin = -1;
+        boolean allWin = true;
+        for(int j = 0; j < s.legal.size(); j++){
+            int move = s.legal.get(j);
+            s.position.makeMove(move);
+            int v = leavesTable(move) ? exitValue(s.position, s.unmoved)
+                    : value[(int) m.index(s.position, s.unmoved)] & 0xFF;
+            s.position.unmakeMove();
+            if(v == 0){
+                allWin = false;
+            } else if(((v - 1) & 1) == 0){
+                shortestLoss = Math.min(shortestLoss, v - 1);
+                allWin = false;
+            } else{
+                longestWin = Math.max(longestWin, v - 1);
+            }
+        }
+        if((shortestLoss != Integer.MAX_VALUE) && (shortestLoss + 1 <= level)){
+            return shortestLoss + 2;
+        }
+        if(allWin){
+            return longestWin + 2;
+        }
+        return 0;
+    }
+
+    /**
+     * marks every unsettled position the side that just moved in position i could have come from without a capture
+     * or promotion; marks may land on invalid positions, which are skipped
+     * @return true if anything was marked
+     */
+    private static boolean markPredecessors(Material m, int i, Scratch s, byte[] value, byte[] mark){
+        boolean firstToMove = m.decode(i, s.squares);
+        int n = m.getPieces();
+        long occupied = 0L;
+        for(int p = 0; p < n; p++){
+            occupied |= Bitboard.bit(s.squares[p]);
+        }
+        boolean any = false;
+        System.arraycopy(s.squares, 0, s.unmoved, 0, n);
+        for(int p = 0; p < n; p++){
+            if(m.isFirstSide(p) == firstToMove){
+                continue; // the side to move didn't make the last move
+            }
+            int sq = s.squares[p];
+            long from;
+            int type = m.getType(p);
+            if(type == UnitCost.PAWN.ordinal()){
+                from = pawnOrigins(sq, m.isFirstSide(p), occupied);
+            } else{
+                from = attacks(UNITS[type], sq, occupied) & ~occupied;
+            }
+            while(from != 0){
+                s.unmoved[p] = Long.numberOfTrailingZeros(from);
+                from &= from - 1;
+                int before = (int) m.index(s.unmoved, !firstToMove);
+                if(value[before] == 0){
+                    mark[before] = 1;
+                    any = true;
+                }
+            }
+            s.unmoved[p] = sq;
+        }
+        return any;
+    }
+
+    // the squares a pawn on sq could have been pushed from, the first side's pawns going up the board
+    private static long pawnOrigins(int sq, boolean up, long occupied){
+        int step = up ? -8 : 8;
+        int one = sq + step;
+        if((one < 8) || (one > 55) || ((occupied & Bitboard.bit(one)) != 0)){
+            return 0L;
+        }
+        long from = Bitboard.bit(one);
+        int two = one + step;
+        if(((sq >>> 3) == (up ? 3 : 4)) && ((occupied & Bitboard.bit(two)) == 0)){
+            from |= Bitboard.bit(two);
+        }
+        return from;
+    }
+
+    private static long attacks(UnitCost u, int sq, long occupied){
+        switch(u){
+            case KING: return Bitboard.kingAttacks(sq);
+            case QUEEN: return Bitboard.queenAttacks(sq, occupied);
+            case ROOK: return Bitboard.rookAttacks(sq, occupied);
+            case BISHOP: return Bitboard.bishopAttacks(sq, occupied);
+            default: return Bitboard.knightAttacks(sq);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ui.chess;
+
+import model.Bitboard;
+import model.Board;
+import model.Piece;
+import model.Position;
+import model.Square;
+
+import java.awt.*;
+import java.util.Set;
+
+/**
+ * what the board panel shows, copied from the board while nothing is changing it: a copy of the position and the
+ * colour of every square, so the panel can paint from it on the event dispatch thread while a turn is worked out
+ * on another thread
+ * nothing changes a snapshot once it is made
+ */
+final class BoardSnapshot {
+
+    private final Position position; // a copy of the board's, never moved on
+    private final Color[] colours;   // by bit index
+    private final boolean currentPlayer;
+
+    /**
+     * @param board the board to copy, which nothing may change until this returns
+     * @param selected the piece whose moves are highlighted, or null for none
+     */
+    BoardSnapshot(Board board, Piece selected){
+        position = new Position(board.getPosition());
+        currentPlayer = board.getCurrentPlayer();
+        colours = new Color[Board.BOARD_DIMENSION * Board.BOARD_DIMENSION];
+        Set<Square> moves = (selected == null) ? null : selected.getAllMoves();
+        for(Square[] row : board.getSquares()){
+            for(Square s : row){
+                colours[Bitboard.square(s)] = colour(s, selected, moves);
+            }
+        }
+    }
+
+    // the colour square s is filled with: red, green or yellow if the selected piece can move to it
+    // TODO: later on need to draw red squares for moves that will eliminate, and green squares for valid moves
+    private Color colour(Square s, Piece selected, Set<Square> moves){
+        if((moves != null) && moves.contains(s)){
+            if(s.getPiece() != null){
+                return Mainframe.RED;
+            } else if(selected.getSide() == currentPlayer){
+                return Mainframe.GREEN;
+            } else{
+                return Mainframe.YELLOW;
+            }
+        }
+        return s.getColour() ? Mainframe.LIGHT_BROWN : Mainframe.DARK_BROWN;
+    }
+
+    /**
+     * @return the piece code on bit index sq, or Position.EMPTY
+     */
+    int pieceAt(int sq){
+        return position.pieceAt(sq);
+    }
+
+    Color colourAt(int sq){
+        return colours[sq];
+    }
+
+    /**
+     * @return the colour and piece of bit index sq as one number, which differs between snapshots whenever either
+     * does
+     */
+    long state(int sq){
+        return ((long) colours[sq].getRGB() << 8) | (position.pieceAt(sq) + 1);
+    }
+}
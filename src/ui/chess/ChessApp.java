@@ -1,11 +1,13 @@
 package ui.chess;
 
+import model.Board;
+
 /**
  * Created by Eric on 5/3/2016.
  */
 public class ChessApp {
     public static void main(String[] args) {
-        Mainframe mainframe = new Mainframe();
+        Mainframe mainframe = new Mainframe(new Board());
         mainframe.setVisible(true);
     }
 }
@@ -3,29 +3,56 @@ package ui.chess;
 import exceptions.*;
 import model.*;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import pgn.PgnWriter;
 
 /**
  * Created by Eric on 5/3/2016.
+ *
+ * moves are made on a turn thread of their own, so working out check and checkmate never freezes the window; the
+ * board panel paints from a BoardSnapshot taken once the turn is over, and the board is only touched on the event
+ * dispatch thread while no turn is running
+ * the end of the game is delivered to the event dispatch thread as a GAME_OVER property change, with the result
+ * ("1-0", "0-1" or "1/2-1/2") as its new value
  */
 public class Mainframe extends JFrame {
+    public static final String GAME_OVER = "gameOver";
+
+    private static final int PROGRESS_DELAY = 150; // milliseconds a turn runs before its progress is shown
+
     private JButton mainWindowExit;
-    private JPanel boardPanel;
+    private JButton savePgn;
+    private JProgressBar progress;
+    private Timer progressTimer;
+    private BoardPanel boardPanel;
     private ChessMouseEvent mouseEvent;
 
     private Piece selected;
     private Board board;
+    private Sprites sprites; // null if the piece images couldn't be loaded
+    private BoardSnapshot snapshot; // what the board panel shows
+    private boolean busy; // a turn is running on the turn thread
+    private boolean over; // the game has ended
+    private final ExecutorService turns;
 
     public static final int SQUARE_DIMENSION = 50;
+    public static final int PIECE_DIMENSION = 40;
     public static final Color DARK_BROWN = new Color(0xBF7935);
     public static final Color LIGHT_BROWN = new Color(0xFFCE9E);
     public static final Color GREEN = Color.GREEN;
@@ -37,6 +64,9 @@ public class Mainframe extends JFrame {
 
         @Override
         public void mouseClicked(MouseEvent e) {
+            if(busy || over){ // the board is changing on the turn thread, or the game has ended
+                return;
+            }
             int x = e.getX();
             int y = e.getY();
             Square selectedSquare = findSquare(x, y);
@@ -44,24 +74,12 @@ public class Mainframe extends JFrame {
                 selected = selectedSquare.getPiece();
                 if(selected != null){ // not an empty square
                     // repaint with allMoves displayed
-                    boardPanel.repaint();
+                    display(new BoardSnapshot(board, selected));
                 }
             } else{ // otherwise we're making a move, make the move then deselect selected
-                try {
-                    selected.move(selectedSquare);
-                } catch (InvalidMoveException e1) {
-                    // cancel and update display to deselect the piece
-                } catch (InvalidTurnException e1) {
-                    // cancel and update display to deselect the piece
-                } catch (InvalidCoordinateException e1) {
-                    e1.printStackTrace(); // should never get here
-                } catch (CheckmateException e1) {
-                    e1.printStackTrace(); // end game // TODO: end game and print checkmate
-                } catch (StalemateException e1) {
-                    e1.printStackTrace(); // end game // TODO: end game and print stalemate
-                }
+                Piece moving = selected;
                 selected = null;
-                boardPanel.repaint();
+                playTurn(moving, selectedSquare);
             }
         }
 
@@ -94,6 +112,8 @@ public class Mainframe extends JFrame {
     }
 
     private class BoardPanel extends JPanel{
+        // the state of each square as it was last drawn, by bit index; see BoardSnapshot.state()
+        private final long[] painted = new long[Board.BOARD_DIMENSION * Board.BOARD_DIMENSION];
 
         public BoardPanel(BorderLayout borderLayout){
             super();
@@ -106,93 +126,75 @@ public class Mainframe extends JFrame {
             drawBoard(g);
         }
 
-        // draws the board
-        private void drawBoard(Graphics g) {
-            Graphics2D g2 = (Graphics2D) g;
-            Square[][] grid = board.getSquares();
-            for(int i = 0; i < Board.BOARD_DIMENSION; i++){
-                for(int j = 0; j < Board.BOARD_DIMENSION; j++){
-                    drawSquare(grid[i][j], j, i, g2);
+        // asks for a repaint of only the squares whose colour or piece in the snapshot differs from their drawing
+        public void refresh(){
+            for(int sq = 0; sq < painted.length; sq++){
+                if(snapshot.state(sq) != painted[sq]){
+                    // one pixel more for the outline drawn along the far edges
+                    repaint(Bitboard.column(sq) * SQUARE_DIMENSION, Bitboard.row(sq) * SQUARE_DIMENSION,
+                            SQUARE_DIMENSION + 1, SQUARE_DIMENSION + 1);
                 }
             }
         }
 
-        // draws square s and its piece
-        // TODO: later on need to draw red squares for moves that will eliminate, and green squares for valid moves
-        private void drawSquare(Square s, int i, int j, Graphics2D g2) {
-            if(s.getColour()){
-                g2.setPaint(LIGHT_BROWN);
-            } else{
-                g2.setPaint(DARK_BROWN);
-            }
-            if((selected != null) && (selected.getAllMoves().contains(s))){
-                if(s.getPiece() != null){
-                    g2.setPaint(RED);
-                } else{
-                    if(selected.getSide() == board.getCurrentPlayer()) {
-                        g2.setPaint(GREEN);
-                    } else{
-                        g2.setPaint(YELLOW);
-                    }
+        // draws the squares of the board inside the clip from the snapshot
+        private void drawBoard(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            Rectangle clip = g2.getClipBounds();
+            BoardSnapshot shown = snapshot;
+            for(int sq = 0; sq < painted.length; sq++){
+                int i = Bitboard.column(sq);
+                int j = Bitboard.row(sq);
+                if((clip == null) || clip.intersects(i * SQUARE_DIMENSION, j * SQUARE_DIMENSION,
+                        SQUARE_DIMENSION + 1, SQUARE_DIMENSION + 1)){
+                    drawSquare(shown, sq, i, j, g2);
+                    painted[sq] = shown.state(sq);
                 }
             }
+        }
+
+        // draws square sq and its piece
+        private void drawSquare(BoardSnapshot shown, int sq, int i, int j, Graphics2D g2) {
+            g2.setPaint(shown.colourAt(sq));
             g2.fillRect(i*50, j*50, SQUARE_DIMENSION, SQUARE_DIMENSION);
             g2.setPaint(BLACK);
             g2.drawRect(i*50, j*50, SQUARE_DIMENSION, SQUARE_DIMENSION);
-            drawPiece(s.getPiece(), i, j, g2);
-        }
-
-        // draws Piece p
-        private void drawPiece(Piece p, int i, int j, Graphics2D g2) {
-            if(p != null) {
-                BufferedImage img = null;
-                String path = "src/ui/chess/img/";
-                UnitCost cost = p.getUnitCost();
-                path += restOfFile(p);
-                try {
-                    img = ImageIO.read(new File(path));
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-
-                g2.drawImage(img, null, 50 * i+5, 50 * j+5);
-            }
+            drawPiece(shown.pieceAt(sq), i, j, g2);
         }
 
-        // adds "b" or "w" depending on if myPiece is black or white
-        // adds the name of the unit afterwards (eg. queen, king)
-        // finishes up with .png
-        private String restOfFile(Piece myPiece) {
-            UnitCost myCost = myPiece.getUnitCost();
-            String restOfFile = "";
-            if(myPiece.getSide()){
-                restOfFile += "w";
-            } else{
-                restOfFile += "b";
-            }
-            if(myCost.equals(UnitCost.PAWN)){
-                restOfFile += "pawn";
-            } else if(myCost.equals(UnitCost.BISHOP)){
-                restOfFile += "bishop";
-            } else if(myCost.equals(UnitCost.KNIGHT)){
-                restOfFile += "knight";
-            } else if(myCost.equals(UnitCost.ROOK)){
-                restOfFile += "rook";
-            } else if(myCost.equals(UnitCost.QUEEN)){
-                restOfFile += "queen";
-            } else if(myCost.equals(UnitCost.KING)){
-                restOfFile += "king";
+        // draws the piece with code piece from the sprite cache
+        private void drawPiece(int piece, int i, int j, Graphics2D g2) {
+            if((piece != Position.EMPTY) && (sprites != null)) {
+                int margin = (SQUARE_DIMENSION - PIECE_DIMENSION) / 2;
+                sprites.draw(g2, piece, 50 * i + margin, 50 * j + margin);
             }
-            restOfFile += ".png";
-            return restOfFile;
         }
     }
 
     public Mainframe(){
+        this(new Board());
+    }
+
+    /**
+     * constructs a window that plays the game on board
+     * @param board the board to display and play on
+     */
+    public Mainframe(Board board){
         mouseEvent = new ChessMouseEvent();
         boardPanel = new BoardPanel(new BorderLayout());
-        board = Board.getInstance();
+        this.board = board;
         selected = null;
+        snapshot = new BoardSnapshot(board, null);
+        turns = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chess-turns");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            sprites = new Sprites(PIECE_DIMENSION);
+        } catch (IOException e) {
+            e.printStackTrace(); // the board is still playable without its pieces drawn
+        }
         initUI();
         setupButtons();
         positionComponents();
@@ -200,6 +202,70 @@ public class Mainframe extends JFrame {
         add(boardPanel);
     }
 
+    /**
+     * makes piece's move to target on the turn thread, then shows the board and ends the game if it is over on the
+     * event dispatch thread
+     */
+    private void playTurn(final Piece piece, final Square target){
+        setBusy(true);
+        turns.execute(() -> {
+            String result = null;
+            String message = null;
+            try {
+                piece.move(target);
+            } catch (InvalidMoveException | InvalidTurnException e) {
+                // cancel and update display to deselect the piece
+            } catch (InvalidCoordinateException e) {
+                throw new ProgrammerErrorException(); // the target is a square of the board
+            } catch (CheckmateException e) {
+                result = board.getCurrentPlayer() ? "0-1" : "1-0";
+                message = e.getMessage();
+            } catch (StalemateException e) {
+                result = "1/2-1/2";
+                message = e.getMessage();
+            } finally {
+                final BoardSnapshot after = new BoardSnapshot(board, null);
+                final String finalResult = result;
+                final String finalMessage = message;
+                SwingUtilities.invokeLater(() -> {
+                    setBusy(false);
+                    display(after);
+                    if(finalResult != null){
+                        gameOver(finalResult, finalMessage);
+                    }
+                });
+            }
+        });
+    }
+
+    // shows s on the board panel, repainting the squares that changed
+    private void display(BoardSnapshot s){
+        snapshot = s;
+        boardPanel.refresh();
+    }
+
+    // ignores clicks and saves while a turn runs, showing its progress if it takes long enough to notice
+    private void setBusy(boolean b){
+        busy = b;
+        savePgn.setEnabled(!b);
+        if(b){
+            progressTimer.restart();
+        } else{
+            progressTimer.stop();
+            progress.setVisible(false);
+            setCursor(Cursor.getDefaultCursor());
+        }
+    }
+
+    // ends the game with result, telling the players and the GAME_OVER listeners
+    private void gameOver(String result, String message){
+        over = true;
+        firePropertyChange(GAME_OVER, null, result);
+        String winner = result.equals("1-0") ? "White wins!" : (result.equals("0-1") ? "Black wins!"
+                : "Both players draw!");
+        JOptionPane.showMessageDialog(this, message + " " + winner);
+    }
+
     // sets up the buttons
     private void setupButtons() {
         mainWindowExit = new JButton("Exit");
@@ -210,6 +276,44 @@ public class Mainframe extends JFrame {
             }
         });
         add(mainWindowExit);
+
+        savePgn = new JButton("Save PGN");
+        savePgn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveGame();
+            }
+        });
+        add(savePgn);
+
+        progress = new JProgressBar();
+        progress.setIndeterminate(true);
+        progress.setString("Thinking...");
+        progress.setStringPainted(true);
+        progress.setVisible(false);
+        add(progress);
+        progressTimer = new Timer(PROGRESS_DELAY, e -> {
+            progress.setVisible(true);
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        });
+        progressTimer.setRepeats(false);
+    }
+
+    // asks for a file and appends the game so far to it in PGN
+    private void saveGame() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("games.pgn"));
+        if(chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION){
+            return;
+        }
+        Map<String, String> tags = new LinkedHashMap<String, String>();
+        tags.put("Event", "Chess game");
+        try (Writer out = Files.newBufferedWriter(chooser.getSelectedFile().toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            new PgnWriter(out).writeGame(board, tags);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Couldn't save the game: " + e.getMessage());
+        }
     }
 
     // positions all the components
@@ -222,6 +326,12 @@ public class Mainframe extends JFrame {
     private void positionButtons(Insets insets) {
         Dimension exitDim = mainWindowExit.getPreferredSize();
         mainWindowExit.setBounds(300 + insets.left, insets.bottom - 50, exitDim.width, exitDim.height);
+        Dimension saveDim = savePgn.getPreferredSize();
+        savePgn.setBounds(300 + insets.left + exitDim.width + 10, insets.bottom - 50, saveDim.width,
+                saveDim.height);
+        Dimension progressDim = progress.getPreferredSize();
+        progress.setBounds(300 + insets.left + exitDim.width + saveDim.width + 20, insets.bottom - 50,
+                progressDim.width, progressDim.height);
     }
 
     private void positionBoard(Insets insets) {
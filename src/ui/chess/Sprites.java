@@ -0,0 +1,83 @@
+package ui.chess;
+
+import model.Position;
+import model.UnitCost;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * the twelve piece images, decoded once from the classpath and kept scaled for each device scale they are drawn at,
+ * so painting a piece is a single unscaled blit
+ *
+ * a HiDPI screen gives Graphics2D a scaling transform; the sprite for that scale has size * scale pixels a side
+ * and is drawn into a size-wide box, so it lands one image pixel per device pixel instead of being stretched on
+ * every paint
+ * only used on the event dispatch thread
+ */
+final class Sprites {
+
+    private static final String[] NAMES = {"king", "queen", "rook", "bishop", "knight", "pawn"};
+
+    private final BufferedImage[] originals; // by Position.code()
+    private final int size;
+    private final Map<Double, Image[]> scaled;
+
+    /**
+     * @param size the width and height pieces are drawn at, in user space
+     * @throws IOException if an image is missing from the classpath or can't be decoded
+     */
+    Sprites(int size) throws IOException {
+        this.size = size;
+        originals = new BufferedImage[2 * NAMES.length];
+        for(boolean side : new boolean[]{true, false}){
+            for(UnitCost u : UnitCost.values()){
+                String name = "img/" + (side ? "w" : "b") + NAMES[u.ordinal()] + ".png";
+                try (InputStream in = Sprites.class.getResourceAsStream(name)) {
+                    if(in == null){
+                        throw new IOException("No image " + name + " on the classpath");
+                    }
+                    originals[Position.code(side, u)] = ImageIO.read(in);
+                }
+            }
+        }
+        scaled = new HashMap<Double, Image[]>();
+    }
+
+    /**
+     * draws the image of the piece with code piece (see Position.code()) with its top left corner at (x, y)
+     */
+    void draw(Graphics2D g2, int piece, int x, int y){
+        AffineTransform t = g2.getTransform();
+        double scale = Math.max(Math.abs(t.getScaleX()), Math.abs(t.getScaleY()));
+        Image[] sprites = scaled.get(scale);
+        if(sprites == null){
+            sprites = scale(g2.getDeviceConfiguration(), scale);
+            scaled.put(scale, sprites);
+        }
+        g2.drawImage(sprites[piece], x, y, size, size, null);
+    }
+
+    // every original scaled to size * scale pixels, in the screen's own pixel format
+    private Image[] scale(GraphicsConfiguration gc, double scale){
+        int pixels = Math.max(1, (int) Math.round(size * scale));
+        Image[] sprites = new Image[originals.length];
+        for(int i = 0; i < originals.length; i++){
+            BufferedImage sprite = (gc != null) ? gc.createCompatibleImage(pixels, pixels, Transparency.TRANSLUCENT)
+                    : new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = sprite.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(originals[i], 0, 0, pixels, pixels, null);
+            g.dispose();
+            sprites[i] = sprite;
+        }
+        return sprites;
+    }
+}
@@ -0,0 +1,60 @@
+package ui.perft;
+
+import exceptions.InvalidFenException;
+import model.Perft;
+import model.Position;
+
+import java.util.Map;
+
+/**
+ * prints perft divide counts, the total and nodes per second for a position
+ * usage: PerftRunner depth [fen], where fen defaults to the starting position
+ */
+public class PerftRunner {
+
+    public static void main(String[] args) {
+        if(args.length < 1){
+            System.out.println("Usage: PerftRunner depth [fen]");
+            return;
+        }
+        int depth;
+        Position position;
+        try {
+            depth = Integer.parseInt(args[0]);
+            String fen = Position.START_FEN;
+            if(args.length > 1){
+                StringBuilder sb = new StringBuilder();
+                for(int i = 1; i < args.length; i++){
+                    sb.append(args[i]).append(' ');
+                }
+                fen = sb.toString();
+            }
+            position = Position.fromFen(fen);
+        } catch (NumberFormatException e) {
+            System.out.println("Depth must be a number");
+            return;
+        } catch (InvalidFenException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if(depth < 1){
+            System.out.println("Depth must be at least 1");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<String, Long> counts = Perft.divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0L;
+        for(Map.Entry<String, Long> e : counts.entrySet()){
+            System.out.println(e.getKey() + ": " + e.getValue());
+            total += e.getValue();
+        }
+        System.out.println();
+        System.out.println("Moves: " + counts.size());
+        System.out.println("Nodes: " + total);
+        System.out.println("Time: " + (elapsed / 1000000) + " ms");
+        System.out.println("Nodes/second: " + ((elapsed > 0) ? (long) (total / (elapsed / 1e9)) : 0));
+    }
+}
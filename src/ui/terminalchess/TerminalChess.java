@@ -1,8 +1,28 @@
 package ui.terminalchess;
 
 
+import book.OpeningBook;
+import engine.Search;
+import engine.SearchLimits;
 import model.*;
 import exceptions.*;
+import pgn.PgnWriter;
+import tablebase.Tablebase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -11,12 +31,55 @@ import java.util.Set;
  */
 public class TerminalChess {
     private static Scanner sc = new Scanner(System.in);
-    private static Board b = Board.getInstance();
-    private static Scoreboard sb = Scoreboard.getInstance();
+    private static Board b;
+    private static Scoreboard sb;
+    private static Path archive; // every game that ends is appended here in PGN, null to keep none
+    private static OpeningBook book; // consulted first for hints, null if there is none
+    private static Tablebase tablebase; // answers hints and adjudicates draws in the endgame, null if there is none
+    private static Search hintSearch; // created by the first hint the book can't answer
+    private static final Random random = new Random();
+    private static final long HINT_MILLIS = 1000;
 
     // we should never get InvalidCoordinateException or InvalidPromotionException (logic error) so game will crash if they occur
+    // arguments: [-book <opening book>] [-tables <endgame table directory>]
+    // [PGN file to append the game to when it ends]
     public static void main(String[] args) throws InvalidCoordinateException, InvalidPromotionException {
+        for(int i = 0; i < args.length; i++){
+            if(args[i].equals("-book") && (i + 1 < args.length)){
+                try {
+                    book = new OpeningBook(Paths.get(args[++i]));
+                } catch (IOException e) {
+                    System.out.println("Couldn't open the book: " + e.getMessage());
+                }
+            } else if(args[i].equals("-tables") && (i + 1 < args.length)){
+                try {
+                    tablebase = new Tablebase(Paths.get(args[++i]));
+                } catch (IOException e) {
+                    System.out.println("Couldn't open the endgame tables: " + e.getMessage());
+                }
+            } else{
+                archive = Paths.get(args[i]);
+            }
+        }
+        play(new Board());
+    }
+
+    /**
+     * plays a game on board in the terminal until it ends or a player quits
+     * @param board the board to play on
+     */
+    public static void play(Board board) throws InvalidCoordinateException, InvalidPromotionException {
+        b = board;
+        sb = new Scoreboard(board);
+        String result = null; // the result if the tables end the game
         while(true){
+            if((tablebase != null) && tablebase.adjudicate(b).equals("1/2-1/2") && b.getResult().equals("*")){
+                System.out.println(b);
+                System.out.println("The endgame tables say neither side can win.");
+                System.out.println("Both players draw!");
+                result = "1/2-1/2";
+                break;
+            }
             System.out.println(b);
             if(b.getPromotable() != null){
                 handlePromotion();
@@ -45,6 +108,74 @@ public class TerminalChess {
                 break;
             }
         }
+        archiveGame(result);
+    }
+
+    // appends the game to the archive file, if there is one, with result if it isn't null
+    private static void archiveGame(String result){
+        if(archive == null){
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(archive, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            PgnWriter pgn = new PgnWriter(out);
+            if(result == null){
+                pgn.writeGame(b, gameTags());
+            } else{
+                pgn.writeGame(gameTags(), b.getStartFen(), b.getMoves(), result);
+            }
+            System.out.println("Game saved to " + archive);
+        } catch (IOException e) {
+            System.out.println("Couldn't save the game: " + e.getMessage());
+        }
+    }
+
+    // prints the game so far in PGN
+    private static void printPgn(){
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            PgnWriter pgn = new PgnWriter(out);
+            pgn.writeGame(b, gameTags());
+            pgn.flush();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    // suggests a move for the current player: the endgame tables' move or a book move if they have one, otherwise
+    // the engine's choice
+    private static void printHint(){
+        MoveList legal = b.getLegalMoves();
+        Position p = b.getPosition();
+        int move = Move.NONE;
+        String source = "tables";
+        if(tablebase != null){
+            move = tablebase.bestMove(p);
+        }
+        if((move == Move.NONE) && (book != null)){
+            move = book.probe(p, legal, random);
+            source = "book";
+        }
+        if(move == Move.NONE){
+            if(hintSearch == null){
+                hintSearch = new Search();
+                hintSearch.setTablebase(tablebase);
+            }
+            move = hintSearch.search(b, SearchLimits.time(HINT_MILLIS)).getBestMove();
+            source = "engine";
+        }
+        if(move == Move.NONE){
+            System.out.println("There are no moves to suggest.");
+        } else{
+            System.out.println("Hint (" + source + "): " + San.toString(p, move) + " - enter " + Move.toString(move));
+        }
+    }
+
+    private static Map<String, String> gameTags(){
+        Map<String, String> tags = new LinkedHashMap<String, String>();
+        tags.put("Event", "TerminalChess game");
+        tags.put("Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date()));
+        return tags;
     }
 
     private static void handlePromotion() throws InvalidPromotionException {
@@ -89,8 +220,19 @@ public class TerminalChess {
                 printAllMoves(allMovesSquare);
             } else if(temp.equals("score")){
                 System.out.println(sb);
+            } else if(temp.equals("hint")){
+                printHint();
+            } else if(temp.equals("pgn")){
+                printPgn();
             } else if(temp.equals("board")){
                 System.out.println(b);
+            } else if(temp.equals("undo")){
+                try {
+                    b.undo();
+                } catch (InvalidUndoException e) {
+                    System.out.println(e.getMessage());
+                }
+                System.out.println(b);
             } else if(temp.equals("quit")){
                 throw new QuitException();
             } else{
@@ -99,10 +241,8 @@ public class TerminalChess {
             printTurn();
             temp = sc.next().toLowerCase();
         }
-        String mover = temp.substring(0,2);
-        String movee = temp.substring(2,4);
         try {
-            b.getSquare(mover).getPiece().move(b.getSquare(movee));
+            b.move(b.getPosition().parseMove(temp));
         } catch (InvalidMoveException e) {
             System.out.println("Invalid move. Please enter a valid command.");
             String nextAttempt = sc.next();
@@ -139,6 +279,9 @@ public class TerminalChess {
         System.out.println("'help' - print list of commands");
         System.out.println("'score' - print score for both players");
         System.out.println("'board' - reprint the board");
+        System.out.println("'undo' - take back the last move");
+        System.out.println("'hint' - suggest a move, from the endgame tables or opening book if there are any");
+        System.out.println("'pgn' - print the game so far in PGN");
         System.out.println("'quit' - end the game");
 
     }
@@ -0,0 +1,382 @@
+package ui.uci;
+
+import book.OpeningBook;
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.SearchResult;
+import exceptions.InvalidFenException;
+import model.Move;
+import model.MoveList;
+import model.Position;
+import tablebase.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * speaks the Universal Chess Interface on standard input and output, so the engine can be run by chess GUIs and
+ * tournament managers
+ *
+ * commands are read on the calling thread while "go" searches on a thread of its own, so "stop", "isready" and
+ * "quit" are answered straight away even in the middle of a search
+ * supports uci, isready, ucinewgame, setoption (Hash, Threads, BookFile, TablebasePath), position (startpos or fen,
+ * then moves), go (depth, nodes, movetime, wtime, btime, winc, binc, movestogo, infinite), stop and quit
+ * with a BookFile set, "go" plays a weighted random book move straight away whenever the book has one
+ * with a TablebasePath set, "go" plays the tables' move straight away in a position they have, and the search
+ * probes them at every node
+ */
+public class UciEngine {
+
+    public static final String NAME = "Chess";
+    public static final String AUTHOR = "Eric Chen";
+
+    private static final int DEFAULT_HASH = 16;
+    private static final int MAX_HASH = 4096;
+    private static final int MAX_THREADS = 256;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private int hash;
+    private int threads;
+    private ParallelSearch search;
+    private Position position;
+    private OpeningBook book; // null if there is none
+    private Tablebase tablebase; // null if there is none
+    private final Random random;
+
+    private Thread searchThread;
+    private CountDownLatch stopSignal; // released by stop or quit; an infinite search waits on it to reply
+
+    public UciEngine(InputStream in, PrintStream out){
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+        hash = DEFAULT_HASH;
+        threads = 1;
+        search = new ParallelSearch(threads, hash);
+        position = startPosition();
+        random = new Random();
+    }
+
+    public static void main(String[] args) throws IOException {
+        new UciEngine(System.in, System.out).run();
+    }
+
+    /**
+     * answers commands until "quit" or the end of the input
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while((line = in.readLine()) != null){
+                if(!handle(line.trim())){
+                    break;
+                }
+            }
+        } finally {
+            stopSearch();
+            search.shutdown();
+        }
+    }
+
+    /**
+     * carries out one command
+     * @param line the command and its arguments
+     * @return false if the command was "quit"
+     */
+    boolean handle(String line){
+        String[] tokens = line.split("\\s+");
+        switch(tokens[0]){
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name BookFile type string default <empty>");
+                send("option name TablebasePath type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                search.getTranspositionTable().clear();
+                position = startPosition();
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(tokens);
+                break;
+            case "position":
+                stopSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                // unknown commands are ignored, as UCI asks
+                break;
+        }
+        return true;
+    }
+
+    // setoption name <id> value <x>, where the id and value may have spaces in them
+    private void setOption(String[] tokens){
+        String name = null;
+        String value = null;
+        int i = 1;
+        if((i < tokens.length) && tokens[i].equals("name")){
+            StringBuilder sb = new StringBuilder();
+            for(i++; (i < tokens.length) && !tokens[i].equals("value"); i++){
+                sb.append((sb.length() > 0) ? " " : "").append(tokens[i]);
+            }
+            name = sb.toString();
+        }
+        if((i < tokens.length) && tokens[i].equals("value")){
+            StringBuilder sb = new StringBuilder();
+            for(i++; i < tokens.length; i++){
+                sb.append((sb.length() > 0) ? " " : "").append(tokens[i]);
+            }
+            value = sb.toString();
+        }
+        if((name == null) || (value == null)){
+            return;
+        }
+        if(name.equalsIgnoreCase("BookFile")){
+            setBook(value);
+            return;
+        } else if(name.equalsIgnoreCase("TablebasePath")){
+            setTablebase(value);
+            return;
+        }
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            send("info string " + name + " must be a number");
+            return;
+        }
+        if(name.equalsIgnoreCase("Hash")){
+            hash = Math.max(1, Math.min(n, MAX_HASH));
+        } else if(name.equalsIgnoreCase("Threads")){
+            threads = Math.max(1, Math.min(n, MAX_THREADS));
+        } else{
+            return;
+        }
+        search.shutdown();
+        search = new ParallelSearch(threads, hash);
+        search.setTablebase(tablebase);
+    }
+
+    // maps the book at file, or drops the book if file is empty or "<empty>"
+    private void setBook(String file){
+        if(file.isEmpty() || file.equals("<empty>")){
+            book = null;
+            return;
+        }
+        try {
+            book = new OpeningBook(Paths.get(file));
+        } catch (IOException e) {
+            book = null;
+            send("info string can't open book " + file + ": " + e.getMessage());
+        }
+    }
+
+    // maps the tables in directory, or drops them if directory is empty or "<empty>"
+    private void setTablebase(String directory){
+        tablebase = null;
+        if(!directory.isEmpty() && !directory.equals("<empty>")){
+            try {
+                tablebase = new Tablebase(Paths.get(directory));
+                send("info string " + tablebase.size() + " tables, up to " + tablebase.getMaxPieces() + " pieces");
+            } catch (IOException e) {
+                send("info string can't open tables in " + directory + ": " + e.getMessage());
+            }
+        }
+        search.setTablebase(tablebase);
+    }
+
+    // position [startpos | fen <fen>] [moves <move> ...]
+    private void setPosition(String[] tokens){
+        int i = 1;
+        Position p;
+        if((tokens.length > 1) && tokens[1].equals("fen")){
+            StringBuilder fen = new StringBuilder();
+            for(i = 2; (i < tokens.length) && !tokens[i].equals("moves"); i++){
+                fen.append(tokens[i]).append(' ');
+            }
+            try {
+                p = Position.fromFen(fen.toString());
+            } catch (InvalidFenException e) {
+                send("info string " + e.getMessage());
+                return;
+            }
+        } else{
+            p = startPosition();
+            i = 2;
+        }
+        if((i < tokens.length) && tokens[i].equals("moves")){
+            MoveList legal = new MoveList();
+            for(i++; i < tokens.length; i++){
+                legal.clear();
+                p.generateLegalMoves(legal);
+                int move = p.parseMove(tokens[i]);
+                if((move == Move.NONE) || !legal.contains(move)){
+                    send("info string illegal move " + tokens[i]);
+                    break;
+                }
+                p.makeMove(move);
+            }
+        }
+        position = p;
+    }
+
+    private void go(String[] tokens){
+        int depth = 0;
+        long nodes = 0;
+        long moveTime = 0;
+        long whiteTime = -1;
+        long blackTime = -1;
+        long whiteIncrement = 0;
+        long blackIncrement = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+        try {
+            for(int i = 1; i < tokens.length; i++){
+                String next = (i + 1 < tokens.length) ? tokens[i + 1] : "0";
+                switch(tokens[i]){
+                    case "depth": depth = Integer.parseInt(next); i++; break;
+                    case "nodes": nodes = Long.parseLong(next); i++; break;
+                    case "movetime": moveTime = Long.parseLong(next); i++; break;
+                    case "wtime": whiteTime = Long.parseLong(next); i++; break;
+                    case "btime": blackTime = Long.parseLong(next); i++; break;
+                    case "winc": whiteIncrement = Long.parseLong(next); i++; break;
+                    case "binc": blackIncrement = Long.parseLong(next); i++; break;
+                    case "movestogo": movesToGo = Integer.parseInt(next); i++; break;
+                    case "infinite": infinite = true; break;
+                    default: break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            send("info string bad go command");
+            return;
+        }
+
+        if((book != null) && !infinite){
+            int move = book.probe(position, random);
+            if(move != Move.NONE){
+                send("info string book move");
+                send("bestmove " + Move.toString(move));
+                return;
+            }
+        }
+        if((tablebase != null) && !infinite){
+            int move = tablebase.bestMove(position);
+            if(move != Move.NONE){
+                send("info string tablebase move");
+                send("bestmove " + Move.toString(move));
+                return;
+            }
+        }
+
+        long time = moveTime;
+        long clock = position.getSideToMove() ? whiteTime : blackTime;
+        if((time == 0) && (clock >= 0) && !infinite){
+            long increment = position.getSideToMove() ? whiteIncrement : blackIncrement;
+            time = SearchLimits.clock(clock, increment, movesToGo).getTimeMillis();
+        }
+        final SearchLimits limits = infinite ? SearchLimits.infinite() : new SearchLimits(depth, time, nodes);
+        final boolean waitForStop = infinite;
+        final Position root = new Position(position);
+        final ParallelSearch s = search;
+        final CountDownLatch signal = new CountDownLatch(1);
+        stopSignal = signal;
+        s.setListener(this::info);
+        // cleared here rather than on the search thread, so a stop that comes before it starts still stops it
+        s.prepare();
+        searchThread = new Thread(() -> {
+            SearchResult r = s.run(root, limits);
+            if(waitForStop){
+                // UCI doesn't allow a bestmove before stop in infinite mode, even if the search runs out
+                try {
+                    signal.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            bestMove(r);
+        }, "uci-search");
+        searchThread.start();
+    }
+
+    // stops a running search and waits for it to send its bestmove
+    private void stopSearch(){
+        if(searchThread == null){
+            return;
+        }
+        search.stop();
+        stopSignal.countDown();
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private void info(SearchResult r){
+        StringBuilder sb = new StringBuilder("info depth ").append(r.getDepth());
+        sb.append(" score ").append(r.getScoreString());
+        sb.append(" nodes ").append(r.getNodes());
+        sb.append(" nps ").append(r.getNodesPerSecond());
+        sb.append(" time ").append(r.getTimeMillis());
+        sb.append(" hashfull ").append(search.getTranspositionTable().hashfull());
+        sb.append(" pv");
+        for(int move : r.getPrincipalVariation()){
+            sb.append(' ').append(Move.toString(move));
+        }
+        send(sb.toString());
+    }
+
+    private void bestMove(SearchResult r){
+        if(r.getBestMove() == Move.NONE){
+            send("bestmove 0000");
+            return;
+        }
+        String s = "bestmove " + Move.toString(r.getBestMove());
+        int[] pv = r.getPrincipalVariation();
+        if(pv.length > 1){
+            s += " ponder " + Move.toString(pv[1]);
+        }
+        send(s);
+    }
+
+    private void send(String s){
+        synchronized(out){
+            out.println(s);
+            out.flush();
+        }
+    }
+
+    private static Position startPosition(){
+        try {
+            return Position.fromFen(Position.START_FEN);
+        } catch (InvalidFenException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
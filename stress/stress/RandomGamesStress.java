@@ -0,0 +1,112 @@
+package stress;
+
+import exceptions.CheckmateException;
+import exceptions.InvalidTurnException;
+import exceptions.StalemateException;
+import model.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * plays seeded random games on independent boards across several threads, checking after every move that the
+ * bitboards still match the pieces, then undoes every game back to the start
+ * prints games and moves per second so runs under different JVM flags (heap size, collector) can be compared
+ * usage: RandomGamesStress [games] [threads] [seed]
+ */
+public class RandomGamesStress {
+
+    private static final int MAX_PLIES = 300;
+
+    public static void main(String[] args) throws Exception {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1L;
+
+        final AtomicLong moves = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Future<?>[] results = new Future<?>[games];
+        long start = System.nanoTime();
+        for(int i = 0; i < games; i++){
+            final long gameSeed = seed + i;
+            results[i] = pool.submit(() -> {
+                moves.addAndGet(playGame(gameSeed));
+                return null;
+            });
+        }
+        try {
+            for(Future<?> f : results){
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Games: " + games + " on " + threads + " threads");
+        System.out.println("Moves: " + moves.get());
+        System.out.println("Time: " + (elapsed / 1000000) + " ms");
+        System.out.println("Games/second: " + (games * 1000000000L / elapsed));
+        System.out.println("Moves/second: " + (moves.get() * 1000000000L / elapsed));
+    }
+
+    // plays one game of random legal moves, checking the board after each, then undoes it; returns the move count
+    private static int playGame(long seed) throws Exception {
+        Board b = new Board();
+        String startFen = b.getPosition().toFen();
+        Random random = new Random(seed);
+        int played = 0;
+        try {
+            while(played < MAX_PLIES){
+                MoveList legal = b.getLegalMoves();
+                if(legal.isEmpty()){
+                    break;
+                }
+                b.move(legal.get(random.nextInt(legal.size())));
+                played++;
+                verify(b, seed);
+            }
+        } catch (CheckmateException | StalemateException e) {
+            played++;
+        } catch (InvalidTurnException e) {
+            throw new IllegalStateException("Game " + seed + ": " + e.getMessage());
+        }
+        for(int i = 0; i < played; i++){
+            b.undo();
+        }
+        verify(b, seed);
+        if(!b.getPosition().toFen().equals(startFen)){
+            throw new IllegalStateException("Game " + seed + " did not undo back to the start");
+        }
+        return played;
+    }
+
+    // every live piece must be on its bitboard and nothing else may be
+    private static void verify(Board b, long seed){
+        long occupied = verifyTeam(b.getWhitePieces(), b.getPosition(), seed)
+                | verifyTeam(b.getBlackPieces(), b.getPosition(), seed);
+        if(occupied != b.getPosition().getOccupied()){
+            throw new IllegalStateException("Game " + seed + ": bitboards out of sync with the pieces");
+        }
+    }
+
+    // returns the squares of team's live pieces, checking each is on its own bitboard
+    private static long verifyTeam(List<Piece> team, Position position, long seed){
+        long occupied = 0L;
+        for(Piece p : team){
+            if(p.isEliminated()){
+                continue;
+            }
+            long bit = Bitboard.bit(Bitboard.square(p.getSquare()));
+            if((position.getPieces(p.getSide(), p.getUnitCost()) & bit) == 0L){
+                throw new IllegalStateException("Game " + seed + ": " + p.getUnitCost() + " missing from bitboards");
+            }
+            occupied |= bit;
+        }
+        return occupied;
+    }
+}
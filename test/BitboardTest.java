@@ -0,0 +1,77 @@
+package test;
+
+import model.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the attack tables in Bitboard against squares found by walking the board
+ */
+public class BitboardTest {
+
+    @Test
+    public void testSquareMapping(){
+        assertEquals(0, Bitboard.square(7, 0));
+        assertEquals(63, Bitboard.square(0, 7));
+        assertEquals(28, Bitboard.square(4, 4));
+        assertEquals("e4", Bitboard.name(28));
+        for(int sq = 0; sq < 64; sq++){
+            assertEquals(sq, Bitboard.square(Bitboard.row(sq), Bitboard.column(sq)));
+        }
+    }
+
+    @Test
+    public void testLeaperAttacks(){
+        assertEquals(2, Long.bitCount(Bitboard.knightAttacks(0)));
+        assertEquals(8, Long.bitCount(Bitboard.knightAttacks(27)));
+        assertEquals(3, Long.bitCount(Bitboard.kingAttacks(63)));
+        assertEquals(8, Long.bitCount(Bitboard.kingAttacks(27)));
+        // e4 pawn
+        assertEquals(Bitboard.bit(35) | Bitboard.bit(37), Bitboard.pawnAttacks(true, 28));
+        assertEquals(Bitboard.bit(19) | Bitboard.bit(21), Bitboard.pawnAttacks(false, 28));
+        // a-file pawns only attack the b-file
+        assertEquals(Bitboard.bit(17), Bitboard.pawnAttacks(true, 8));
+    }
+
+    // every square with random blockers must match a plain ray walk
+    @Test
+    public void testSliderAttacksMatchRayWalk(){
+        Random random = new Random(42);
+        for(int sq = 0; sq < 64; sq++){
+            for(int i = 0; i < 200; i++){
+                long occ = random.nextLong() & random.nextLong();
+                assertEquals(walk(sq, occ, 1, 0) | walk(sq, occ, -1, 0) | walk(sq, occ, 0, 1) | walk(sq, occ, 0, -1),
+                        Bitboard.rookAttacks(sq, occ));
+                assertEquals(walk(sq, occ, 1, 1) | walk(sq, occ, 1, -1) | walk(sq, occ, -1, 1) | walk(sq, occ, -1, -1),
+                        Bitboard.bishopAttacks(sq, occ));
+            }
+        }
+    }
+
+    @Test
+    public void testQueenIsRookAndBishop(){
+        long occ = 0x00FF00000000FF00L;
+        assertEquals(Bitboard.rookAttacks(27, occ) | Bitboard.bishopAttacks(27, occ), Bitboard.queenAttacks(27, occ));
+        assertEquals(14, Long.bitCount(Bitboard.rookAttacks(0, 0L)));
+        assertEquals(13, Long.bitCount(Bitboard.bishopAttacks(27, 0L)));
+    }
+
+    private long walk(int sq, long occ, int rankStep, int fileStep){
+        long attacks = 0L;
+        int rank = (sq / 8) + rankStep;
+        int file = (sq % 8) + fileStep;
+        while((rank >= 0) && (rank < 8) && (file >= 0) && (file < 8)){
+            long b = 1L << (rank * 8 + file);
+            attacks |= b;
+            if((occ & b) != 0){
+                break;
+            }
+            rank += rankStep;
+            file += fileStep;
+        }
+        return attacks;
+    }
+}
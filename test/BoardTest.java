@@ -9,6 +9,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -110,6 +114,50 @@ public class BoardTest {
         assertEquals(null, wk0.getSquare());
     }
 
+    // ensures the bitboards match the starting layout of the grid
+    @Test
+    public void testBitboardsInitial(){
+        Position position = b.getPosition();
+        assertEquals(0x000000000000FFFFL, position.getSide(true));
+        assertEquals(0xFFFF000000000000L, position.getSide(false));
+        assertEquals(0xFFFF00000000FFFFL, position.getOccupied());
+        assertEquals(0x000000000000FF00L, position.getPieces(true, UnitCost.PAWN));
+        assertEquals(0x00FF000000000000L, position.getPieces(false, UnitCost.PAWN));
+        assertEquals(0x0000000000000010L, position.getPieces(true, UnitCost.KING));
+        assertEquals(0x0800000000000000L, position.getPieces(false, UnitCost.QUEEN));
+        assertEquals(4, position.kingSquare(true));
+        assertEquals(60, position.kingSquare(false));
+    }
+
+    // ensures the bitboards follow moves, captures and en passant eliminations
+    @Test
+    public void testBitboardsInSync() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            StalemateException, CheckmateException {
+        b.getSquare("e2").getPiece().move(b.getSquare("e4"));
+        b.getSquare("a7").getPiece().move(b.getSquare("a6"));
+        b.getSquare("e4").getPiece().move(b.getSquare("e5"));
+        b.getSquare("d7").getPiece().move(b.getSquare("d5"));
+        b.getSquare("e5").getPiece().move(b.getSquare("d6"));
+
+        Position position = b.getPosition();
+        for(int i = 0; i < Board.BOARD_DIMENSION; i++){
+            for(int j = 0; j < Board.BOARD_DIMENSION; j++){
+                Piece p = s[i][j].getPiece();
+                long bit = Bitboard.bit(Bitboard.square(i, j));
+                if(p == null){
+                    assertEquals(0L, position.getOccupied() & bit);
+                } else{
+                    assertEquals(bit, position.getPieces(p.getSide(), p.getUnitCost()) & bit);
+                    assertEquals(bit, position.getSide(p.getSide()) & bit);
+                }
+            }
+        }
+        assertEquals(0L, position.getPieces(false, UnitCost.PAWN) & Bitboard.bit(Bitboard.square(b.getSquare("d5"))));
+        assertEquals(15, Long.bitCount(position.getPieces(false, UnitCost.PAWN) | position.getPieces(false, UnitCost.ROOK)
+                | position.getPieces(false, UnitCost.KNIGHT) | position.getPieces(false, UnitCost.BISHOP)
+                | position.getPieces(false, UnitCost.QUEEN) | position.getPieces(false, UnitCost.KING)));
+    }
+
     @Test
     public void testNextTurn() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException, StalemateException, CheckmateException {
         assertTrue(b.getCurrentPlayer());
@@ -125,6 +173,55 @@ public class BoardTest {
         assertFalse(b.getPreviousPlayer());
     }
 
+    // moves on one board must not affect another
+    @Test
+    public void testIndependentBoards() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            StalemateException, CheckmateException {
+        Board other = new Board();
+        other.getSquare("e2").getPiece().move(other.getSquare("e4"));
+
+        assertFalse(other.getCurrentPlayer());
+        assertTrue(b.getCurrentPlayer());
+        assertEquals(null, other.getSquare("e2").getPiece());
+        assertEquals(UnitCost.PAWN, b.getSquare("e2").getPiece().getUnitCost());
+        assertEquals(other, other.getSquare("e4").getPiece().getBoard());
+
+        b.getSquare("d2").getPiece().move(b.getSquare("d4"));
+        assertEquals(null, other.getSquare("d4").getPiece());
+        assertEquals(UnitCost.PAWN, other.getSquare("d2").getPiece().getUnitCost());
+    }
+
+    // plays the same checkmating game on many boards at once, one board per thread
+    @Test
+    public void testConcurrentBoards() throws Exception {
+        int games = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(games);
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for(int i = 0; i < games; i++){
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    Board board = new Board();
+                    String[] moves = {"e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7"};
+                    try {
+                        for(String m : moves){
+                            board.getSquare(m.substring(0, 2)).getPiece().move(board.getSquare(m.substring(2, 4)));
+                        }
+                    } catch (CheckmateException e) {
+                        return !board.getCurrentPlayer() && board.getInCheck();
+                    } catch (InvalidTurnException e) {
+                        return false;
+                    }
+                    return false;
+                }
+            }));
+        }
+        for(Future<Boolean> f : results){
+            assertTrue(f.get());
+        }
+        executor.shutdown();
+    }
+
     @Test
     public void testGetSquare() throws Exception{
         assertEquals("a8", b.getSquare("a8").toString());
@@ -336,6 +433,326 @@ public class BoardTest {
         b.promote("q");
     }
 
+    @Test
+    public void testUndoCapture() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            StalemateException, CheckmateException, InvalidUndoException {
+        Piece wpawn = b.getSquare("e2").getPiece();
+        Piece bpawn = b.getSquare("d7").getPiece();
+        long occupied = b.getPosition().getOccupied();
+        wpawn.move(b.getSquare("e4"));
+        bpawn.move(b.getSquare("d5"));
+        wpawn.move(b.getSquare("d5"));
+        assertTrue(bpawn.isEliminated());
+
+        b.undo();
+        assertTrue(b.getCurrentPlayer());
+        assertEquals(3, b.getTurnNumber());
+        assertFalse(bpawn.isEliminated());
+        assertEquals(bpawn, b.getSquare("d5").getPiece());
+        assertEquals(wpawn, b.getSquare("e4").getPiece());
+
+        b.undo();
+        b.undo();
+        assertTrue(b.getCurrentPlayer());
+        assertEquals(1, b.getTurnNumber());
+        assertEquals(wpawn, b.getSquare("e2").getPiece());
+        assertEquals(bpawn, b.getSquare("d7").getPiece());
+        assertFalse(((Pawn) wpawn).getHasMoved());
+        assertEquals(occupied, b.getPosition().getOccupied());
+        assertTrue(wpawn.getAllMoves().contains(b.getSquare("e4")));
+    }
+
+    @Test
+    public void testUndoCastleAndEnPassant() throws InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, StalemateException, CheckmateException, InvalidUndoException {
+        String[] moves = {"e2e4", "a7a6", "e4e5", "d7d5", "e5d6"};
+        for(String m : moves){
+            b.getSquare(m.substring(0, 2)).getPiece().move(b.getSquare(m.substring(2, 4)));
+        }
+        assertEquals(null, b.getSquare("d5").getPiece());
+
+        b.undo();
+        assertEquals(UnitCost.PAWN, b.getSquare("d5").getPiece().getUnitCost());
+        assertEquals(UnitCost.PAWN, b.getSquare("e5").getPiece().getUnitCost());
+        assertEquals("d6", Bitboard.name(b.getPosition().getEnPassantSquare()));
+        assertTrue(b.getSquare("e5").getPiece().getAllMoves().contains(b.getSquare("d6")));
+
+        String[] castle = {"e5d6", "e7d6", "g1f3", "a6a5", "f1e2", "a5a4", "e1g1"};
+        for(String m : castle){
+            b.getSquare(m.substring(0, 2)).getPiece().move(b.getSquare(m.substring(2, 4)));
+        }
+        assertEquals(UnitCost.ROOK, b.getSquare("f1").getPiece().getUnitCost());
+
+        b.undo();
+        King king = (King) b.getSquare("e1").getPiece();
+        Rook rook = (Rook) b.getSquare("h1").getPiece();
+        assertFalse(king.getHasMoved());
+        assertFalse(rook.getHasMoved());
+        assertEquals(null, b.getSquare("f1").getPiece());
+        assertEquals(Position.ALL_CASTLING, b.getPosition().getCastlingRights());
+    }
+
+    @Test
+    public void testUndoPromotion() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            InvalidPromotionInputException, InvalidPromotionException, StalemateException, CheckmateException,
+            InvalidUndoException {
+        Piece pawn = b.getSquare("d2").getPiece();
+        Piece knight = b.getSquare("b8").getPiece();
+        setUpPromotion();
+        b.promote("q");
+        Piece queen = b.getSquare("b8").getPiece();
+
+        b.undo();
+        assertEquals(pawn, b.getSquare("a7").getPiece());
+        assertEquals(knight, b.getSquare("b8").getPiece());
+        assertFalse(knight.isEliminated());
+        assertTrue(b.getWhitePieces().contains(pawn));
+        assertFalse(b.getWhitePieces().contains(queen));
+        assertEquals(null, b.getPromotable());
+        assertEquals(1, Long.bitCount(b.getPosition().getPieces(true, UnitCost.QUEEN)));
+    }
+
+    // the board's key follows castling, en passant and promotion and comes back on undo
+    @Test
+    public void testZobristKey() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            InvalidPromotionInputException, InvalidPromotionException, StalemateException, CheckmateException,
+            InvalidUndoException, InvalidFenException {
+        long start = b.getZobristKey();
+        setUpPromotion();
+        b.promote("q");
+        assertNotEquals(start, b.getZobristKey());
+        assertEquals(Position.fromFen(b.getPosition().toFen()).getKey(), b.getZobristKey());
+        for(int i = 0; i < 9; i++){
+            b.undo();
+        }
+        assertEquals(start, b.getZobristKey());
+    }
+
+    @Test
+    public void testGraveyardCost() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            InvalidPromotionInputException, InvalidPromotionException, StalemateException, CheckmateException,
+            InvalidUndoException {
+        assertEquals(0, b.getGraveyardCost(true));
+        assertEquals(39, b.getMaterial(true));
+        setUpPromotion();
+        // black lost three pawns and the b8 knight to the d pawn
+        assertEquals(0, b.getGraveyardCost(true));
+        assertEquals(6, b.getGraveyardCost(false));
+        assertEquals(graveyardCost(false), b.getGraveyardCost(false));
+        assertEquals(33, b.getMaterial(false));
+
+        // the promoted pawn leaves the board without going to the graveyard
+        b.promote("q");
+        assertEquals(0, b.getGraveyardCost(true));
+        assertEquals(graveyardCost(true), b.getGraveyardCost(true));
+        assertEquals(47, b.getMaterial(true));
+
+        for(int i = 0; i < 9; i++){
+            b.undo();
+        }
+        assertEquals(0, b.getGraveyardCost(true));
+        assertEquals(0, b.getGraveyardCost(false));
+        assertEquals(39, b.getMaterial(true));
+    }
+
+    @Test
+    public void testFenRoundTrip() throws InvalidFenException {
+        assertEquals(Position.START_FEN, b.toFen());
+        String[] fens = {Position.START_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "r3k2r/8/8/8/8/8/8/R3K2R b Kq - 7 41",
+                "8/8/8/8/8/5k2/8/4K2R w K - 12 60"};
+        for(String fen : fens){
+            Board board = Board.fromFen(fen);
+            assertEquals(fen, board.toFen());
+            assertEquals(Position.fromFen(fen).getKey(), board.getZobristKey());
+        }
+    }
+
+    @Test
+    public void testFenState() throws InvalidFenException, InvalidCoordinateException {
+        Board board = Board.fromFen("r3k2r/8/8/8/8/8/8/R3K2R b Kq - 7 41");
+        assertFalse(board.getCurrentPlayer());
+        assertEquals(82, board.getTurnNumber());
+        assertFalse(((King) board.getSquare("e1").getPiece()).getHasMoved());
+        assertFalse(((Rook) board.getSquare("h1").getPiece()).getHasMoved());
+        assertTrue(((Rook) board.getSquare("a1").getPiece()).getHasMoved());
+        assertFalse(((Rook) board.getSquare("a8").getPiece()).getHasMoved());
+        assertTrue(((Rook) board.getSquare("h8").getPiece()).getHasMoved());
+        assertEquals(3, board.getWhitePieces().size());
+
+        board = Board.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        assertTrue(((Pawn) board.getSquare("e5").getPiece()).getHasMoved());
+        assertFalse(((Pawn) board.getSquare("d2").getPiece()).getHasMoved());
+        assertEquals(board.getTurnNumber() - 1, ((Pawn) board.getSquare("f5").getPiece()).getTurnDoubleJumped());
+        assertTrue(board.getSquare("e5").getPiece().getAllMoves().contains(board.getSquare("f6")));
+        assertFalse(board.getSquare("e5").getPiece().getAllMoves().contains(board.getSquare("d6")));
+
+        board = Board.fromFen("4k3/8/8/8/8/8/8/4K2r w - - 0 1");
+        assertTrue(board.getInCheck());
+    }
+
+    // castling and en passant set up from a FEN play through the pieces like they would after the moves
+    @Test
+    public void testFenMoves() throws InvalidFenException, InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, StalemateException, CheckmateException, InvalidUndoException {
+        Board board = Board.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        board.getSquare("e5").getPiece().move(board.getSquare("f6"));
+        assertNull(board.getSquare("f5").getPiece());
+        assertEquals(1, board.getGraveyardCost(false));
+        board.undo();
+        assertEquals("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", board.toFen());
+
+        board = Board.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w Kq - 0 1");
+        assertTrue(board.getLegalMoves().contains(board.getPosition().parseMove("e1g1")));
+        assertFalse(board.getLegalMoves().contains(board.getPosition().parseMove("e1c1")));
+        board.getSquare("e1").getPiece().move(board.getSquare("g1"));
+        assertEquals("r3k2r/8/8/8/8/8/8/R4RK1 b q - 1 1", board.toFen());
+    }
+
+    @Test
+    public void testMovesAndResult() throws InvalidFenException, InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, StalemateException, InvalidUndoException, InvalidPromotionException,
+            InvalidPromotionInputException {
+        Board board = new Board();
+        assertEquals(Position.START_FEN, board.getStartFen());
+        assertEquals(0, board.getMoves().length);
+        assertEquals("*", board.getResult());
+        String[] moves = {"f2f3", "e7e5", "g2g4", "d8h4"};
+        try {
+            for(String m : moves){
+                board.move(board.getPosition().parseMove(m));
+            }
+            fail("fool's mate");
+        } catch (CheckmateException e) {
+            // expected
+        }
+        int[] played = board.getMoves();
+        assertEquals(4, played.length);
+        for(int i = 0; i < moves.length; i++){
+            assertEquals(moves[i], Move.toString(played[i]));
+        }
+        assertEquals("0-1", board.getResult());
+        board.undo();
+        assertEquals(3, board.getMoves().length);
+
+        // a pawn waiting for its promotion piece isn't a whole move yet
+        String fen = "8/4P3/8/8/8/8/8/k6K w - - 0 1";
+        board = Board.fromFen(fen);
+        assertEquals(fen, board.getStartFen());
+        try {
+            board.getSquare("e7").getPiece().move(board.getSquare("e8"));
+        } catch (CheckmateException e) {
+            fail();
+        }
+        assertEquals(0, board.getMoves().length);
+        board.promote("q");
+        assertEquals("e7e8q", Move.toString(board.getMoves()[0]));
+
+        assertEquals("1/2-1/2", Board.fromFen("k7/8/1Q6/8/8/8/8/7K b - - 0 1").getResult());
+    }
+
+    @Test
+    public void testInvalidBoardFen(){
+        String[] fens = {"8/8/8/8/8/8/8/4K3 w - - 0 1", "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/P3K3 w - - 0 1", "4k3/8/8/8/8/8/8/4K3 x - - 0 1"};
+        for(String fen : fens){
+            try {
+                Board.fromFen(fen);
+                fail(fen);
+            } catch (InvalidFenException e) {
+                // expected
+            }
+        }
+    }
+
+    private int graveyardCost(boolean side){
+        int cost = 0;
+        for(Piece p : b.getSideGraveyard(side)){
+            cost += p.getCost();
+        }
+        return cost;
+    }
+
+    // an eliminated pawn equals() the promoted pawn once it leaves the board, so it must not be the one replaced
+    @Test
+    public void testPromotionKeepsEliminatedPawns() throws InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, InvalidPromotionInputException, InvalidPromotionException, StalemateException,
+            CheckmateException, InvalidUndoException {
+        Piece eliminated = b.getSquare("h2").getPiece();
+        eliminated.eliminate();
+        Piece pawn = b.getSquare("d2").getPiece();
+        setUpPromotion();
+        b.promote("q");
+        Piece queen = b.getSquare("b8").getPiece();
+
+        assertEquals(16, b.getWhitePieces().size());
+        assertTrue(containsPiece(b.getWhitePieces(), eliminated));
+        assertTrue(containsPiece(b.getWhitePieces(), queen));
+        assertFalse(containsPiece(b.getWhitePieces(), pawn));
+
+        b.undo();
+        assertEquals(16, b.getWhitePieces().size());
+        assertTrue(containsPiece(b.getWhitePieces(), eliminated));
+        assertTrue(containsPiece(b.getWhitePieces(), pawn));
+        assertFalse(containsPiece(b.getWhitePieces(), queen));
+    }
+
+    // the same promotion as setUpPromotion, but played as encoded moves through Board.move
+    @Test
+    public void testMoveEncoded() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            StalemateException, CheckmateException {
+        String[] moves = {"d2d4", "c7c5", "d4c5", "b7b6", "c5b6", "c8b7", "b6a7", "b7c6", "a7b8n"};
+        for(String m : moves){
+            b.move(b.getPosition().parseMove(m));
+        }
+        assertEquals(UnitCost.KNIGHT, b.getSquare("b8").getPiece().getUnitCost());
+        assertEquals(null, b.getPromotable());
+        assertEquals("a7b8n", Move.toString(b.getLastMove()));
+        assertTrue(Move.isCapture(b.getLastMove()));
+        assertEquals(3, Long.bitCount(b.getPosition().getPieces(true, UnitCost.KNIGHT)));
+    }
+
+    @Test (expected = InvalidMoveException.class)
+    public void testMoveEncodedNone() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException,
+            StalemateException, CheckmateException {
+        b.move(b.getPosition().parseMove("e4e5"));
+    }
+
+    // a pawn giving check by double jumping can be taken en passant to escape the check
+    @Test
+    public void testEnPassantEscapesCheck() throws InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, StalemateException, CheckmateException {
+        b.movePiece(b.getSquare("e8").getPiece(), b.getSquare("e5"));
+        b.movePiece(b.getSquare("e7").getPiece(), b.getSquare("e4"));
+        b.getSquare("d2").getPiece().move(b.getSquare("d4"));
+
+        assertTrue(b.getInCheck());
+        assertTrue(b.getSquare("e4").getPiece().getAllMoves().contains(b.getSquare("d3")));
+        assertFalse(b.getSquare("e4").getPiece().getAllMoves().contains(b.getSquare("e3")));
+        b.getSquare("e4").getPiece().move(b.getSquare("d3"));
+        assertEquals(null, b.getSquare("d4").getPiece());
+        assertFalse(b.getInCheck());
+    }
+
+    // a piece pinned to its King cannot move off the pin even when the King is not in check
+    @Test
+    public void testPinnedPiece() throws InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, StalemateException, CheckmateException {
+        b.movePiece(b.getSquare("d1").getPiece(), b.getSquare("h5"));
+        b.getSquare("e2").getPiece().move(b.getSquare("e3"));
+
+        assertFalse(b.getInCheck());
+        assertTrue(b.getSquare("f7").getPiece().getAllMoves().isEmpty());
+        assertEquals(17, b.getLegalMoves().size());
+    }
+
+    @Test (expected = InvalidUndoException.class)
+    public void testUndoNoMove() throws InvalidUndoException {
+        b.undo();
+    }
+
     // tests that the stalemate counter gets reset if a pawn moves or a capture is made but also that the board can tell
     // a stalemate has been made if 50 moves not following the above conditions are made
     @Test (expected = StalemateException.class)
@@ -349,6 +766,15 @@ public class BoardTest {
         bknight.move(b.getSquare("c6"));
     }
 
+    // a board set up past the end of the stalemate counter is drawn by its next quiet move
+    @Test (expected = StalemateException.class)
+    public void testStalemateFromFen() throws InvalidFenException, InvalidMoveException, CheckmateException,
+            StalemateException, InvalidCoordinateException, InvalidTurnException {
+        Board fen = Board.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 60 80");
+        assertEquals("1/2-1/2", fen.getResult());
+        fen.getSquare("a1").getPiece().move(fen.getSquare("a2"));
+    }
+
     @Test
     public void testStalematePawn() throws InvalidMoveException, CheckmateException, StalemateException, InvalidCoordinateException, InvalidTurnException {
         make4nUselessMoves(12);
@@ -391,6 +817,15 @@ public class BoardTest {
         }
     }
 
+    private boolean containsPiece(List<Piece> pieces, Piece p){
+        for(Piece q : pieces){
+            if(q == p){
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void setUpPromotion() throws InvalidCoordinateException, InvalidMoveException, InvalidTurnException, StalemateException, CheckmateException {
         b.getSquare("d2").getPiece().move(b.getSquare("d4"));
         b.getSquare("c7").getPiece().move(b.getSquare("c5"));
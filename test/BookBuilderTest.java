@@ -0,0 +1,94 @@
+package test;
+
+import book.BookBuilder;
+import book.OpeningBook;
+import book.PolyglotKey;
+import model.Move;
+import model.Position;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that BookBuilder weighs each move by the results of the games it was played in, and that spilling many
+ * small runs and merging them on several threads builds the same book as one run on one thread
+ */
+public class BookBuilderTest {
+
+    private static final String GAMES =
+            "[Event \"1\"]\n\n1. e4 e5 2. Nf3 Nc6 1-0\n\n"
+            + "[Event \"2\"]\n\n1. e4 c5 2. Nf3 d6 0-1\n\n"
+            + "[Event \"3\"]\n\n1. d4 d5 2. c4 e6 1/2-1/2\n\n"
+            + "[Event \"4\"]\n\n1. e4 e5 2. Bc4 Nf6 1-0\n\n"
+            + "[Event \"5\"]\n\n1. d4 Nf6 *\n\n"
+            + "[Event \"6\"]\n[FEN \"4k3/8/8/8/8/8/8/R3K3 b Q - 0 1\"]\n\n1... Kd8 2. O-O-O+ Kc7 0-1\n\n";
+
+    private static Path build(int runEntries, int plies, int minGames, int threads) throws IOException {
+        Path pgn = Files.createTempFile("games", ".pgn");
+        pgn.toFile().deleteOnExit();
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 20; i++){
+            sb.append(GAMES);
+        }
+        Files.write(pgn, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Path book = Files.createTempFile("book", ".bin");
+        book.toFile().deleteOnExit();
+        BookBuilder builder = new BookBuilder(book.getParent(), runEntries, plies, minGames, threads);
+        builder.build(Collections.singletonList(pgn), book);
+        assertEquals(100, builder.getGames());
+        return book;
+    }
+
+    // the weights of the moves the book has for fen, as "move:weight" in move order
+    private static String weights(Path file, String fen) throws Exception {
+        Position p = Position.fromFen(fen);
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file));
+        StringBuilder sb = new StringBuilder();
+        long last = 0;
+        for(int i = 0; i < b.limit(); i += OpeningBook.ENTRY_SIZE){
+            long key = b.getLong(i);
+            assertTrue(Long.compareUnsigned(last, key) <= 0);
+            last = key;
+            if(key == PolyglotKey.of(p)){
+                int move = OpeningBook.decodeMove(p, b.getShort(i + 8) & 0xFFFF);
+                sb.append(sb.length() > 0 ? " " : "").append(Move.toString(move)).append(':')
+                        .append(b.getShort(i + 10) & 0xFFFF);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testWeights() throws Exception {
+        Path book = build(1 << 16, 40, 1, 1);
+        // 1. e4 won 40 of 60 games and lost 20, 1. d4 drew 20; the unfinished games count for nothing
+        assertEquals("d2d4:20 e2e4:80", weights(book, Position.START_FEN));
+        // after 1. e4 black won with c5 and lost with e5
+        assertEquals("c7c5:40", weights(book, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+        // a game from a set up position with black to move first, which white lost
+        assertEquals("e8d8:40", weights(book, "4k3/8/8/8/8/8/8/R3K3 b Q - 0 1"));
+        assertEquals("", weights(book, "3k4/8/8/8/8/8/8/R3K3 w Q - 1 2"));
+        assertEquals("e2e4", Move.toString(new OpeningBook(book).probe(Position.fromFen(Position.START_FEN), null)));
+
+        Path onePly = build(1 << 16, 1, 1, 1);
+        assertEquals("", weights(onePly, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"));
+        Path common = build(1 << 16, 40, 30, 1);
+        assertEquals("e2e4:80", weights(common, Position.START_FEN));
+    }
+
+    @Test
+    public void testRunsAndThreads() throws Exception {
+        byte[] one = Files.readAllBytes(build(1 << 16, 40, 1, 1));
+        byte[] many = Files.readAllBytes(build(7, 40, 1, 3));
+        assertTrue(one.length > 0);
+        assertTrue(Arrays.equals(one, many));
+    }
+}
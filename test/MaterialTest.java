@@ -0,0 +1,70 @@
+package test;
+
+import exceptions.InvalidFenException;
+import model.Position;
+import org.junit.Test;
+import tablebase.Material;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the material signatures and the index scheme of the endgame tables
+ */
+public class MaterialTest {
+
+    @Test
+    public void testSignatures() throws InvalidFenException {
+        assertEquals("KRPvK", Material.of("KPRvK").getSignature());
+        assertEquals("KQvK", Material.canonical("KvKQ"));
+        assertEquals("KRvKP", Material.canonical("KPvKR"));
+        assertEquals("KBNvK", Material.canonical("KvKNB"));
+        assertEquals("KRPvKR", Material.canonical("KRvKRP"));
+        assertEquals("KNvKP", Material.canonical("KPvKN"));
+        assertEquals("KQvKR", Material.signatureOf(Position.fromFen("8/8/8/3k4/8/2r5/8/Q3K3 w - - 0 1")));
+        assertEquals(2 * 16 * 64 * 64, Material.of("KQvK").size());
+        assertEquals(2 * 32 * 64 * 64, Material.of("KPvK").size());
+        try {
+            Material.of("KQvQ");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // no black King
+        }
+    }
+
+    @Test
+    public void testIndexRoundTrip() throws InvalidFenException {
+        Material m = Material.of("KRvKP");
+        Random random = new Random(7);
+        int[] squares = new int[m.getPieces()];
+        int[] again = new int[m.getPieces()];
+        Position p = new Position();
+        for(int n = 0; n < 2000; n++){
+            long index = (long) (random.nextDouble() * m.size());
+            boolean first = m.decode(index, squares);
+            if(!m.setUp(p, squares, first)){
+                continue;
+            }
+            assertEquals(index, m.index(p, again));
+            assertEquals(first, p.getSideToMove());
+        }
+    }
+
+    @Test
+    public void testSymmetry() throws InvalidFenException {
+        Material m = Material.of("KRvKP");
+        int[] squares = new int[m.getPieces()];
+        long index = m.index(Position.fromFen("8/8/8/3k4/8/2p5/8/R3K3 w - - 0 1"), squares);
+        // left to right
+        assertEquals(index, m.index(Position.fromFen("8/8/8/4k3/8/5p2/8/3K3R w - - 0 1"), squares));
+        // colours swapped
+        assertEquals(index, m.index(Position.fromFen("r3k3/8/2P5/8/3K4/8/8/8 b - - 0 1"), squares));
+        assertNotEquals(index, m.index(Position.fromFen("8/8/8/3k4/8/2p5/8/R3K3 b - - 0 1"), squares));
+
+        Material q = Material.of("KQvK");
+        // without pawns, top to bottom as well
+        assertEquals(q.index(Position.fromFen("8/8/8/8/8/2k5/8/Q3K3 w - - 0 1"), squares),
+                q.index(Position.fromFen("Q3K3/8/2k5/8/8/8/8/8 w - - 0 1"), squares));
+    }
+}
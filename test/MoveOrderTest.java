@@ -0,0 +1,109 @@
+package test;
+
+import engine.MoveOrder;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import exceptions.InvalidFenException;
+import model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that MoveOrder picks the hash move, then captures by MVV-LVA, then killers, then quiets by history
+ */
+public class MoveOrderTest {
+
+    private MoveOrder order;
+    private Position position;
+    private MoveList list;
+
+    @Before
+    public void setUp() throws InvalidFenException {
+        order = new MoveOrder();
+        // the d4 knight can take the c6 rook or the e6 pawn, and the e2 queen can take the e6 pawn too
+        position = Position.fromFen("4k3/8/2r1p3/8/3N4/8/4Q3/4K3 w - - 0 1");
+        list = new MoveList();
+        position.generateLegalMoves(list);
+    }
+
+    private int[] ordered(int ttMove){
+        order.score(position, list, ttMove, 0);
+        int[] moves = new int[list.size()];
+        for(int i = 0; i < moves.length; i++){
+            moves[i] = order.pick(list, i, 0);
+        }
+        return moves;
+    }
+
+    @Test
+    public void testCapturesByMvvLva(){
+        int[] moves = ordered(Move.NONE);
+        assertEquals("d4c6", Move.toString(moves[0]));
+        assertEquals("d4e6", Move.toString(moves[1]));
+        assertEquals("e2e6", Move.toString(moves[2]));
+        assertTrue(MoveOrder.isQuiet(moves[3]));
+    }
+
+    @Test
+    public void testHashMoveFirst(){
+        int hash = position.parseMove("e1d1");
+        assertEquals(hash, ordered(hash)[0]);
+    }
+
+    @Test
+    public void testKillersAfterCaptures(){
+        int[] moves = ordered(Move.NONE);
+        int index = moves.length - 1;
+        int killer = moves[index];
+        order.cutoff(position, list, index, 4, 0);
+        assertTrue(order.isKiller(killer, 0));
+        assertFalse(order.isKiller(killer, 1));
+        assertEquals(killer, ordered(Move.NONE)[3]);
+    }
+
+    @Test
+    public void testHistory(){
+        int[] moves = ordered(Move.NONE);
+        int index = moves.length - 1;
+        int move = moves[index];
+        order.cutoff(position, list, index, 3, 0);
+        assertEquals(9, order.getHistory(true, move));
+        assertEquals(0, order.getHistory(false, move));
+        // the quiets tried first lose what it gained
+        assertEquals(-9, order.getHistory(true, moves[3]));
+        // captures don't count
+        order.cutoff(position, list, 0, 3, 1);
+        assertEquals(0, order.getHistory(true, list.get(0)));
+        assertFalse(order.isKiller(list.get(0), 1));
+
+        order.clear();
+        assertEquals(0, order.getHistory(true, move));
+        assertFalse(order.isKiller(move, 0));
+    }
+
+    @Test
+    public void testHistoryAging(){
+        int[] moves = ordered(Move.NONE);
+        int index = moves.length - 1;
+        int move = moves[index];
+        for(int i = 0; i < 1000; i++){
+            order.cutoff(position, list, index, 64, 0);
+        }
+        // 1000 cutoffs gain 4096 each, but the table is halved whenever a score passes 2^20 either way
+        assertTrue(order.getHistory(true, move) > 0);
+        assertTrue(order.getHistory(true, move) <= 1 << 20);
+        assertTrue(order.getHistory(true, moves[3]) < 0);
+        assertTrue(order.getHistory(true, moves[3]) >= -(1 << 20));
+    }
+
+    @Test
+    public void testSearchedNodes() throws InvalidFenException {
+        // ordering should keep the effective branching factor well below the number of legal moves
+        SearchResult r = new Search().search(Position.fromFen(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"), SearchLimits.depth(4));
+        assertTrue(r.getBranchingFactor() < 16);
+    }
+}
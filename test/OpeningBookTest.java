@@ -0,0 +1,122 @@
+package test;
+
+import book.OpeningBook;
+import book.PolyglotKey;
+import exceptions.InvalidFenException;
+import model.Move;
+import model.Position;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that OpeningBook finds a position's entries in a Polyglot-layout file and picks among them by weight
+ */
+public class OpeningBookTest {
+
+    /**
+     * writes a book of the given entries, sorting them by unsigned key as the layout asks
+     * @param entries {key, book move, weight} triples
+     */
+    public static Path writeBook(long[]... entries) throws IOException {
+        long[][] sorted = entries.clone();
+        Arrays.sort(sorted, (a, b) -> Long.compareUnsigned(a[0], b[0]));
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.length * OpeningBook.ENTRY_SIZE);
+        for(long[] e : sorted){
+            buffer.putLong(e[0]).putShort((short) e[1]).putShort((short) e[2]).putInt(0);
+        }
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    private static long[] entry(Position p, String move, int weight){
+        return new long[]{PolyglotKey.of(p), OpeningBook.encodeMove(p.parseMove(move)), weight};
+    }
+
+    @Test
+    public void testProbe() throws IOException, InvalidFenException {
+        Position start = Position.fromFen(Position.START_FEN);
+        Position e4 = Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        Random random = new Random(1);
+        long[][] noise = new long[200][];
+        for(int i = 0; i < noise.length; i++){
+            noise[i] = new long[]{random.nextLong(), random.nextInt(1 << 12), 1 + random.nextInt(100)};
+        }
+        long[][] entries = Arrays.copyOf(noise, noise.length + 5);
+        entries[noise.length] = entry(start, "e2e4", 30);
+        entries[noise.length + 1] = entry(start, "d2d4", 10);
+        entries[noise.length + 2] = entry(start, "a2a3", 0);
+        entries[noise.length + 3] = new long[]{PolyglotKey.of(start), OpeningBook.encodeMove(Move.of(12, 36)), 1000};
+        entries[noise.length + 4] = entry(e4, "c7c5", 5);
+        OpeningBook book = new OpeningBook(writeBook(entries));
+        assertEquals(entries.length, book.size());
+
+        // the illegal e2e5 is skipped even though it is the heaviest
+        assertEquals("e2e4", Move.toString(book.probe(start, null)));
+        assertEquals("c7c5", Move.toString(book.probe(e4, null)));
+        assertEquals(Move.NONE, book.probe(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), null));
+
+        int e2e4 = 0;
+        for(int i = 0; i < 4000; i++){
+            String move = Move.toString(book.probe(start, random));
+            assertTrue(move, move.equals("e2e4") || move.equals("d2d4"));
+            e2e4 += move.equals("e2e4") ? 1 : 0;
+        }
+        assertTrue(e2e4 > 2700 && e2e4 < 3300);
+    }
+
+    @Test
+    public void testMoveEncoding() throws InvalidFenException {
+        Position p = Position.fromFen("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        // castling is written as the King taking its own Rook, e1h1 and e1a1
+        assertEquals(4 << 6 | 7, OpeningBook.encodeMove(p.parseMove("e1g1")));
+        assertEquals(4 << 6, OpeningBook.encodeMove(p.parseMove("e1c1")));
+        assertEquals((4 << 12) | (49 << 6) | 57, OpeningBook.encodeMove(p.parseMove("b7b8q")));
+        assertEquals((1 << 12) | (49 << 6) | 56, OpeningBook.encodeMove(p.parseMove("b7a8n")));
+        for(String m : new String[]{"e1g1", "e1c1", "b7b8q", "b7a8n", "b7b8r", "b7a8b", "a1a8", "e1d2"}){
+            int move = p.parseMove(m);
+            assertEquals(m, move, OpeningBook.decodeMove(p, OpeningBook.encodeMove(move)));
+        }
+    }
+
+    // the keys given with the Polyglot book format
+    @Test
+    public void testPolyglotKey() throws InvalidFenException {
+        String[][] games = {
+                {"e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"},
+                {"a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3"}};
+        long[][] keys = {
+                {0x463B96181691FC9CL, 0x823C9B50FD114196L, 0x0756B94461C50FB0L, 0x662FAFB965DB29D4L,
+                        0x22A48B5A8E47FF78L, 0x652A607CA3F242C1L, 0x00FDD303C946BDD9L},
+                {0x463B96181691FC9CL, 0, 0, 0, 0, 0x3C8123EA7B067637L, 0, 0x5C3F9B829B279560L}};
+        for(int g = 0; g < games.length; g++){
+            Position p = Position.fromFen(Position.START_FEN);
+            for(int i = 0; i <= games[g].length; i++){
+                if(keys[g][i] != 0){
+                    assertEquals(games[g][0] + " " + i, keys[g][i], PolyglotKey.of(p));
+                }
+                if(i < games[g].length){
+                    p.makeMove(p.parseMove(games[g][i]));
+                }
+            }
+        }
+        assertEquals(0x463B96181691FC9CL, PolyglotKey.of(Position.fromFen(Position.START_FEN)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotABook() throws IOException {
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[OpeningBook.ENTRY_SIZE + 1]);
+        new OpeningBook(file);
+    }
+}
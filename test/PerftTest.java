@@ -0,0 +1,108 @@
+package test;
+
+import exceptions.InvalidFenException;
+import model.*;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * checks the legal move generator against the published perft counts of the standard test positions
+ */
+public class PerftTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    @Test
+    public void testInitialPosition() throws InvalidFenException {
+        assertCounts(Position.START_FEN, 20, 400, 8902, 197281);
+    }
+
+    // castling, pins and promotions all at once
+    @Test
+    public void testKiwipete() throws InvalidFenException {
+        assertCounts(KIWIPETE, 48, 2039, 97862);
+    }
+
+    // en passant that uncovers a check along the rank
+    @Test
+    public void testPosition3() throws InvalidFenException {
+        assertCounts(POSITION_3, 14, 191, 2812, 43238);
+    }
+
+    @Test
+    public void testPosition4() throws InvalidFenException {
+        assertCounts(POSITION_4, 6, 264, 9467);
+    }
+
+    @Test
+    public void testPosition5() throws InvalidFenException {
+        assertCounts(POSITION_5, 44, 1486, 62379);
+    }
+
+    @Test
+    public void testBoardMatchesFen() throws InvalidFenException {
+        Board b = new Board();
+        assertEquals(Position.START_FEN, b.getPosition().toFen());
+        assertEquals(8902, Perft.perft(b, 3));
+        assertEquals(Position.START_FEN, b.getPosition().toFen());
+    }
+
+    @Test
+    public void testDivide() throws InvalidFenException {
+        Map<String, Long> counts = Perft.divide(Position.fromFen(KIWIPETE), 2);
+        assertEquals(48, counts.size());
+        long total = 0;
+        for(long n : counts.values()){
+            total += n;
+        }
+        assertEquals(2039, total);
+        assertEquals(Long.valueOf(43), counts.get("e1g1"));
+    }
+
+    @Test
+    public void testDepthZero() throws InvalidFenException {
+        assertEquals(1, Perft.perft(Position.fromFen(KIWIPETE), 0));
+        for(int depth : new int[]{0, -1}){
+            try {
+                Perft.divide(Position.fromFen(KIWIPETE), depth);
+                fail("divide accepted depth " + depth);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testFenRoundTrip() throws InvalidFenException {
+        for(String fen : new String[]{Position.START_FEN, KIWIPETE, POSITION_3, POSITION_4, POSITION_5}){
+            assertEquals(fen, Position.fromFen(fen).toFen());
+        }
+        Position p = Position.fromFen(Position.START_FEN);
+        p.makeMove(p.parseMove("e2e4"));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", p.toFen());
+        p.makeMove(p.parseMove("e7e5"));
+        assertEquals(2, p.getFullmoveNumber());
+        p.unmakeMove();
+        p.unmakeMove();
+        assertEquals(Position.START_FEN, p.toFen());
+    }
+
+    @Test (expected = InvalidFenException.class)
+    public void testInvalidFen() throws InvalidFenException {
+        Position.fromFen("rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+    }
+
+    private void assertCounts(String fen, long... counts) throws InvalidFenException {
+        Position p = Position.fromFen(fen);
+        for(int depth = 1; depth <= counts.length; depth++){
+            assertEquals("depth " + depth, counts[depth - 1], Perft.perft(p, depth));
+        }
+        assertEquals(fen, p.toFen());
+    }
+}
@@ -0,0 +1,144 @@
+package test;
+
+import model.Move;
+import model.Position;
+import org.junit.Test;
+import pgn.PgnListener;
+import pgn.PgnReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that PgnReader replays the main line of each game, skipping what isn't part of it, and that reading a file on
+ * several threads finds the same games as reading it on one
+ */
+public class PgnReaderTest {
+
+    private static final String GAMES =
+            "[Event \"Casual\"]\n"
+            + "[White \"A \\\"quoted\\\" name\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Qh5?! {threatening mate,\n"
+            + "over two lines} 2... Nc6 (2... g6 3. Qxe5+) 3. Bc4 $2 Nf6?? ; a blunder\n"
+            + "% an escaped line 4. a3\n"
+            + "4. Qxf7# 1-0\n"
+            + "\n"
+            + "[Event \"Illegal\"]\n"
+            + "\n"
+            + "1.e4 e5 2.Ke3 1/2-1/2\n"
+            + "\n"
+            + "[Event \"Set up\"]\n"
+            + "[FEN \"4k3/8/8/8/8/8/8/R3K3 w Q - 0 1\"]\n"
+            + "\n"
+            + "1. O-O-O Kf7 *\n"
+            + "\n"
+            + "1. d4 0-1\n";
+
+    // records every call as a line
+    private static class Recorder implements PgnListener {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void gameStarted(Map<String, String> tags){
+            events.add("start " + tags.get("Event"));
+        }
+
+        @Override
+        public void positionReached(Position position, int move, int ply){
+            events.add(ply + " " + ((move == Move.NONE) ? position.toFen() : Move.toString(move)));
+        }
+
+        @Override
+        public void gameFinished(Map<String, String> tags, String result, int plies){
+            events.add("finish " + tags.get("White") + " " + result + " " + plies);
+        }
+
+        @Override
+        public void gameFailed(Map<String, String> tags, String reason){
+            events.add("fail " + reason);
+        }
+    }
+
+    private static Recorder read(String pgn) throws IOException {
+        Recorder r = new Recorder();
+        try (PgnReader reader = new PgnReader(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals(4, reader.read(r));
+        }
+        return r;
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        List<String> events = read(GAMES).events;
+        assertEquals("start Casual", events.get(0));
+        assertEquals("0 " + Position.START_FEN, events.get(1));
+        assertEquals("1 e2e4", events.get(2));
+        assertEquals("7 h5f7", events.get(8));
+        assertEquals("finish A \"quoted\" name 1-0 7", events.get(9));
+
+        assertEquals("start Illegal", events.get(10));
+        assertEquals("fail illegal move Ke3 after 2 plies", events.get(14));
+
+        assertEquals("start Set up", events.get(15));
+        assertEquals("0 4k3/8/8/8/8/8/8/R3K3 w Q - 0 1", events.get(16));
+        assertEquals("1 e1c1", events.get(17));
+        assertEquals("finish null * 2", events.get(19));
+
+        // a game without tags doesn't get the last game's
+        assertEquals("start null", events.get(20));
+        assertEquals("finish null 0-1 1", events.get(23));
+        assertEquals(24, events.size());
+    }
+
+    @Test
+    public void testCarriageReturns() throws IOException {
+        assertEquals(read(GAMES).events, read(GAMES.replace("\n", "\r\n")).events);
+    }
+
+    @Test
+    public void testUnterminatedGame() throws IOException {
+        Recorder r = new Recorder();
+        new PgnReader(new ByteArrayInputStream("1. e4 e5".getBytes(StandardCharsets.UTF_8))).read(r);
+        assertEquals("fail the game has no result", r.events.get(r.events.size() - 1));
+    }
+
+    // every game must be read by exactly one thread, wherever the file is split
+    @Test
+    public void testParallel() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 200; i++){
+            sb.append("[Event \"Game ").append(i).append("\"]\n[Result \"1-0\"]\n\n");
+            sb.append("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0\n\n");
+        }
+        Path file = Files.createTempFile("games", ".pgn");
+        try {
+            Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+            for(int threads = 1; threads <= 7; threads += 3){
+                final List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+                long games = PgnReader.read(file, threads, () -> new PgnListener() {
+                    @Override
+                    public void gameFinished(Map<String, String> tags, String result, int plies){
+                        assertEquals(7, plies);
+                        seen.add(tags.get("Event"));
+                    }
+                });
+                assertEquals(200, games);
+                assertEquals(200, seen.size());
+                assertEquals(200, seen.stream().distinct().count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
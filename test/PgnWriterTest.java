@@ -0,0 +1,116 @@
+package test;
+
+import exceptions.InvalidTurnException;
+import model.Board;
+import model.Move;
+import model.Position;
+import org.junit.Test;
+import pgn.PgnListener;
+import pgn.PgnReader;
+import pgn.PgnWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that PgnWriter writes games PgnReader reads back move for move, with the tags and line lengths PGN asks for
+ */
+public class PgnWriterTest {
+
+    private static int[] moves(String fen, String... coordinates) throws Exception {
+        Position p = Position.fromFen(fen);
+        int[] moves = new int[coordinates.length];
+        for(int i = 0; i < coordinates.length; i++){
+            moves[i] = p.parseMove(coordinates[i]);
+            p.makeMove(moves[i]);
+        }
+        return moves;
+    }
+
+    private static List<Integer> readMoves(String pgn) throws IOException {
+        final List<Integer> moves = new ArrayList<Integer>();
+        new PgnReader(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))).read(new PgnListener() {
+            @Override
+            public void positionReached(Position position, int move, int ply){
+                if(move != Move.NONE){
+                    moves.add(move);
+                }
+            }
+        });
+        return moves;
+    }
+
+    @Test
+    public void testWriteGame() throws Exception {
+        Map<String, String> tags = new LinkedHashMap<String, String>();
+        tags.put("White", "A \"quoted\" name");
+        tags.put("Opening", "Scholar's mate");
+        tags.put("Event", "Test");
+        int[] moves = moves(Position.START_FEN, "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7");
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).writeGame(tags, Position.START_FEN, moves, "1-0");
+        assertEquals("[Event \"Test\"]\n"
+                + "[Site \"?\"]\n"
+                + "[Date \"????.??.??\"]\n"
+                + "[Round \"?\"]\n"
+                + "[White \"A \\\"quoted\\\" name\"]\n"
+                + "[Black \"?\"]\n"
+                + "[Result \"1-0\"]\n"
+                + "[Opening \"Scholar's mate\"]\n"
+                + "\n"
+                + "1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0\n"
+                + "\n", out.toString());
+    }
+
+    @Test
+    public void testSetUpAndWrapping() throws Exception {
+        String fen = "4k3/8/8/8/8/8/8/R3K3 b - - 0 1";
+        String[] coordinates = new String[60];
+        for(int i = 0; i < coordinates.length; i += 4){
+            coordinates[i] = "e8d8";
+            coordinates[i + 1] = "a1a2";
+            coordinates[i + 2] = "d8e8";
+            coordinates[i + 3] = "a2a1";
+        }
+        int[] moves = moves(fen, coordinates);
+        StringWriter out = new StringWriter();
+        PgnWriter writer = new PgnWriter(out);
+        writer.writeGame(new LinkedHashMap<String, String>(), fen, moves, "*");
+        writer.writeGame(new LinkedHashMap<String, String>(), Position.START_FEN, new int[0], "*");
+        String pgn = out.toString();
+        assertTrue(pgn.contains("[SetUp \"1\"]\n[FEN \"4k3/8/8/8/8/8/8/R3K3 b - - 0 1\"]\n"));
+        assertTrue(pgn.contains("\n1... Kd8 2. Ra2 Ke8 3. Ra1 Kd8"));
+        for(String line : pgn.split("\n")){
+            assertTrue(line, line.length() <= 80);
+        }
+        List<Integer> read = readMoves(pgn);
+        assertEquals(moves.length, read.size());
+        for(int i = 0; i < moves.length; i++){
+            assertEquals(moves[i], (int) read.get(i));
+        }
+    }
+
+    @Test
+    public void testWriteBoard() throws Exception, InvalidTurnException {
+        Board board = new Board();
+        board.move(board.getPosition().parseMove("g1f3"));
+        board.move(board.getPosition().parseMove("d7d5"));
+        StringWriter out = new StringWriter();
+        new PgnWriter(out).writeGame(board, new LinkedHashMap<String, String>());
+        assertTrue(out.toString().endsWith("\n1. Nf3 d5 *\n\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalMove() throws Exception {
+        new PgnWriter(new StringWriter()).writeGame(new LinkedHashMap<String, String>(), Position.START_FEN,
+                moves(Position.START_FEN, "e2e5"), "*");
+    }
+}
@@ -0,0 +1,371 @@
+package test;
+
+import engine.Search;
+import engine.SearchLimits;
+import exceptions.*;
+import model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests for playing and taking back moves on the bitboards
+ */
+public class PositionTest {
+
+    private Board b;
+    private Position position;
+
+    @Before
+    public void setUp(){
+        b = new Board();
+        position = b.getPosition();
+    }
+
+    @Test
+    public void testInitialState(){
+        assertTrue(position.getSideToMove());
+        assertEquals(Position.ALL_CASTLING, position.getCastlingRights());
+        assertEquals(-1, position.getEnPassantSquare());
+        assertEquals(0, position.getHalfmoveClock());
+        assertEquals(Position.code(true, UnitCost.KING), position.pieceAt(4));
+        assertEquals(Position.EMPTY, position.pieceAt(28));
+    }
+
+    @Test
+    public void testMakeUnmakeQuietAndDoublePush(){
+        long before = position.getOccupied();
+        position.makeMove(position.toMove(12, 28, 0)); // e2e4
+        assertFalse(position.getSideToMove());
+        assertEquals(20, position.getEnPassantSquare());
+        assertEquals(Position.code(true, UnitCost.PAWN), position.pieceAt(28));
+        assertEquals(Position.EMPTY, position.pieceAt(12));
+
+        position.makeMove(position.toMove(62, 45, 0)); // g8f6
+        assertEquals(-1, position.getEnPassantSquare());
+        assertEquals(1, position.getHalfmoveClock());
+
+        position.unmakeMove();
+        position.unmakeMove();
+        assertEquals(before, position.getOccupied());
+        assertTrue(position.getSideToMove());
+        assertEquals(-1, position.getEnPassantSquare());
+        assertEquals(Position.code(true, UnitCost.PAWN), position.pieceAt(12));
+    }
+
+    @Test
+    public void testMakeUnmakeCaptureAndEnPassant(){
+        position.makeMove(position.toMove(12, 36, 0)); // e2 to e5 directly
+        position.makeMove(position.toMove(51, 35, 0)); // d7d5
+        assertEquals(43, position.getEnPassantSquare());
+        long blackPawns = position.getPieces(false, UnitCost.PAWN);
+
+        position.makeMove(position.toMove(36, 43, 0)); // exd6 en passant
+        assertEquals(Position.EMPTY, position.pieceAt(35));
+        assertEquals(Long.bitCount(blackPawns) - 1, Long.bitCount(position.getPieces(false, UnitCost.PAWN)));
+        assertEquals(0, position.getHalfmoveClock());
+
+        position.unmakeMove();
+        assertEquals(blackPawns, position.getPieces(false, UnitCost.PAWN));
+        assertEquals(Position.code(true, UnitCost.PAWN), position.pieceAt(36));
+        assertEquals(43, position.getEnPassantSquare());
+    }
+
+    @Test
+    public void testMakeUnmakeCastling() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("f1").getPiece(), b.getSquare("f3"));
+        b.movePiece(b.getSquare("g1").getPiece(), b.getSquare("g3"));
+
+        position.makeMove(position.toMove(4, 6, 0)); // O-O
+        assertEquals(Position.code(true, UnitCost.KING), position.pieceAt(6));
+        assertEquals(Position.code(true, UnitCost.ROOK), position.pieceAt(5));
+        assertEquals(Position.EMPTY, position.pieceAt(7));
+        assertEquals(Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE, position.getCastlingRights());
+
+        position.unmakeMove();
+        assertEquals(Position.code(true, UnitCost.KING), position.pieceAt(4));
+        assertEquals(Position.code(true, UnitCost.ROOK), position.pieceAt(7));
+        assertEquals(Position.EMPTY, position.pieceAt(5));
+        assertEquals(Position.ALL_CASTLING, position.getCastlingRights());
+    }
+
+    @Test
+    public void testMakeUnmakePromotionCapture() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("a2").getPiece(), b.getSquare("a7"));
+        long blackRooks = position.getPieces(false, UnitCost.ROOK);
+
+        position.makeMove(position.parseMove("a7b8q")); // axb8=Q
+        assertEquals(Position.code(true, UnitCost.QUEEN), position.pieceAt(57));
+        assertEquals(2, Long.bitCount(position.getPieces(true, UnitCost.QUEEN)));
+
+        position.unmakeMove();
+        assertEquals(Position.code(true, UnitCost.PAWN), position.pieceAt(48));
+        assertEquals(Position.code(false, UnitCost.KNIGHT), position.pieceAt(57));
+        assertEquals(1, Long.bitCount(position.getPieces(true, UnitCost.QUEEN)));
+        assertEquals(blackRooks, position.getPieces(false, UnitCost.ROOK));
+    }
+
+    @Test
+    public void testLeavesKingInCheck() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("e8").getPiece(), b.getSquare("e5"));
+        b.movePiece(b.getSquare("d1").getPiece(), b.getSquare("e2"));
+        b.movePiece(b.getSquare("e7").getPiece(), b.getSquare("e4"));
+        b.movePiece(b.getSquare("c1").getPiece(), b.getSquare("d3"));
+
+        // the e4 pawn is pinned against the black King, so it can only push along the pin
+        assertTrue(position.leavesKingInCheck(position.toMove(28, 19, 0)));
+        assertFalse(position.leavesKingInCheck(position.toMove(28, 20, 0)));
+        assertFalse(position.leavesKingInCheck(position.toMove(36, 44, 0)));
+        assertEquals(Position.code(false, UnitCost.PAWN), position.pieceAt(28));
+    }
+
+    @Test
+    public void testParseAndToString(){
+        int move = position.parseMove("e2e4");
+        assertEquals(12, Move.from(move));
+        assertEquals(28, Move.to(move));
+        assertTrue(Move.isDoublePush(move));
+        assertEquals("e2e4", Move.toString(move));
+        assertEquals(Move.NONE, position.parseMove("e4e5"));
+        assertEquals(Move.NONE, position.parseMove("e2e9"));
+        assertEquals(Move.NONE, position.parseMove("e7e8x"));
+        assertEquals("e7e8n", Move.toString(Move.of(52, 60, UnitCost.KNIGHT)));
+        int capture = Move.of(52, 61, UnitCost.KNIGHT.ordinal(), Move.CAPTURE);
+        assertEquals(Move.of(52, 61, UnitCost.QUEEN.ordinal(), Move.CAPTURE),
+                Move.withPromotion(capture, UnitCost.QUEEN));
+    }
+
+    @Test
+    public void testGenerateInitialMoves(){
+        MoveList list = new MoveList();
+        position.generateMoves(list);
+        assertEquals(20, list.size());
+        assertTrue(list.contains(position.parseMove("g1f3")));
+        assertTrue(list.contains(position.parseMove("e2e4")));
+        assertEquals(Move.NONE, list.find(4, 6, 0));
+    }
+
+    @Test
+    public void testGenerateSpecialMoves() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("f1").getPiece(), b.getSquare("f5"));
+        b.movePiece(b.getSquare("g1").getPiece(), b.getSquare("g5"));
+        b.movePiece(b.getSquare("b2").getPiece(), b.getSquare("b7"));
+        position.makeMove(position.toMove(12, 36, 0)); // e2 to e5 directly
+        position.makeMove(position.toMove(51, 35, 0)); // d7d5
+
+        MoveList list = new MoveList();
+        position.generateMoves(list);
+        assertTrue(Move.isCastle(list.find(4, 6, 0)));
+        assertTrue(Move.isEnPassant(list.find(36, 43, 0)));
+        // bxa8 and bxc8 with each of the four promotion pieces
+        for(UnitCost u : new UnitCost[]{UnitCost.QUEEN, UnitCost.ROOK, UnitCost.BISHOP, UnitCost.KNIGHT}){
+            assertTrue(Move.isCapture(list.find(49, 56, u.ordinal())));
+            assertTrue(Move.isCapture(list.find(49, 58, u.ordinal())));
+        }
+        for(int i = 0; i < list.size(); i++){
+            assertTrue(position.pieceAt(Move.from(list.get(i))) < Position.code(false, UnitCost.KING));
+        }
+    }
+
+    @Test
+    public void testLegalMovesPinned() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("d1").getPiece(), b.getSquare("h5"));
+        position.makeMove(position.toMove(12, 20, 0)); // e2e3
+
+        // the f7 pawn is pinned to the black King by the Queen on h5
+        MoveList list = new MoveList();
+        position.generateLegalMoves(list);
+        assertEquals(17, list.size()); // h7h5 is also blocked by the Queen
+        assertEquals(Move.NONE, list.find(53, 45, 0));
+        assertEquals(Move.NONE, list.find(53, 37, 0));
+    }
+
+    @Test
+    public void testLegalMovesCastlingThroughCheck() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("e2").getPiece(), b.getSquare("e4"));
+        b.movePiece(b.getSquare("f1").getPiece(), b.getSquare("g4"));
+        b.movePiece(b.getSquare("g1").getPiece(), b.getSquare("f3"));
+        b.movePiece(b.getSquare("c8").getPiece(), b.getSquare("a6"));
+
+        MoveList pseudo = new MoveList();
+        position.generateMoves(pseudo);
+        assertTrue(Move.isCastle(pseudo.find(4, 6, 0)));
+
+        // the Bishop on a6 covers e2 and f1, which the King would pass through
+        MoveList legal = new MoveList();
+        position.generateLegalMoves(legal);
+        assertEquals(Move.NONE, legal.find(4, 6, 0));
+        assertEquals(Move.NONE, legal.find(4, 5, 0));
+        assertEquals(Move.NONE, legal.find(4, 12, 0));
+    }
+
+    @Test
+    public void testLegalMovesDoubleCheck() throws InvalidCoordinateException {
+        b.movePiece(b.getSquare("e1").getPiece(), b.getSquare("e4"));
+        b.movePiece(b.getSquare("b8").getPiece(), b.getSquare("d6"));
+        b.movePiece(b.getSquare("d8").getPiece(), b.getSquare("e5"));
+
+        // only the King may move, and it can take the Queen on e5 since nothing defends it
+        MoveList list = new MoveList();
+        position.generateLegalMoves(list);
+        for(int i = 0; i < list.size(); i++){
+            assertEquals(28, Move.from(list.get(i)));
+        }
+        assertTrue(list.contains(position.parseMove("e4e5")));
+        assertFalse(list.contains(position.parseMove("e4d4")));
+    }
+
+    // the key kept up by makeMove/unmakeMove must always match one worked out from scratch
+    @Test
+    public void testZobristIncremental() throws InvalidFenException {
+        Position p = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long key = p.getKey();
+        checkKeys(p, 3);
+        assertEquals(key, p.getKey());
+    }
+
+    @Test
+    public void testZobristTransposition() throws InvalidFenException {
+        long start = position.getKey();
+        assertEquals(Position.fromFen(Position.START_FEN).getKey(), start);
+        for(String m : new String[]{"g1f3", "g8f6", "f3g1", "f6g8"}){
+            assertFalse(position.isRepetition());
+            position.makeMove(position.parseMove(m));
+        }
+        assertEquals(start, position.getKey());
+        assertTrue(position.isRepetition());
+
+        // the same pieces with the other side to move or fewer castling rights are different positions
+        assertNotEquals(start, Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1").getKey());
+        assertNotEquals(start, Position.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w Kkq - 0 1").getKey());
+    }
+
+    // an en passant square only changes the key if a pawn can capture onto it
+    @Test
+    public void testZobristEnPassant() throws InvalidFenException {
+        position.makeMove(position.parseMove("e2e4"));
+        assertEquals(Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").getKey(),
+                position.getKey());
+
+        Position p = Position.fromFen("rnbqkbnr/ppp1pppp/8/8/3p4/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        p.makeMove(p.parseMove("e2e4"));
+        assertNotEquals(Position.fromFen("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").getKey(),
+                p.getKey());
+        assertEquals(Position.fromFen("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").getKey(),
+                p.getKey());
+    }
+
+    @Test
+    public void testScores() throws InvalidFenException {
+        assertEquals(39, position.getMaterial(true));
+        assertEquals(39, position.getMaterial(false));
+        assertEquals(24, position.getPhase());
+        assertEquals(0, position.getScore());
+
+        // a lone pawn on the seventh is worth more in the endgame than in the middlegame
+        Position p = Position.fromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals(0, p.getPhase());
+        assertEquals(1, p.getMaterial(true));
+        assertEquals(0, p.getMaterial(false));
+        assertTrue(p.getEndgameScore() > p.getMiddlegameScore());
+        assertEquals(p.getEndgameScore(), p.getScore());
+    }
+
+    // the scores kept through makeMove/unmakeMove must match a position set up from scratch
+    @Test
+    public void testScoresIncremental() throws InvalidFenException {
+        checkScores(Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"), 2);
+        checkScores(Position.fromFen("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"), 2);
+    }
+
+    private void checkScores(Position p, int depth) throws InvalidFenException {
+        Position fresh = Position.fromFen(p.toFen());
+        assertEquals(fresh.getMaterial(true), p.getMaterial(true));
+        assertEquals(fresh.getMaterial(false), p.getMaterial(false));
+        assertEquals(fresh.getMiddlegameScore(), p.getMiddlegameScore());
+        assertEquals(fresh.getEndgameScore(), p.getEndgameScore());
+        assertEquals(fresh.getPhase(), p.getPhase());
+        if(depth == 0){
+            return;
+        }
+        MoveList list = new MoveList();
+        p.generateLegalMoves(list);
+        for(int i = 0; i < list.size(); i++){
+            int score = p.getScore();
+            p.makeMove(list.get(i));
+            checkScores(p, depth - 1);
+            p.unmakeMove();
+            assertEquals(score, p.getScore());
+        }
+    }
+
+    private void checkKeys(Position p, int depth){
+        assertEquals(p.computeKey(), p.getKey());
+        if(depth == 0){
+            return;
+        }
+        MoveList list = new MoveList();
+        p.generateLegalMoves(list);
+        for(int i = 0; i < list.size(); i++){
+            long key = p.getKey();
+            p.makeMove(list.get(i));
+            checkKeys(p, depth - 1);
+            p.unmakeMove();
+            assertEquals(key, p.getKey());
+        }
+    }
+
+    // castling rights without their King and Rook at home are dropped, so no castle is generated without a Rook
+    @Test
+    public void testFenCastlingRights() throws InvalidFenException {
+        Position p = Position.fromFen("4k3/8/8/8/8/8/8/4K3 w K - 0 1");
+        assertEquals(0, p.getCastlingRights());
+        assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", p.toFen());
+        MoveList list = new MoveList();
+        p.generateLegalMoves(list);
+        for(int i = 0; i < list.size(); i++){
+            assertFalse(Move.isCastle(list.get(i)));
+        }
+        assertEquals(Position.WHITE_QUEENSIDE | Position.BLACK_KINGSIDE,
+                Position.fromFen("4k2r/8/8/8/8/8/8/R3K1R1 w KQkq - 0 1").getCastlingRights());
+        assertEquals(0, Position.fromFen("r2k3r/8/8/8/8/8/8/R3K2R b kq - 0 1").getCastlingRights());
+        assertEquals(0, Board.fromFen("4k3/8/8/8/8/8/8/4K3 w K - 0 1").getPosition().getCastlingRights());
+    }
+
+    @Test
+    public void testFenEnPassant() throws InvalidFenException {
+        assertEquals(20, Position.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")
+                .getEnPassantSquare());
+        assertEquals(43, Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getEnPassantSquare());
+        String[] bad = {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e4 0 1", // not rank 3 or 6
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e3 0 1",        // the wrong side to move
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq e3 0 1",          // no pawn in front
+                "4k3/8/8/3pP3/8/8/8/4K3 w - d3 0 1"};
+        for(String fen : bad){
+            try {
+                Position.fromFen(fen);
+                fail(fen);
+            } catch (InvalidFenException e) {
+                // rejected
+            }
+        }
+    }
+
+    @Test
+    public void testFenPieceCounts() throws InvalidFenException {
+        String[] bad = {"8/8/8/8/8/8/8/4K3 w - - 0 1",                                 // no black King
+                "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",                                      // two white Kings
+                "4k3/8/8/8/8/QQQQQQQQ/PPPPPPPP/4K3 w - - 0 1"};                        // 17 white pieces
+        for(String fen : bad){
+            try {
+                Position.fromFen(fen);
+                fail(fen);
+            } catch (InvalidFenException e) {
+                // rejected
+            }
+        }
+        // a search of the former bad castling position no longer makes a castle without a Rook
+        new Search().search(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w K - 0 1"), SearchLimits.depth(3));
+    }
+}
@@ -0,0 +1,97 @@
+package test;
+
+import exceptions.InvalidFenException;
+import model.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that San resolves Standard Algebraic Notation against the legal moves of a position
+ */
+public class SanTest {
+
+    private static String parse(String fen, String san) throws InvalidFenException {
+        int move = San.parse(Position.fromFen(fen), san);
+        return (move == Move.NONE) ? null : Move.toString(move);
+    }
+
+    @Test
+    public void testPieceAndPawnMoves() throws InvalidFenException {
+        assertEquals("e2e4", parse(Position.START_FEN, "e4"));
+        assertEquals("g1f3", parse(Position.START_FEN, "Nf3"));
+        assertEquals("g1f3", parse(Position.START_FEN, "Ng1f3"));
+        assertEquals("g1f3", parse(Position.START_FEN, "Ng1-f3"));
+        assertNull(parse(Position.START_FEN, "e5"));
+        assertNull(parse(Position.START_FEN, "Nd4"));
+        assertNull(parse(Position.START_FEN, "Zf3"));
+        assertNull(parse(Position.START_FEN, "x"));
+        String fen = "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2";
+        assertEquals("e4d5", parse(fen, "exd5"));
+        assertEquals("e4d5", parse(fen, "exd5!?"));
+        assertNull(parse(fen, "dxe4"));
+    }
+
+    @Test
+    public void testDisambiguation() throws InvalidFenException {
+        // rooks on a1 and h1 can both reach d1, knights on b3 and f3 can both reach d2
+        String fen = "4k3/8/8/8/8/1N3N2/4K3/R6R w - - 0 1";
+        assertNull(parse(fen, "Rd1"));
+        assertEquals("a1d1", parse(fen, "Rad1"));
+        assertEquals("h1f1", parse(fen, "Rhf1"));
+        assertNull(parse(fen, "R1d1"));
+        assertEquals("b3d2", parse(fen, "Nbd2"));
+        assertEquals("f3d2", parse(fen, "Nf3d2"));
+        assertNull(parse(fen, "N3d2"));
+        assertNull(parse(fen, "Nd2"));
+    }
+
+    @Test
+    public void testSpecialMoves() throws InvalidFenException {
+        String fen = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+        assertEquals("e1g1", parse(fen, "O-O"));
+        assertEquals("e1c1", parse(fen, "O-O-O+"));
+        assertEquals("e1g1", parse(fen, "0-0"));
+        assertNull(parse("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1", "O-O"));
+
+        String promotion = "3n4/4P3/8/8/8/8/8/k6K w - - 0 1";
+        assertEquals("e7e8q", parse(promotion, "e8=Q"));
+        assertEquals("e7e8n", parse(promotion, "e8N+"));
+        assertEquals("e7d8r", parse(promotion, "exd8=R#"));
+        assertNull(parse(promotion, "e8"));
+
+        String ep = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+        assertEquals("e5f6", parse(ep, "exf6"));
+        assertEquals("e5f6", parse(ep, "exf6e.p."));
+    }
+
+    @Test
+    public void testToString() throws InvalidFenException {
+        Position p = Position.fromFen(Position.START_FEN);
+        assertEquals("e4", San.toString(p, p.parseMove("e2e4")));
+        assertEquals("Nf3", San.toString(p, p.parseMove("g1f3")));
+        assertEquals(Position.START_FEN, p.toFen());
+
+        p = Position.fromFen("4k3/8/8/8/8/1N3N2/4K3/R6R w - - 0 1");
+        assertEquals("Rad1", San.toString(p, p.parseMove("a1d1")));
+        assertEquals("Nbd2", San.toString(p, p.parseMove("b3d2")));
+        assertEquals("Nbd4", San.toString(p, p.parseMove("b3d4")));
+        assertEquals("Nc5", San.toString(p, p.parseMove("b3c5")));
+        p = Position.fromFen("4k3/8/8/N7/8/8/4K3/N7 w - - 0 1");
+        assertEquals("N1b3", San.toString(p, p.parseMove("a1b3")));
+        p = Position.fromFen("7k/8/8/8/Q1Q5/8/Q3K3/8 w - - 0 1");
+        assertEquals("Qa4b3", San.toString(p, p.parseMove("a4b3")));
+
+        p = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", San.toString(p, p.parseMove("e1g1")));
+        assertEquals("O-O-O", San.toString(p, p.parseMove("e1c1")));
+
+        p = Position.fromFen("3n4/4P3/8/8/8/8/8/k6K w - - 0 1");
+        assertEquals("e8=Q", San.toString(p, p.parseMove("e7e8q")));
+        assertEquals("exd8=N", San.toString(p, p.parseMove("e7d8n")));
+        p = Position.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        assertEquals("exf6", San.toString(p, p.parseMove("e5f6")));
+        p = Position.fromFen("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq g3 0 2");
+        assertEquals("Qh4#", San.toString(p, p.parseMove("d8h4")));
+    }
+}
@@ -0,0 +1,148 @@
+package test;
+
+import engine.ParallelSearch;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import exceptions.*;
+import model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests that the search finds mates and material, respects its limits and leaves the board alone
+ */
+public class SearchTest {
+
+    private Search search;
+
+    @Before
+    public void setUp(){
+        search = new Search();
+    }
+
+    @Test
+    public void testMateInOne() throws InvalidFenException {
+        SearchResult r = search.search(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.depth(4));
+        assertEquals("a1a8", Move.toString(r.getBestMove()));
+        assertEquals(Search.MATE - 1, r.getScore());
+        assertTrue(Search.isMate(r.getScore()));
+    }
+
+    @Test
+    public void testMateInTwo() throws InvalidFenException {
+        // 1. Kb6 Kb8 2. Rh8#
+        SearchResult r = search.search(Position.fromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1"),
+                SearchLimits.depth(5));
+        assertEquals(Search.MATE - 3, r.getScore());
+        assertEquals(3, r.getPrincipalVariation().length);
+    }
+
+    @Test
+    public void testWinsMaterial() throws InvalidFenException {
+        SearchResult r = search.search(Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"), SearchLimits.depth(3));
+        assertEquals("d2d5", Move.toString(r.getBestMove()));
+        assertTrue(r.getScore() > 0);
+    }
+
+    // a defended piece isn't worth taking once quiescence sees the recapture
+    @Test
+    public void testQuiescence() throws InvalidFenException {
+        SearchResult r = search.search(Position.fromFen("4k3/2p5/3p4/8/8/8/3Q4/4K3 w - - 0 1"), SearchLimits.depth(1));
+        assertNotEquals("d2d6", Move.toString(r.getBestMove()));
+    }
+
+    @Test
+    public void testNoLegalMove() throws InvalidFenException {
+        SearchResult mated = search.search(Position.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1"), SearchLimits.depth(3));
+        assertEquals(Move.NONE, mated.getBestMove());
+        assertEquals(-Search.MATE, mated.getScore());
+        SearchResult stalemate = search.search(Position.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), SearchLimits.depth(3));
+        assertEquals(Move.NONE, stalemate.getBestMove());
+        assertEquals(0, stalemate.getScore());
+    }
+
+    @Test
+    public void testGameRepetition() throws InvalidFenException {
+        // white's only move, Kg1, repeats a position of the game, which holds a lost ending to a draw
+        Position p = Position.fromFen("k7/8/8/8/8/8/q7/7K w - - 0 1");
+        for(String move : new String[]{"h1g1", "a2b2", "g1h1", "b2a2"}){
+            p.makeMove(p.parseMove(move));
+        }
+        SearchResult r = search.search(p, SearchLimits.depth(4));
+        assertEquals(p.parseMove("h1g1"), r.getBestMove());
+        assertEquals(0, r.getScore());
+        assertTrue(search.search(Position.fromFen(p.toFen()), SearchLimits.depth(4)).getScore() < 0);
+    }
+
+    @Test
+    public void testBoardRepetition() throws InvalidFenException, InvalidCoordinateException, InvalidMoveException,
+            InvalidTurnException, CheckmateException, StalemateException, InvalidUndoException {
+        // the same as testGameRepetition, with the moves played on a Board
+        Board b = Board.fromFen("k7/8/8/8/8/8/q7/7K w - - 0 1");
+        for(String move : new String[]{"h1g1", "a2b2", "g1h1", "b2a2"}){
+            b.move(b.getPosition().parseMove(move));
+        }
+        SearchResult r = search.search(b, SearchLimits.depth(4));
+        assertEquals("h1g1", Move.toString(r.getBestMove()));
+        assertEquals(0, r.getScore());
+
+        // taking the moves back forgets the positions they left
+        for(int i = 0; i < 4; i++){
+            b.undo();
+        }
+        assertTrue(search.search(b, SearchLimits.depth(4)).getScore() < 0);
+    }
+
+    @Test
+    public void testSearchBoard(){
+        Board b = new Board();
+        long key = b.getZobristKey();
+        SearchResult r = search.search(b, SearchLimits.depth(4));
+        assertEquals(4, r.getDepth());
+        assertTrue(r.getNodes() > 0);
+        assertTrue(b.getLegalMoves().contains(r.getBestMove()));
+        assertEquals(r.getBestMove(), r.getPrincipalVariation()[0]);
+        assertEquals(key, b.getZobristKey());
+        assertEquals(Position.START_FEN, b.getPosition().toFen());
+    }
+
+    @Test
+    public void testLimits(){
+        Board b = new Board();
+        long start = System.currentTimeMillis();
+        SearchResult r = search.search(b, SearchLimits.time(200));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertTrue(r.getDepth() >= 1);
+        assertTrue(b.getLegalMoves().contains(r.getBestMove()));
+
+        r = search.search(b, SearchLimits.nodes(5000));
+        assertTrue(r.getNodes() < 5000 + 1024);
+        assertTrue(b.getLegalMoves().contains(r.getBestMove()));
+    }
+
+    @Test
+    public void testParallelSearch() throws InvalidFenException {
+        ParallelSearch parallel = new ParallelSearch(3, 4);
+        try {
+            assertEquals(3, parallel.getThreads());
+            SearchResult r = parallel.search(Position.fromFen("k7/8/2K5/8/8/8/8/7R w - - 0 1"), SearchLimits.depth(5));
+            assertEquals(Search.MATE - 3, r.getScore());
+
+            Board b = new Board();
+            r = parallel.search(b, SearchLimits.depth(4));
+            assertEquals(4, r.getDepth());
+            assertTrue(b.getLegalMoves().contains(r.getBestMove()));
+            assertEquals(Position.START_FEN, b.getPosition().toFen());
+
+            long start = System.currentTimeMillis();
+            r = parallel.search(b, SearchLimits.time(200));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertTrue(b.getLegalMoves().contains(r.getBestMove()));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package test;
+
+import exceptions.InvalidFenException;
+import model.MoveList;
+import model.Position;
+import org.junit.Test;
+import tablebase.Material;
+import tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the retrograde generator against known endgame results and against the values of each position's moves
+ */
+public class TablebaseGeneratorTest {
+
+    // the longest win, in plies
+    private static int longest(byte[] values){
+        int longest = 0;
+        for(byte v : values){
+            if(((v & 0xFF) - 1) % 2 == 1){
+                longest = Math.max(longest, (v & 0xFF) - 1);
+            }
+        }
+        return longest;
+    }
+
+    @Test
+    public void testKQK() throws IOException, InvalidFenException {
+        TablebaseGenerator generator = new TablebaseGenerator(null, 2);
+        // the longest win with King and Queen is mate in 10
+        assertEquals(19, longest(generator.generate("KvKQ")));
+        // Qh8#, a win in 1 ply
+        assertEquals(2, generator.probe(Position.fromFen("k7/8/1K6/8/8/8/7Q/8 w - - 0 1")));
+        assertEquals(2, generator.probe(Position.fromFen("8/7q/8/8/8/1k6/8/K7 b - - 0 1")));
+        // mated
+        assertEquals(1, generator.probe(Position.fromFen("k6Q/8/1K6/8/8/8/8/8 b - - 0 1")));
+        // the Queen is taken
+        assertEquals(0, generator.probe(Position.fromFen("8/8/8/8/8/2k5/3Q4/7K b - - 0 1")));
+    }
+
+    @Test
+    public void testKRK() throws IOException {
+        // the longest win with King and Rook is mate in 16
+        assertEquals(31, longest(new TablebaseGenerator(null, 2).generate("KRvK")));
+    }
+
+    @Test
+    public void testKPK() throws IOException, InvalidFenException {
+        TablebaseGenerator generator = new TablebaseGenerator(null, 2);
+        byte[] values = generator.generate("KPvK");
+        // the King on the sixth rank in front of its pawn wins whoever is to move
+        int win = generator.probe(Position.fromFen("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"));
+        int loss = generator.probe(Position.fromFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+        assertTrue((win > 0) && ((win - 1) % 2 == 1));
+        assertTrue((loss > 0) && ((loss - 1) % 2 == 0));
+        // stalemate, and a rook pawn with the defending King in the corner
+        assertEquals(0, generator.probe(Position.fromFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1")));
+        assertEquals(0, generator.probe(Position.fromFen("k7/8/8/P7/8/8/8/4K3 w - - 0 1")));
+
+        // every position's value follows from the values of its moves
+        Material m = Material.of("KPvK");
+        int[] squares = new int[m.getPieces()];
+        Position p = new Position();
+        MoveList legal = new MoveList();
+        for(int i = 0; i < values.length; i++){
+            boolean first = m.decode(i, squares);
+            if(!m.setUp(p, squares, first) || p.isInCheck(!p.getSideToMove())){
+                continue;
+            }
+            legal.clear();
+            p.generateLegalMoves(legal);
+            int expected = 0;
+            if(legal.isEmpty()){
+                expected = p.isInCheck(p.getSideToMove()) ? 1 : 0;
+            } else{
+                int shortestLoss = Integer.MAX_VALUE;
+                int longestWin = -1;
+                boolean allWin = true;
+                for(int j = 0; j < legal.size(); j++){
+                    p.makeMove(legal.get(j));
+                    int v = generator.probe(p);
+                    p.unmakeMove();
+                    if(v == 0){
+                        allWin = false;
+                    } else if((v - 1) % 2 == 0){
+                        shortestLoss = Math.min(shortestLoss, v - 1);
+                        allWin = false;
+                    } else{
+                        longestWin = Math.max(longestWin, v - 1);
+                    }
+                }
+                if(shortestLoss != Integer.MAX_VALUE){
+                    expected = shortestLoss + 2;
+                } else if(allWin){
+                    expected = longestWin + 2;
+                }
+            }
+            assertEquals("index " + i, expected, values[i] & 0xFF);
+        }
+    }
+
+    @Test
+    public void testFiles() throws IOException {
+        Path directory = Files.createTempDirectory("tables");
+        byte[] generated = new TablebaseGenerator(directory, 1).generate("KRvK");
+        assertTrue(Files.exists(directory.resolve("KRvK.ctb")));
+        assertArrayEquals(generated, new TablebaseGenerator(directory, 1).generate("KRvK"));
+        for(Path file : Files.newDirectoryStream(directory)){
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,100 @@
+package test;
+
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import exceptions.InvalidFenException;
+import model.Board;
+import model.Move;
+import model.Position;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import tablebase.Tablebase;
+import tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests probing generated tables through their memory mappings, from the search and to adjudicate games
+ */
+public class TablebaseTest {
+
+    private static Path directory;
+    private static TablebaseGenerator generator;
+    private static Tablebase tablebase;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        directory = Files.createTempDirectory("tables");
+        generator = new TablebaseGenerator(directory, 2);
+        generator.generate("KQvK");
+        generator.generate("KRvK");
+        tablebase = new Tablebase(directory);
+    }
+
+    @AfterClass
+    public static void delete() throws IOException {
+        for(Path file : Files.newDirectoryStream(directory)){
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testProbe() throws InvalidFenException {
+        assertEquals(2, tablebase.size());
+        assertEquals(3, tablebase.getMaxPieces());
+        String[] fens = {"k7/8/1K6/8/8/8/7Q/8 w - - 0 1", "8/7q/8/8/8/1k6/8/K7 b - - 0 1",
+                "8/8/8/8/8/2k5/3R4/7K b - - 0 1", "8/8/3k4/8/8/8/8/R3K3 w - - 0 1", "8/8/3K4/8/8/8/8/r3k3 b - - 0 1"};
+        int[] squares = new int[tablebase.getMaxPieces()];
+        for(String fen : fens){
+            Position p = Position.fromFen(fen);
+            assertEquals(fen, generator.probe(p), tablebase.probe(p, squares));
+        }
+        assertEquals(2, tablebase.probe(Position.fromFen(fens[0])));
+        assertTrue(Tablebase.isWin(2) && Tablebase.isLoss(1) && !Tablebase.isWin(Tablebase.DRAW));
+        assertEquals(Tablebase.DRAW, tablebase.probe(Position.fromFen("8/8/3k4/8/8/8/8/4K3 w - - 0 1")));
+        // no table, and castling rights the tables don't have
+        assertEquals(Tablebase.MISS, tablebase.probe(Position.fromFen("8/8/3k4/8/8/8/8/r3K2R w - - 0 1")));
+        assertEquals(Tablebase.MISS, tablebase.probe(Position.fromFen("8/8/3k4/8/8/8/8/R3K3 w Q - 0 1")));
+    }
+
+    @Test
+    public void testBestMove() throws InvalidFenException {
+        assertEquals("h2h8", Move.toString(tablebase.bestMove(Position.fromFen("k7/8/1K6/8/8/8/7Q/8 w - - 0 1"))));
+        // the only move that doesn't lose the Rook
+        assertEquals("c3d2", Move.toString(tablebase.bestMove(Position.fromFen("8/8/8/8/8/2k5/3R4/7K b - - 0 1"))));
+        assertEquals(Move.NONE, tablebase.bestMove(Position.fromFen("8/8/3k4/8/8/8/8/r3K2R w - - 0 1")));
+    }
+
+    @Test
+    public void testSearch() throws InvalidFenException {
+        Search search = new Search();
+        search.setTablebase(tablebase);
+        // mate in 13, far beyond depth 3, is scored exactly from the tables
+        Position krk = Position.fromFen("8/8/8/8/4k3/8/8/R3K3 w - - 0 1");
+        assertEquals(26, tablebase.probe(krk));
+        SearchResult r = search.search(krk, SearchLimits.depth(3));
+        assertEquals(Search.MATE - 25, r.getScore());
+        r = search.search(Position.fromFen("k7/8/1K6/8/8/8/7Q/8 w - - 0 1"), SearchLimits.depth(3));
+        assertEquals(Search.MATE - 1, r.getScore());
+        // taking the Rook draws
+        r = search.search(Position.fromFen("8/8/8/8/8/2k5/3R4/7K b - - 0 1"), SearchLimits.depth(3));
+        assertEquals(0, r.getScore());
+        assertEquals("c3d2", Move.toString(r.getBestMove()));
+    }
+
+    @Test
+    public void testAdjudicate() throws InvalidFenException {
+        assertEquals("1-0", tablebase.adjudicate(Board.fromFen("8/8/8/8/4k3/8/8/R3K3 b - - 0 1")));
+        assertEquals("0-1", tablebase.adjudicate(Board.fromFen("8/8/8/8/4K3/8/8/r3k3 w - - 0 1")));
+        assertEquals("1/2-1/2", tablebase.adjudicate(Board.fromFen("8/8/8/8/8/2k5/3R4/7K b - - 0 1")));
+        assertEquals("1-0", tablebase.adjudicate(Board.fromFen("k6Q/8/1K6/8/8/8/8/8 b - - 0 1")));
+        assertEquals("*", tablebase.adjudicate(Board.fromFen(Position.START_FEN)));
+    }
+}
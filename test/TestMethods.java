@@ -3,7 +3,6 @@ package test;
 import exceptions.InvalidCoordinateException;
 import model.*;
 import org.junit.Test;
-import org.omg.CORBA.DynAnyPackage.Invalid;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -0,0 +1,110 @@
+package test;
+
+import engine.TranspositionTable;
+import model.Move;
+import model.UnitCost;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests storing and probing the transposition table, alone and from several threads at once
+ */
+public class TranspositionTableTest {
+
+    private TranspositionTable tt;
+
+    @Before
+    public void setUp(){
+        tt = new TranspositionTable(1);
+    }
+
+    @Test
+    public void testSize(){
+        assertEquals(65536, tt.capacity());
+        assertEquals(1 << 19, new TranspositionTable(8).capacity());
+    }
+
+    @Test
+    public void testStoreAndProbe(){
+        int move = Move.of(52, 60, 0, Move.CAPTURE) | (UnitCost.QUEEN.ordinal() << 12);
+        tt.store(0x1234567890ABCDEFL, move, -350, 12, TranspositionTable.LOWER);
+        long data = tt.probe(0x1234567890ABCDEFL);
+        assertNotEquals(TranspositionTable.MISS, data);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-350, TranspositionTable.score(data));
+        assertEquals(12, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+
+        // same slot, different key
+        assertEquals(TranspositionTable.MISS, tt.probe(0x1234567890ABCDEFL ^ (1L << 40)));
+        assertEquals(TranspositionTable.MISS, tt.probe(42L));
+    }
+
+    @Test
+    public void testReplacement(){
+        long key = 77L;
+        long other = 77L + (1L << 32); // same slot
+        tt.store(key, Move.of(12, 28), 10, 8, TranspositionTable.EXACT);
+        tt.store(other, Move.of(6, 21), 20, 3, TranspositionTable.EXACT);
+        assertEquals(8, TranspositionTable.depth(tt.probe(key)));
+        assertEquals(TranspositionTable.MISS, tt.probe(other));
+
+        // a shallower result for the same position replaces it, keeping its move if it has none
+        tt.store(key, Move.NONE, 5, 2, TranspositionTable.UPPER);
+        assertEquals(Move.of(12, 28), TranspositionTable.move(tt.probe(key)));
+        assertEquals(2, TranspositionTable.depth(tt.probe(key)));
+
+        // anything replaces entries from an earlier search
+        tt.store(key, Move.of(12, 28), 10, 8, TranspositionTable.EXACT);
+        tt.newSearch();
+        tt.store(other, Move.of(6, 21), 20, 3, TranspositionTable.EXACT);
+        assertEquals(20, TranspositionTable.score(tt.probe(other)));
+        assertEquals(TranspositionTable.MISS, tt.probe(key));
+    }
+
+    // threads hammering the same few slots must never read back an entry stored for a different key
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final TranspositionTable small = new TranspositionTable(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for(int t = 0; t < 4; t++){
+            final long seed = t;
+            results.add(pool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    Random random = new Random(seed);
+                    int hits = 0;
+                    for(int i = 0; i < 200000; i++){
+                        long key = ((long) random.nextInt(64) << 32) | random.nextInt(16);
+                        long data = small.probe(key);
+                        if(data != TranspositionTable.MISS){
+                            // every key is stored with a score and depth derived from it
+                            assertEquals((int) (key >>> 32), TranspositionTable.score(data));
+                            assertEquals((int) (key & 15), TranspositionTable.depth(data));
+                            hits++;
+                        }
+                        small.store(key, Move.NONE, (int) (key >>> 32), (int) (key & 15), TranspositionTable.EXACT);
+                    }
+                    return hits;
+                }
+            }));
+        }
+        int hits = 0;
+        for(Future<Integer> f : results){
+            hits += f.get();
+        }
+        pool.shutdown();
+        assertTrue(hits > 0);
+    }
+}
@@ -0,0 +1,167 @@
+package test;
+
+import book.OpeningBook;
+import book.PolyglotKey;
+import exceptions.InvalidFenException;
+import model.MoveList;
+import model.Position;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ui.uci.UciEngine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * tests the UCI front end by talking to it through pipes, the way a GUI would
+ */
+public class UciEngineTest {
+
+    private PrintStream commands;
+    private BlockingQueue<String> replies;
+    private Thread engine;
+
+    @Before
+    public void setUp() throws IOException {
+        PipedOutputStream toEngine = new PipedOutputStream();
+        final PipedInputStream in = new PipedInputStream(toEngine);
+        commands = new PrintStream(toEngine, true);
+        replies = new LinkedBlockingQueue<String>();
+        final PrintStream out = new PrintStream(new OutputStream() {
+            private final StringBuilder line = new StringBuilder();
+
+            @Override
+            public void write(int b){
+                if(b == '\n'){
+                    replies.add(line.toString().trim());
+                    line.setLength(0);
+                } else{
+                    line.append((char) b);
+                }
+            }
+        }, true);
+        engine = new Thread(() -> {
+            try {
+                new UciEngine(in, out).run();
+            } catch (IOException e) {
+                // the pipe closed
+            }
+        });
+        engine.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        commands.println("quit");
+        engine.join(5000);
+        assertFalse(engine.isAlive());
+    }
+
+    // the next reply starting with prefix, skipping the others
+    private String await(String prefix) throws InterruptedException {
+        while(true){
+            String reply = replies.poll(10, TimeUnit.SECONDS);
+            assertNotNull("no reply starting with " + prefix, reply);
+            if(reply.startsWith(prefix)){
+                return reply;
+            }
+        }
+    }
+
+    @Test
+    public void testHandshake() throws InterruptedException {
+        commands.println("uci");
+        assertEquals("id name " + UciEngine.NAME, await("id name"));
+        assertTrue(await("option name").contains("Hash"));
+        await("uciok");
+        commands.println("setoption name Threads value 2");
+        commands.println("setoption name Hash value 1");
+        commands.println("isready");
+        await("readyok");
+    }
+
+    @Test
+    public void testGoDepth() throws InterruptedException, InvalidFenException {
+        commands.println("position startpos moves e2e4 e7e5 g1f3");
+        commands.println("go depth 3");
+        String info = await("info depth 3");
+        assertTrue(info.contains(" nps "));
+        assertTrue(info.contains(" score cp "));
+        String best = await("bestmove").split(" ")[1];
+
+        Position p = Position.fromFen("rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2");
+        MoveList legal = new MoveList();
+        p.generateLegalMoves(legal);
+        assertTrue(legal.contains(p.parseMove(best)));
+    }
+
+    @Test
+    public void testMate() throws InterruptedException {
+        commands.println("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        commands.println("go movetime 500");
+        assertEquals("bestmove a1a8", await("bestmove"));
+        commands.println("position fen R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        commands.println("go depth 2");
+        assertEquals("bestmove 0000", await("bestmove"));
+    }
+
+    // an infinite search only replies once told to stop, and then straight away
+    @Test
+    public void testStop() throws InterruptedException {
+        commands.println("position startpos");
+        commands.println("go infinite");
+        await("info depth 1");
+        Thread.sleep(200);
+        assertNull(replies.stream().filter(r -> r.startsWith("bestmove")).findFirst().orElse(null));
+        long start = System.nanoTime();
+        commands.println("stop");
+        await("bestmove");
+        assertTrue((System.nanoTime() - start) / 1000000 < 500);
+    }
+
+    // a stop sent straight after go, before the search thread may have started, still ends the search
+    @Test
+    public void testStopAtOnce() throws InterruptedException {
+        commands.println("position startpos");
+        for(int i = 0; i < 200; i++){
+            commands.println("go infinite");
+            commands.println("stop");
+            assertTrue(await("bestmove").matches("bestmove [a-h][1-8][a-h][1-8].*"));
+        }
+    }
+
+    @Test
+    public void testBook() throws InterruptedException, IOException, InvalidFenException {
+        Position start = Position.fromFen(Position.START_FEN);
+        Path book = OpeningBookTest.writeBook(new long[]{PolyglotKey.of(start),
+                OpeningBook.encodeMove(start.parseMove("c2c4")), 1});
+        commands.println("setoption name BookFile value " + book);
+        commands.println("position startpos");
+        commands.println("go depth 20");
+        assertEquals("bestmove c2c4", await("bestmove"));
+        commands.println("position startpos moves c2c4");
+        commands.println("go depth 2");
+        await("info depth 1"); // out of book, so it searches
+        await("bestmove");
+    }
+
+    @Test
+    public void testClock() throws InterruptedException {
+        commands.println("position startpos moves e2e4");
+        long start = System.nanoTime();
+        commands.println("go wtime 100 btime 3000 winc 0 binc 0");
+        await("bestmove");
+        // black's 3 seconds over 30 moves is about 100 milliseconds
+        assertTrue((System.nanoTime() - start) / 1000000 < 1000);
+    }
+}